@@ -0,0 +1,72 @@
+package com.anpr;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.tess4j.Tesseract;
+
+/**
+ * Crop, pre-processing and OCR of one ground-truth plate box per fixture frame.
+ * Needs a local Tesseract install; pass {@code -Dtessdata=/path/to/tessdata} when the
+ * path in config.properties does not apply to the benchmark machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class DetectionProcessorBenchmark {
+
+    @Param({"frame_01.png", "frame_02.png", "frame_03.png"})
+    public String fixture;
+
+    private DetectionProcessor processor;
+    private Mat frame;
+    private Mat detectionRow;
+    private AnprConfig config;
+
+    @Setup
+    public void setup() {
+        config = ConfigLoader.current();
+        Tesseract tesseract = new Tesseract();
+        tesseract.setDatapath(System.getProperty("tessdata", config.tesseractPath));
+        processor = new DetectionProcessor(tesseract, Pattern.compile("^[A-Z]{2}[0-9]{2}[A-Z]{1,2}[0-9]{4}$"));
+
+        Fixtures.FrameTruth truth = Fixtures.frames().stream()
+                .filter(f -> f.file.equals(fixture))
+                .findFirst()
+                .orElseThrow();
+        frame = Fixtures.frame(fixture);
+
+        // Express the ground-truth box in the 640x640 model space, as YOLO would report it
+        double xScale = 640.0 / frame.width();
+        double yScale = 640.0 / frame.height();
+        detectionRow = new Mat(1, 5, CvType.CV_32F);
+        detectionRow.put(0, 0,
+                (truth.x1 + truth.x2) / 2.0 * xScale,
+                (truth.y1 + truth.y2) / 2.0 * yScale,
+                (truth.x2 - truth.x1) * xScale,
+                (truth.y2 - truth.y1) * yScale,
+                0.9);
+    }
+
+    @Benchmark
+    public ProcessResult process() {
+        return processor.process(detectionRow, frame, config);
+    }
+}
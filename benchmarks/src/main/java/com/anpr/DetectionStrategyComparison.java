@@ -0,0 +1,64 @@
+package com.anpr;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import nu.pattern.OpenCV;
+
+/**
+ * Recall and cost of the detection strategies on synthetic 1080p and 4K corpora with
+ * small (distant) plates. Not a JMH benchmark: recall needs every frame of a corpus, so it
+ * drives {@link CorpusEvaluator} directly.
+ * <p>
+ * Run with {@code java -cp benchmarks/target/benchmarks.jar com.anpr.DetectionStrategyComparison}
+ * and optionally {@code -Dmodel=...}, {@code -Dtessdata=...} and {@code -Dframes=N}.
+ * The corpus frames are unrelated to each other, so motion gating is switched off here;
+ * its saving depends on real traffic.
+ */
+public class DetectionStrategyComparison {
+
+    // Plate widths in pixels, roughly a car 25-60 m from a lane camera
+    private static final int MIN_PLATE_PIXELS = 90;
+    private static final int MAX_PLATE_PIXELS = 220;
+
+    public static void main(String[] args) throws IOException {
+        OpenCV.loadLocally();
+        int frames = Integer.getInteger("frames", 40);
+
+        AnprConfig base = ConfigLoader.current()
+                .with("model.path", System.getProperty("model", ConfigLoader.current().modelPath))
+                .with("tesseract.path", System.getProperty("tessdata", ConfigLoader.current().tesseractPath))
+                .with("detection.motionMinFraction", "0");
+
+        System.out.printf("%-10s %-12s %9s %10s %9s %9s%n", "frame", "strategy", "passes", "ms/frame", "recall", "exact");
+        for (int[] size : new int[][] {{1920, 1080}, {3840, 2160}}) {
+            int width = size[0];
+            int height = size[1];
+            File corpus = Files.createTempDirectory("strategy_" + height + "p").toFile();
+            AnprConfig corpusConfig = base
+                    .with("corpus.frameWidth", String.valueOf(width))
+                    .with("corpus.frameHeight", String.valueOf(height))
+                    .with("corpus.minPlateWidth", String.valueOf((float) MIN_PLATE_PIXELS / width))
+                    .with("corpus.maxPlateWidth", String.valueOf((float) MAX_PLATE_PIXELS / width));
+            new PlateCorpusGenerator(32L, corpusConfig).generate(corpus, frames);
+
+            // The generator places plates between 35% and 80% of the frame height
+            String laneBand = "0," + (int) (height * 0.25) + "," + width + "," + (int) (height * 0.65);
+            Map<String, AnprConfig> strategies = new LinkedHashMap<>();
+            strategies.put("full", base.with("detection.strategy", "full"));
+            strategies.put("roi", base.with("detection.strategy", "roi").with("detection.roi." + base.cameraId, laneBand));
+            strategies.put("tiled", base.with("detection.strategy", "tiled"));
+            strategies.put("tiled+roi", base.with("detection.strategy", "tiled").with("detection.roi." + base.cameraId, laneBand));
+
+            for (Map.Entry<String, AnprConfig> strategy : strategies.entrySet()) {
+                AnprConfig config = strategy.getValue();
+                CorpusEvaluator.Report report = CorpusEvaluator.evaluate(corpus, new ImageProcessor(() -> config));
+                System.out.printf("%-10s %-12s %9.1f %10.1f %8.1f%% %8.1f%%%n", height + "p", strategy.getKey(),
+                        report.passesPerFrame(), report.millisPerFrame(), report.recall(), report.accuracy());
+            }
+        }
+    }
+}
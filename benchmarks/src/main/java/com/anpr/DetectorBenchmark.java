@@ -0,0 +1,65 @@
+package com.anpr;
+
+import java.util.concurrent.TimeUnit;
+
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One detection pass (preprocessing, forward, output) of each {@link PlateDetector} backend on
+ * an FP32 model and its QDQ INT8 export. The bundled pair is the tiny fixture model; pass
+ * {@code -Dfp32=...} and {@code -Dint8=...} to time real plate model exports instead. ONNX
+ * Runtime threading and optimization follow {@code detector.*} in {@code config.properties},
+ * or {@code -Danpr.config=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class DetectorBenchmark {
+
+    @Param({"opencv", "onnxruntime"})
+    public String engine;
+
+    @Param({"fp32", "int8"})
+    public String precision;
+
+    private PlateDetector detector;
+    private Mat tile;
+
+    @Setup
+    public void setup() {
+        String modelPath = precision.equals("fp32")
+                ? System.getProperty("fp32", Fixtures.modelPath())
+                : System.getProperty("int8", Fixtures.modelPath("tiny_plate_detector_int8.onnx"));
+        detector = ImageProcessor.createDetector(ConfigLoader.current()
+                .with("model.path", modelPath)
+                .with("detector.engine", engine));
+        // A tile-sized crop, so the pass is not dominated by shrinking a full frame
+        Mat frame = Fixtures.frame("frame_01.png");
+        tile = frame.submat(0, Math.min(640, frame.rows()), 0, Math.min(640, frame.cols())).clone();
+    }
+
+    @TearDown
+    public void tearDown() {
+        detector.close();
+    }
+
+    @Benchmark
+    public Mat detect() {
+        return detector.detect(tile);
+    }
+}
@@ -0,0 +1,70 @@
+package com.anpr;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Append throughput of the detection log. Every append rewrites the workbook, so the
+ * cost is reported against logs that already hold some rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ExcelLoggerBenchmark {
+
+    @Param({"0", "1000"})
+    public int existingRows;
+
+    private File logFile;
+    private int counter;
+
+    @Setup(Level.Iteration)
+    public void createLog() throws IOException {
+        logFile = File.createTempFile("bench_detection_log", ".xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook();
+             FileOutputStream fos = new FileOutputStream(logFile)) {
+            Sheet sheet = workbook.createSheet("Vehicle Logs");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Timestamp");
+            header.createCell(1).setCellValue("Plate Number");
+            for (int i = 1; i <= existingRows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("2024-01-01 00:00:00");
+                row.createCell(1).setCellValue(String.format("MH12AB%04d", i % 10000));
+            }
+            workbook.write(fos);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteLog() {
+        logFile.delete();
+    }
+
+    @Benchmark
+    public void logBasicDetection() {
+        ExcelLogger.logBasicDetection(logFile.getPath(), String.format("KA05MN%04d", counter++ % 10000));
+    }
+}
@@ -0,0 +1,98 @@
+package com.anpr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import com.google.gson.Gson;
+
+import nu.pattern.OpenCV;
+
+/**
+ * Loads the checked-in benchmark fixtures (frames, ground truth, tiny ONNX models and
+ * a recorded API response) from the classpath so the benchmarks run offline.
+ */
+final class Fixtures {
+
+    /** Ground truth for one fixture frame, as stored in {@code fixtures/frames.json}. */
+    static final class FrameTruth {
+        String file;
+        String plate;
+        int x1, y1, x2, y2;
+    }
+
+    private static final String ROOT = "fixtures/";
+
+    static {
+        OpenCV.loadLocally();
+    }
+
+    private Fixtures() {
+    }
+
+    static List<FrameTruth> frames() {
+        try (InputStreamReader reader = new InputStreamReader(open("frames.json"), StandardCharsets.UTF_8)) {
+            return Arrays.asList(new Gson().fromJson(reader, FrameTruth[].class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Mat frame(String name) {
+        Mat frame = Imgcodecs.imdecode(new MatOfByte(bytes(name)), Imgcodecs.IMREAD_COLOR);
+        if (frame.empty()) {
+            throw new IllegalStateException("Could not decode fixture frame " + name);
+        }
+        return frame;
+    }
+
+    static String text(String name) {
+        return new String(bytes(name), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * OpenCV's DNN loader wants a file path, so the bundled model is copied out of the jar.
+     */
+    static String modelPath() {
+        return modelPath("tiny_plate_detector.onnx");
+    }
+
+    /** Same as {@link #modelPath()} for another bundled model, e.g. its INT8 export. */
+    static String modelPath(String name) {
+        try (InputStream in = open(name)) {
+            Path model = Files.createTempFile(name.replace(".onnx", ""), ".onnx");
+            model.toFile().deleteOnExit();
+            Files.copy(in, model, StandardCopyOption.REPLACE_EXISTING);
+            return model.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] bytes(String name) {
+        try (InputStream in = open(name)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream open(String name) {
+        InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(ROOT + name);
+        if (in == null) {
+            throw new IllegalStateException("Missing benchmark fixture " + ROOT + name);
+        }
+        return in;
+    }
+}
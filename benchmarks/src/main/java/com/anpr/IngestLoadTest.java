@@ -0,0 +1,127 @@
+package com.anpr;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+/**
+ * Drives the frame ingest endpoint with concurrent clients posting the fixture frames as JPEGs
+ * and reports throughput, latency of accepted requests and how many were turned away (429).
+ * The server runs in-process on a free port with the tiny fixture model, so this runs offline.
+ * <p>
+ * Run with {@code java -cp benchmarks/target/benchmarks.jar com.anpr.IngestLoadTest} and
+ * optionally {@code -Dclients=N}, {@code -Dseconds=N}, {@code -Dbatch=N} (frames per request)
+ * and {@code -Dengine=tesseract|classifier}.
+ */
+public class IngestLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("clients", 16);
+        int seconds = Integer.getInteger("seconds", 20);
+        int batch = Integer.getInteger("batch", 1);
+
+        AnprConfig config = ConfigLoader.current()
+                .with("model.path", Fixtures.modelPath())
+                .with("tesseract.path", System.getProperty("tessdata", ConfigLoader.current().tesseractPath))
+                .with("ocr.engine", System.getProperty("engine", "classifier"))
+                .with("ingest.port", "0");
+        ImageProcessor processor = new ImageProcessor(() -> config);
+        processor.warmUp(3);
+
+        List<byte[]> frames = new ArrayList<>();
+        for (Fixtures.FrameTruth truth : Fixtures.frames()) {
+            Mat frame = Fixtures.frame(truth.file);
+            MatOfByte jpeg = new MatOfByte();
+            Imgcodecs.imencode(".jpg", frame, jpeg);
+            frames.add(jpeg.toArray());
+        }
+
+        try (InferenceScheduler scheduler = new InferenceScheduler(processor::processFrame, () -> config);
+             IngestServer server = new IngestServer(scheduler, config)) {
+            URI uri = URI.create("http://127.0.0.1:" + server.port() + "/frames?camera=load");
+            HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(4)).build();
+
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            List<Long> latencies = new ArrayList<>();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+            ExecutorService pool = Executors.newFixedThreadPool(clients);
+            for (int c = 0; c < clients; c++) {
+                int offset = c;
+                pool.submit(() -> {
+                    int sent = offset;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = request(uri, frames, sent++, batch);
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                accepted.incrementAndGet();
+                                synchronized (latencies) {
+                                    latencies.add((System.nanoTime() - start) / 1_000_000);
+                                }
+                            } else if (response.statusCode() == 429) {
+                                rejected.incrementAndGet();
+                                // Honour Retry-After loosely; a real client would back off for the full second
+                                Thread.sleep(20);
+                            } else {
+                                failed.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(seconds + 30L, TimeUnit.SECONDS);
+
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            System.out.printf("clients=%d batch=%d duration=%ds%n", clients, batch, seconds);
+            System.out.printf("accepted %d (%.1f frames/s), rejected 429: %d, failed: %d%n",
+                    accepted.get(), (double) accepted.get() * batch / seconds, rejected.get(), failed.get());
+            if (sorted.length > 0) {
+                System.out.printf("latency of accepted requests: p50=%d ms p99=%d ms max=%d ms%n",
+                        sorted[sorted.length / 2], sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.99) - 1)],
+                        sorted[sorted.length - 1]);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static HttpRequest request(URI uri, List<byte[]> frames, int index, int batch) {
+        if (batch <= 1) {
+            return HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "image/jpeg")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(frames.get(index % frames.size())))
+                    .build();
+        }
+        List<byte[]> parts = new ArrayList<>();
+        for (int i = 0; i < batch; i++) {
+            parts.add("--batch\r\nContent-Type: image/jpeg\r\n\r\n".getBytes());
+            parts.add(frames.get((index + i) % frames.size()));
+            parts.add("\r\n".getBytes());
+        }
+        parts.add("--batch--\r\n".getBytes());
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "multipart/mixed; boundary=batch")
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(parts))
+                .build();
+    }
+}
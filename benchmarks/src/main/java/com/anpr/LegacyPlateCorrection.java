@@ -0,0 +1,50 @@
+package com.anpr;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The OCR post-processing that {@link PlateCorrector} replaced, kept as the benchmark baseline:
+ * a fixed set of letter-to-digit swaps applied to every position, then truncation to 10.
+ */
+final class LegacyPlateCorrection {
+
+    private LegacyPlateCorrection() {
+    }
+
+    static String normalizePlate(String ocrText) {
+        if (ocrText == null) {
+            return "";
+        }
+        String cleaned = ocrText.toUpperCase().replaceAll("[^A-Z0-9]", "");
+        return ProcessResult.isValidPlate(cleaned) ? cleaned : correctPlateFormat(cleaned);
+    }
+
+    static String correctPlateFormat(String ocrText) {
+        if (ocrText == null || ocrText.isEmpty()) {
+            return "";
+        }
+
+        String text = ocrText.toUpperCase().replaceAll("[^A-Z0-9]", "");
+
+        Map<Character, Character> perCharMap = new HashMap<>();
+        perCharMap.put('O', '0');
+        perCharMap.put('I', '1');
+        perCharMap.put('S', '5');
+        perCharMap.put('B', '8');
+        perCharMap.put('G', '6');
+        perCharMap.put('Y', 'T');
+
+        StringBuilder cleaned = new StringBuilder();
+        for (char ch : text.toCharArray()) {
+            if (perCharMap.containsKey(ch)) {
+                cleaned.append(perCharMap.get(ch));
+            } else if (Character.isLetterOrDigit(ch)) {
+                cleaned.append(ch);
+            }
+        }
+
+        String cleanedStr = cleaned.toString();
+        return cleanedStr.length() > 10 ? cleanedStr.substring(0, 10) : cleanedStr;
+    }
+}
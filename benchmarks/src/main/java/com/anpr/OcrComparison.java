@@ -0,0 +1,91 @@
+package com.anpr;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import net.sourceforge.tess4j.Tesseract;
+import nu.pattern.OpenCV;
+
+/**
+ * Exact-match accuracy and time per plate of each OCR engine on the ground-truth crops of a
+ * synthetic corpus, so detection errors do not blur the comparison. Not a JMH benchmark:
+ * accuracy needs every crop.
+ * <p>
+ * Run with {@code java -cp benchmarks/target/benchmarks.jar com.anpr.OcrComparison}
+ * and optionally {@code -Dtessdata=...} and {@code -Dframes=N}. Engines whose native
+ * library is missing are reported as unavailable.
+ */
+public class OcrComparison {
+
+    // Crops read before timing starts
+    private static final int WARMUP_CROPS = 10;
+
+    public static void main(String[] args) throws IOException {
+        OpenCV.loadLocally();
+        int frames = Integer.getInteger("frames", 200);
+        AnprConfig config = ConfigLoader.current();
+
+        File corpus = Files.createTempDirectory("ocr_corpus").toFile();
+        List<PlateCorpusGenerator.Sample> samples = new PlateCorpusGenerator(33L, config).generate(corpus, frames);
+
+        Tesseract tesseract = new Tesseract();
+        tesseract.setDatapath(System.getProperty("tessdata", config.tesseractPath));
+        TesseractOcr tesseractOcr = new TesseractOcr(tesseract);
+        CharacterClassifierOcr classifier = new CharacterClassifierOcr(config);
+
+        Map<String, PlateOcr> engines = new LinkedHashMap<>();
+        engines.put("classifier", classifier);
+        engines.put("tesseract", tesseractOcr);
+        engines.put("classifier+tesseract", new FallbackPlateOcr(classifier, tesseractOcr,
+                config.getFloat("ocr.fallbackConfidence", 0.1f)));
+
+        System.out.printf("%-22s %10s %9s %11s%n", "engine", "ms/plate", "exact", "wrong valid");
+        for (Map.Entry<String, PlateOcr> engine : engines.entrySet()) {
+            try {
+                run(engine.getKey(), engine.getValue(), corpus, samples);
+            } catch (LinkageError e) {
+                System.out.printf("%-22s unavailable (%s)%n", engine.getKey(), e.getMessage().lines().findFirst().orElse(""));
+            }
+        }
+    }
+
+    private static void run(String name, PlateOcr ocr, File corpus, List<PlateCorpusGenerator.Sample> samples) {
+        long timedNanos = 0;
+        int timed = 0;
+        int exact = 0;
+        int wrongValid = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            PlateCorpusGenerator.Sample sample = samples.get(i);
+            Mat frame = Imgcodecs.imread(new File(corpus, sample.file).getPath());
+            Mat gray = new Mat();
+            Imgproc.cvtColor(frame.submat(new Rect(sample.x1, sample.y1, sample.x2 - sample.x1, sample.y2 - sample.y1)),
+                    gray, Imgproc.COLOR_BGR2GRAY);
+
+            long start = System.nanoTime();
+            String text = DetectionProcessor.normalizePlate(ocr.recognize(gray));
+            if (i >= WARMUP_CROPS) {
+                timedNanos += System.nanoTime() - start;
+                timed++;
+            }
+
+            if (text.equals(sample.plate)) {
+                exact++;
+            } else if (ProcessResult.isValidPlate(text)) {
+                wrongValid++;
+            }
+            gray.release();
+            frame.release();
+        }
+        System.out.printf("%-22s %10.2f %8.1f%% %11d%n", name, timedNanos / 1e6 / Math.max(1, timed),
+                100.0 * exact / samples.size(), wrongValid);
+    }
+}
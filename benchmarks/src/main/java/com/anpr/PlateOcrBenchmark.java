@@ -0,0 +1,69 @@
+package com.anpr;
+
+import java.util.concurrent.TimeUnit;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.tess4j.Tesseract;
+
+/**
+ * OCR of one ground-truth plate crop per fixture frame, per engine. The tesseract engine
+ * needs a local Tesseract install ({@code -Dtessdata=/path/to/tessdata}); the classifier
+ * runs anywhere.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class PlateOcrBenchmark {
+
+    @Param({"classifier", "tesseract"})
+    public String engine;
+
+    @Param({"frame_01.png", "frame_02.png", "frame_03.png"})
+    public String fixture;
+
+    private PlateOcr ocr;
+    private Mat grayPlate;
+
+    @Setup
+    public void setup() {
+        AnprConfig config = ConfigLoader.current();
+        if (engine.equals("classifier")) {
+            ocr = new CharacterClassifierOcr(config);
+        } else {
+            Tesseract tesseract = new Tesseract();
+            tesseract.setDatapath(System.getProperty("tessdata", config.tesseractPath));
+            ocr = new TesseractOcr(tesseract);
+        }
+
+        Fixtures.FrameTruth truth = Fixtures.frames().stream()
+                .filter(f -> f.file.equals(fixture))
+                .findFirst()
+                .orElseThrow();
+        Mat frame = Fixtures.frame(fixture);
+        grayPlate = new Mat();
+        Imgproc.cvtColor(frame.submat(new Rect(truth.x1, truth.y1, truth.x2 - truth.x1, truth.y2 - truth.y1)),
+                grayPlate, Imgproc.COLOR_BGR2GRAY);
+    }
+
+    @Benchmark
+    public PlateOcr.Result recognize() {
+        return ocr.recognize(grayPlate);
+    }
+}
@@ -0,0 +1,71 @@
+package com.anpr;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OCR post-processing and MoRTH validation, run on every crop that reaches Tesseract:
+ * the {@link PlateCorrector} lattice against the swap table it replaced, on plain text and
+ * on a read carrying Tesseract's per-symbol alternatives.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class PlateTextBenchmark {
+
+    // Typical Tesseract outputs: clean, spaced, BH series, misread digits/letters, "IND" noise and garbage
+    @Param({"MH12AB1234", "MH 12 AB 1234", "22BH4567AA", "MH12A8I234", "INDKA05MS5678", "M4I2A8I23A."})
+    public String rawText;
+
+    private ProcessResult result;
+    private char[][] choices;
+    private float[][] scores;
+
+    @Setup
+    public void setup() {
+        result = new ProcessResult(0, 0, 100, 30, PlateCorrector.correct(rawText));
+        // Every symbol unsure between itself and one runner-up, as lstm_choice_mode reports
+        String symbols = rawText.replaceAll("[^A-Za-z0-9]", "");
+        choices = new char[symbols.length()][];
+        scores = new float[symbols.length()][];
+        for (int i = 0; i < symbols.length(); i++) {
+            char c = symbols.charAt(i);
+            choices[i] = new char[] {c, Character.isDigit(c) ? 'Q' : '7'};
+            scores[i] = new float[] {0.8f, 0.15f};
+        }
+    }
+
+    @Benchmark
+    public String legacyCorrection() {
+        return LegacyPlateCorrection.normalizePlate(rawText);
+    }
+
+    @Benchmark
+    public String lattice() {
+        return PlateCorrector.correct(rawText);
+    }
+
+    @Benchmark
+    public String latticeWithChoices() {
+        return PlateCorrector.correct(rawText, choices, scores);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return result.isValid();
+    }
+}
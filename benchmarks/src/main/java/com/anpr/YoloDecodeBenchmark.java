@@ -0,0 +1,61 @@
+package com.anpr;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * YOLO output decoding and a forward pass of the bundled tiny model. The tiny model has
+ * the same input and output layout as the plate model, so decoding cost is comparable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class YoloDecodeBenchmark {
+
+    @Param({"0.25", "0.5"})
+    public float confidenceThreshold;
+
+    private Net net;
+    private Mat blob;
+    private Mat output;
+
+    @Setup
+    public void setup() {
+        net = Dnn.readNetFromONNX(Fixtures.modelPath());
+        Mat frame = Fixtures.frame("frame_01.png");
+        blob = Dnn.blobFromImage(frame, 1 / 255.0, new Size(640, 640), new Scalar(0), true, false);
+        net.setInput(blob);
+        output = net.forward();
+    }
+
+    @Benchmark
+    public List<Mat> decode() {
+        return ImageProcessor.decodeDetections(output, confidenceThreshold);
+    }
+
+    @Benchmark
+    public Mat forward() {
+        net.setInput(blob);
+        return net.forward();
+    }
+}
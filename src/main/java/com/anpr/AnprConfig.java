@@ -0,0 +1,140 @@
+package com.anpr;
+
+import java.util.Properties;
+
+/**
+ * Immutable, typed snapshot of the configuration. Values are parsed once when the snapshot
+ * is built, so hot paths read plain fields instead of parsing properties per call.
+ * A new snapshot replaces the old one when the override file changes (see {@link ConfigLoader}).
+ */
+public final class AnprConfig {
+
+    private final Properties properties;
+
+    // Camera
+    public final String cameraUrl;
+    public final String cameraId;
+
+    // Models
+    public final String modelPath;
+    public final String tesseractPath;
+
+    // Detection thresholds
+    public final float confidenceThreshold;
+    public final float minAspectRatio;
+    public final float maxAspectRatio;
+    public final float nmsThreshold;
+
+    // Detection strategy: "full" squeezes the frame to the model input, "roi" runs the model on
+    // the camera's configured regions, "tiled" on overlapping tiles of those regions (or the frame)
+    public final String detectionStrategy;
+    public final int tileSize;
+    public final float tileOverlap;
+    public final boolean batchTiles;
+    public final float motionMinFraction;
+    public final int fullScanInterval;
+
+    // OCR cache (0 entries disables it)
+    public final int ocrCacheSize;
+    public final long ocrCacheTtlMillis;
+    public final long ocrCacheMaxGapMillis;
+    public final int ocrCacheMaxDistance;
+
+    // Crop quality gate (0 disables a check); a matching crop this many times sharper is read again
+    public final int qualityMinHeight;
+    public final float qualityMinSharpness;
+    public final float qualityMinContrast;
+    public final float qualityMaxClippedFraction;
+    public final float qualityRereadSharpnessRatio;
+
+    // Live frames older than this when their turn comes are dropped
+    public final long maxLiveAgeMillis;
+
+    // Output
+    public final String logFilename;
+    public final String inputFolder;
+    public final String outputFolder;
+
+    // API
+    public final String apiUsername;
+    public final String apiUrl;
+
+    AnprConfig(Properties source) {
+        this.properties = new Properties();
+        this.properties.putAll(source);
+
+        this.cameraUrl = get("camera.url");
+        this.cameraId = get("camera.id", "cam1");
+        this.modelPath = get("model.path");
+        this.tesseractPath = get("tesseract.path");
+        this.confidenceThreshold = getFloat("detection.confidenceThreshold", 0.5f);
+        this.minAspectRatio = getFloat("detection.minAspectRatio", 1.5f);
+        this.maxAspectRatio = getFloat("detection.maxAspectRatio", 5.5f);
+        this.nmsThreshold = getFloat("detection.nmsThreshold", 0.45f);
+        this.detectionStrategy = get("detection.strategy", "full").toLowerCase();
+        if (!detectionStrategy.equals("full") && !detectionStrategy.equals("roi") && !detectionStrategy.equals("tiled")) {
+            throw new IllegalArgumentException("detection.strategy must be full, roi or tiled: " + detectionStrategy);
+        }
+        this.tileSize = getInt("detection.tileSize", 640);
+        this.tileOverlap = getFloat("detection.tileOverlap", 0.2f);
+        this.batchTiles = getBoolean("detection.batchTiles", false);
+        this.motionMinFraction = getFloat("detection.motionMinFraction", 0.01f);
+        this.fullScanInterval = getInt("detection.fullScanInterval", 30);
+        this.ocrCacheSize = getInt("ocr.cache.size", 64);
+        this.ocrCacheTtlMillis = getInt("ocr.cache.ttlMillis", 5000);
+        this.ocrCacheMaxGapMillis = getInt("ocr.cache.maxGapMillis", 1000);
+        this.ocrCacheMaxDistance = getInt("ocr.cache.maxDistance", 16);
+        this.qualityMinHeight = getInt("quality.minHeight", 12);
+        this.qualityMinSharpness = getFloat("quality.minSharpness", 20f);
+        this.qualityMinContrast = getFloat("quality.minContrast", 15f);
+        this.qualityMaxClippedFraction = getFloat("quality.maxClippedFraction", 0.9f);
+        this.qualityRereadSharpnessRatio = getFloat("quality.rereadSharpnessRatio", 2f);
+        this.maxLiveAgeMillis = getInt("inference.maxLiveAgeMillis", 500);
+        this.logFilename = get("log.filename", "detection_log.xlsx");
+        this.inputFolder = get("output.input_folder", "input");
+        this.outputFolder = get("output.output_folder", "output");
+        this.apiUsername = get("api.username");
+        this.apiUrl = get("api.url");
+    }
+
+    /**
+     * Returns a copy of this snapshot with one key replaced; used by tools that sweep settings.
+     */
+    AnprConfig with(String key, String value) {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        copy.setProperty(key, value);
+        return new AnprConfig(copy);
+    }
+
+    /**
+     * Region of interest list for a camera, as configured under {@code detection.roi.<cameraId>}.
+     */
+    public String roiSpec(String camera) {
+        return get("detection.roi." + camera);
+    }
+
+    public String get(String key) {
+        return properties.getProperty(key);
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    public float getFloat(String key, float defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null && !value.isBlank() ? Float.parseFloat(value.trim()) : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null && !value.isBlank() ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null && !value.isBlank() ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+}
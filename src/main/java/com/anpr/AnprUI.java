@@ -7,13 +7,18 @@ import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
 import java.io.File;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -25,10 +30,7 @@ import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 
 import org.opencv.core.Mat;
-import org.opencv.core.Point;
-import org.opencv.core.Scalar;
 import org.opencv.imgcodecs.Imgcodecs;
-import org.opencv.imgproc.Imgproc;
 import org.opencv.videoio.VideoCapture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,23 +46,66 @@ public class AnprUI extends JFrame {
     private final JLabel statusLabel;
 
     private VideoCapture videoCapture;
+    // Set instead of videoCapture for HTTP MJPEG cameras (camera.client=mjpeg)
+    private volatile MjpegClient mjpegClient;
+    // currentFrame is the preview, decoded at 1/previewReduction of the camera resolution
+    private volatile int previewReduction = 1;
     private volatile Mat currentFrame;
+    // When the camera loop received currentFrame; guarded by frameLock
+    private long currentFrameMillis;
     private volatile boolean isCameraActive = false;
     private Thread videoThread;
 
-    private final ImageProcessor imageProcessor;
+    // Null until the model and OCR are loaded and warmed up; capture and live mode stay disabled until then
+    private volatile ImageProcessor imageProcessor;
+    // Orders captures ahead of live frames in front of the processor; created with it
+    private volatile InferenceScheduler scheduler;
+    // Paces live mode and picks the detail level the processor runs at
+    private final LoadGovernor loadGovernor = new LoadGovernor(ConfigLoader::current);
+    // Optional endpoint for frames pushed by other devices (ingest.enabled)
+    private volatile IngestServer ingestServer;
+    private final EvidenceWriter evidenceWriter;
+    private DetectionStore detectionStore;
+    // Per-lane, per-state and unique-vehicle rollups (analytics.enabled)
+    private TrafficAnalytics trafficAnalytics;
+    // Background vehicle lookups for new plates (enrich.enabled)
+    private final EnrichmentQueue enrichmentQueue;
+    private final String cameraId;
     private final Set<String> processedPlates = ConcurrentHashMap.newKeySet();
     private volatile List<ProcessResult> latestResults;
     private final ExecutorService executorService = Executors.newCachedThreadPool();
     private final Object frameLock = new Object();
+    private final AtomicBoolean firstFrameReported = new AtomicBoolean();
+    // Live loop only: skips MJPEG frames already processed or without motion
+    private final MotionGate liveMotionGate = new MotionGate();
+    private long liveSequence;
+    // Live loop only: arrival time of the last VideoCapture frame it took
+    private long liveFrameMillis;
 
     public AnprUI() {
-        // 1. Initialize Core Components
-        this.imageProcessor = new ImageProcessor();
-
+        // 1. Initialize Core Components (the processor is loaded in the background, see initializeProcessor)
         // Ensure output directories exist
-        new File(ConfigLoader.getProperty("output.input_folder")).mkdirs();
-        new File(ConfigLoader.getProperty("output.output_folder")).mkdirs();
+        AnprConfig config = ConfigLoader.current();
+        new File(config.inputFolder).mkdirs();
+        new File(config.outputFolder).mkdirs();
+        this.evidenceWriter = new EvidenceWriter(config);
+        this.cameraId = config.cameraId;
+        try {
+            this.detectionStore = new DetectionStore(config);
+        } catch (IOException e) {
+            logger.error("Could not open detection store; sightings will not be recorded.", e);
+        }
+        if (config.getBoolean("analytics.enabled", true)) {
+            try {
+                this.trafficAnalytics = new TrafficAnalytics();
+            } catch (IOException e) {
+                logger.error("Could not open traffic analytics; rollups will not be kept.", e);
+            }
+        }
+        this.enrichmentQueue = config.getBoolean("enrich.enabled", true) ? new EnrichmentQueue(config) : null;
+        if (enrichmentQueue != null) {
+            enrichmentQueue.addListener(this::onEnriched);
+        }
 
         // 2. Setup UI Components
         setTitle("Indian ANPR System");
@@ -75,10 +120,12 @@ public class AnprUI extends JFrame {
         
         captureButton = new JButton("Capture & Process");
         captureButton.addActionListener(e -> onCapture());
+        captureButton.setEnabled(false);
         buttonPanel.add(captureButton);
 
         liveModeButton = new JToggleButton("Live Mode");
         liveModeButton.addActionListener(e -> toggleLiveMode());
+        liveModeButton.setEnabled(false);
         buttonPanel.add(liveModeButton);
 
         resetButton = new JButton("Reset Session");
@@ -91,7 +138,7 @@ public class AnprUI extends JFrame {
 
         add(buttonPanel, BorderLayout.SOUTH);
 
-        statusLabel = new JLabel("Ready. Please connect to the camera.");
+        statusLabel = new JLabel("Loading detection model...");
         statusLabel.setBorder(BorderFactory.createLoweredBevelBorder());
         add(statusLabel, BorderLayout.NORTH);
 
@@ -103,8 +150,57 @@ public class AnprUI extends JFrame {
             stopCamera();
         }));
 
-        // 4. Start Camera
+        // 4. Connect the camera while the model and OCR load in parallel
         startCamera();
+        initializeProcessor();
+    }
+
+    private void initializeProcessor() {
+        long start = System.nanoTime();
+        ImageProcessor.createAsync(loadGovernor::config, executorService)
+                .thenApplyAsync(processor -> {
+                    processor.warmUp(ConfigLoader.current().getInt("startup.warmupFrames", 3));
+                    return processor;
+                }, executorService)
+                .whenComplete((processor, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        logger.error("Failed to initialize the image processor", cause);
+                        statusLabel.setText("Error: " + cause.getMessage());
+                        return;
+                    }
+                    imageProcessor = processor;
+                    scheduler = new InferenceScheduler(processor::processFrame, ConfigLoader::current);
+                    startIngest();
+                    captureButton.setEnabled(true);
+                    liveModeButton.setEnabled(true);
+                    logger.info("Processor ready in {} ms ({} ms after JVM start).",
+                            (System.nanoTime() - start) / 1_000_000, millisSinceJvmStart());
+                    statusLabel.setText(isCameraConnected()
+                            ? "Camera connected. Ready to capture." : "Model loaded. Waiting for camera...");
+                }));
+    }
+
+    private void startIngest() {
+        AnprConfig config = ConfigLoader.current();
+        if (!config.getBoolean("ingest.enabled", false)) {
+            return;
+        }
+        try {
+            ingestServer = new IngestServer(scheduler, config);
+        } catch (IOException e) {
+            logger.error("Could not start the frame ingest endpoint", e);
+        }
+    }
+
+    private void reportFirstFrame() {
+        if (firstFrameReported.compareAndSet(false, true)) {
+            logger.info("First frame processed {} ms after JVM start.", millisSinceJvmStart());
+        }
+    }
+
+    private static long millisSinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
     }
 
     private void startCamera() {
@@ -131,11 +227,73 @@ public class AnprUI extends JFrame {
             videoCapture.release();
         }
         executorService.shutdown();
+        if (ingestServer != null) {
+            ingestServer.close();
+        }
+        if (scheduler != null) {
+            scheduler.close();
+        }
+        evidenceWriter.close();
+        if (enrichmentQueue != null) {
+            enrichmentQueue.close();
+        }
+        if (detectionStore != null) {
+            try {
+                detectionStore.close();
+            } catch (IOException e) {
+                logger.error("Error closing detection store", e);
+            }
+        }
+        if (trafficAnalytics != null) {
+            try {
+                trafficAnalytics.close();
+            } catch (IOException e) {
+                logger.error("Error closing traffic analytics", e);
+            }
+        }
+    }
+
+    // Every valid sighting goes to the history store and the rollups, including repeats of known plates
+    private void recordSighting(SharedFrame frame, ProcessResult result) {
+        if (detectionStore != null) {
+            detectionStore.append(frame.captureTimeMillis(), frame.cameraId(), result.text);
+        }
+        if (trafficAnalytics != null) {
+            trafficAnalytics.record(frame.captureTimeMillis(), frame.cameraId(), result.text);
+        }
+    }
+
+    // New plates are looked up in the background; the details land on the result when ready
+    private void enrich(ProcessResult result) {
+        if (enrichmentQueue != null) {
+            enrichmentQueue.submit(result);
+        }
+    }
+
+    private void onEnriched(ProcessResult result) {
+        VehicleDetails details = result.getVehicleDetails();
+        String message = details != null
+                ? String.format("%s: %s, %s", result.text, details.getOwnerName(), details.getVehicleModel())
+                : result.text + ": no registration details found";
+        logger.info("Enriched {}", message);
+        SwingUtilities.invokeLater(() -> statusLabel.setText("Enriched " + message
+                + String.format(" (queue %d, lag %d s)", enrichmentQueue.depth(), enrichmentQueue.lagMillis() / 1000)));
+    }
+
+    private boolean isCameraConnected() {
+        MjpegClient client = mjpegClient;
+        return client != null ? client.isConnected() : videoCapture != null && videoCapture.isOpened();
     }
 
     private void videoLoop() {
-        String cameraUrl = ConfigLoader.getProperty("camera.url");
+        AnprConfig config = ConfigLoader.current();
+        String cameraUrl = config.cameraUrl;
+        if (cameraUrl.startsWith("http://") && config.get("camera.client", "mjpeg").equals("mjpeg")) {
+            streamLoop(cameraUrl, config);
+            return;
+        }
         Mat frame = new Mat();
+        long backoff = config.getInt("camera.reconnectMinMillis", 100);
 
         while (isCameraActive) {
             // 1. Connect if not connected
@@ -148,15 +306,18 @@ public class AnprUI extends JFrame {
 
                 if (videoCapture.isOpened()) {
                     logger.info("Camera connected successfully.");
-                    SwingUtilities.invokeLater(() -> statusLabel.setText("Camera connected. Ready to capture."));
+                    backoff = config.getInt("camera.reconnectMinMillis", 100);
+                    SwingUtilities.invokeLater(() -> statusLabel.setText(imageProcessor != null
+                            ? "Camera connected. Ready to capture." : "Camera connected. Loading detection model..."));
                 } else {
-                    logger.error("Failed to connect. Retrying in 3 seconds...");
+                    logger.error("Failed to connect. Retrying in {} ms...", backoff);
                     try {
-                        Thread.sleep(3000);
+                        Thread.sleep(backoff);
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                         break;
                     }
+                    backoff = Math.min(backoff * 2, config.getInt("camera.reconnectMaxMillis", 5000));
                     continue;
                 }
             }
@@ -166,6 +327,8 @@ public class AnprUI extends JFrame {
                 synchronized (frameLock) {
                     if (currentFrame != null) currentFrame.release();
                     currentFrame = frame.clone();
+                    currentFrameMillis = System.currentTimeMillis();
+                    frameLock.notifyAll();
                 }
                 videoPanel.repaint();
             } else {
@@ -178,6 +341,107 @@ public class AnprUI extends JFrame {
         SwingUtilities.invokeLater(() -> statusLabel.setText("Camera disconnected."));
     }
 
+    // MJPEG cameras: only the preview is decoded per frame, at reduced scale; capture and live
+    // mode decode the full frame when they take one (see grabFrame)
+    private void streamLoop(String cameraUrl, AnprConfig config) {
+        previewReduction = config.getInt("camera.previewReduction", 2);
+        int previewFlags = MjpegClient.reducedColor(previewReduction);
+        SwingUtilities.invokeLater(() -> statusLabel.setText("Connecting to " + cameraUrl + "..."));
+        MjpegClient client = new MjpegClient(cameraUrl, config);
+        mjpegClient = client;
+        long shown = 0;
+        boolean connected = false;
+        try {
+            while (isCameraActive) {
+                long sequence = client.awaitFrame(shown, 500);
+                if (client.isConnected() != connected) {
+                    connected = client.isConnected();
+                    String status = connected
+                            ? (imageProcessor != null ? "Camera connected. Ready to capture." : "Camera connected. Loading detection model...")
+                            : "Reconnecting to " + cameraUrl + "...";
+                    SwingUtilities.invokeLater(() -> statusLabel.setText(status));
+                }
+                if (sequence == shown) {
+                    continue;
+                }
+                shown = sequence;
+                // Only this loop holds the preview, so its Mat is kept without the reference count
+                SharedFrame preview = client.decodeFrame(previewFlags, cameraId);
+                if (preview == null) {
+                    continue;
+                }
+                synchronized (frameLock) {
+                    if (currentFrame != null) currentFrame.release();
+                    currentFrame = preview.mat();
+                    currentFrameMillis = preview.captureTimeMillis();
+                }
+                videoPanel.repaint();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            client.close();
+        }
+        SwingUtilities.invokeLater(() -> statusLabel.setText("Camera disconnected."));
+    }
+
+    // Full-resolution copy of the newest frame, or null if none has arrived
+    private SharedFrame grabFrame() {
+        FrameEvents.Capture capture = FrameEvents.Capture.start(cameraId);
+        SharedFrame frame = takeFrame();
+        capture.commit(frame);
+        return frame;
+    }
+
+    // Stamped with the time the camera loop received the frame, not the time it was taken
+    private SharedFrame takeFrame() {
+        MjpegClient client = mjpegClient;
+        if (client != null) {
+            return client.decodeFrame(Imgcodecs.IMREAD_COLOR, cameraId);
+        }
+        synchronized (frameLock) {
+            if (currentFrame != null && !currentFrame.empty()) {
+                return new SharedFrame(currentFrame.clone(), cameraId, currentFrameMillis);
+            }
+        }
+        return null;
+    }
+
+    // Blocks until the camera delivers a frame the live loop has not taken yet, or the timeout passes
+    private void awaitNewFrame(long timeoutMillis) throws InterruptedException {
+        MjpegClient client = mjpegClient;
+        if (client != null) {
+            client.awaitFrame(liveSequence, timeoutMillis);
+            return;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (frameLock) {
+            while (currentFrameMillis == liveFrameMillis) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return;
+                }
+                frameLock.wait(left);
+            }
+        }
+    }
+
+    // MJPEG cameras: a live pass is worth a full decode only for a new frame with motion,
+    // checked on a 1/8 grayscale decode
+    private boolean worthProcessing(MjpegClient client) {
+        long sequence = client.sequence();
+        if (sequence == liveSequence) {
+            return false;
+        }
+        liveSequence = sequence;
+        Mat small = client.decode(Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8);
+        if (small == null) {
+            return false;
+        }
+        AnprConfig config = ConfigLoader.current();
+        return liveMotionGate.moved(small, config.motionMinFraction, config.fullScanInterval);
+    }
+
     private void onCapture() {
         captureButton.setEnabled(false);
         statusLabel.setText("Processing...");
@@ -185,13 +449,9 @@ public class AnprUI extends JFrame {
 
         // Run processing in a background thread to keep the UI responsive
         executorService.submit(() -> {
-            Mat frameToProcess = null;
+            SharedFrame frameToProcess = null;
             try {
-                synchronized (frameLock) {
-                    if (currentFrame != null && !currentFrame.empty()) {
-                        frameToProcess = currentFrame.clone();
-                    }
-                }
+                frameToProcess = grabFrame();
 
                 if (frameToProcess == null) {
                     SwingUtilities.invokeLater(() -> {
@@ -201,48 +461,43 @@ public class AnprUI extends JFrame {
                     return;
                 }
 
-            // 1. Save the original captured image
-            String timestamp = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSS").format(LocalDateTime.now());
-            String inputFilename = ConfigLoader.getProperty("output.input_folder") + "/capture_" + timestamp + ".png";
-            Imgcodecs.imwrite(inputFilename, frameToProcess);
-            logger.debug("Saved input frame to {}", inputFilename);
-
-            // 2. Process the image to find plates
-            List<ProcessResult> results = imageProcessor.processImage(frameToProcess);
-            logger.info("Image processing complete. Found {} potential plates.", results.size());
+            // 1. Process the image to find plates, ahead of any queued live frames
+            long start = System.nanoTime();
+            List<ProcessResult> results = scheduler.submit(frameToProcess, InferenceScheduler.Priority.CAPTURE).join();
+            long latencyMillis = (System.nanoTime() - start) / 1_000_000;
+            reportFirstFrame();
+            logger.info("Image processing complete in {} ms. Found {} potential plates.", latencyMillis, results.size());
 
-            // 3. Log to Excel and draw on the output image
+            // 2. Log to Excel
+            FrameEvents.enter(frameToProcess);
             int validPlatesFound = 0;
             for (ProcessResult result : results) {
                 if (result.isValid()) {
+                    recordSighting(frameToProcess, result);
                     // Check if the plate has already been processed in this session
                     if (processedPlates.add(result.text)) {
                         // New plate: Log it to Excel
-                        ExcelLogger.logBasicDetection(ConfigLoader.getProperty("log.filename"), result.text);
+                        ExcelLogger.logBasicDetection(ConfigLoader.current().logFilename, result.text);
+                        enrich(result);
                         logger.info("New valid plate found: {}", result.text);
                         validPlatesFound++;
                     } else {
                         logger.info("Duplicate plate detected (already processed): {}", result.text);
                     }
-                    Imgproc.rectangle(frameToProcess, new Point(result.x1, result.y1), new Point(result.x2, result.y2), new Scalar(0, 255, 0), 2);
-                    Imgproc.putText(frameToProcess, result.text, new Point(result.x1, result.y1 - 10), Imgproc.FONT_HERSHEY_SIMPLEX, 0.9, new Scalar(0, 255, 0), 2);
                 } else {
-                    // Invalid OCR: Just draw the box in RED for feedback
                     logger.debug("Invalid OCR result ignored: {}", result.text);
-                    Imgproc.rectangle(frameToProcess, new Point(result.x1, result.y1), new Point(result.x2, result.y2), new Scalar(0, 0, 255), 1);
                 }
             }
 
-            // 4. Save the annotated output image
-            String outputFilename = ConfigLoader.getProperty("output.output_folder") + "/processed_" + timestamp + ".png";
-            Imgcodecs.imwrite(outputFilename, frameToProcess);
-            logger.info("Saved annotated output to {}", outputFilename);
+            // 3. Hand the frame to the evidence writer (annotated JPEG + plate crops)
+            Path outputPath = evidenceWriter.submit(frameToProcess.retain(), "capture", results);
 
             final int finalValidPlatesFound = validPlatesFound;
 
-            // 5. Update UI on the Event Dispatch Thread
+            // 4. Update UI on the Event Dispatch Thread
             SwingUtilities.invokeLater(() -> {
-                String status = String.format("Processing complete. Detected %d plates, validated %d. Saved to %s", results.size(), finalValidPlatesFound, outputFilename);
+                String status = String.format("Processing complete in %d ms. Detected %d plates, validated %d. %s", latencyMillis, results.size(), finalValidPlatesFound,
+                        outputPath != null ? "Saving to " + outputPath : "Evidence not saved (writer busy).");
                 statusLabel.setText(status);
                 captureButton.setEnabled(true);
             });
@@ -254,33 +509,34 @@ public class AnprUI extends JFrame {
                 });
             }
             finally {
+                FrameEvents.exit();
                 if (frameToProcess != null) frameToProcess.release();
             }
         });
     }
 
     private void onEnrich() {
-        captureButton.setEnabled(false);
         enrichButton.setEnabled(false);
         statusLabel.setText("Starting batch enrichment...");
 
         executorService.submit(() -> {
             try {
-                String inputFile = ConfigLoader.getProperty("log.filename");
+                String inputFile = ConfigLoader.current().logFilename;
                 String outputFile = "enriched_" + inputFile;
+                Consumer<String> status = msg -> SwingUtilities.invokeLater(() -> statusLabel.setText(msg));
 
-                BatchDataEnricher.enrichData(inputFile, outputFile, (msg) -> {
-                    SwingUtilities.invokeLater(() -> statusLabel.setText(msg));
-                });
+                if (enrichmentQueue != null) {
+                    // Plates the queue already looked up are exported without calling the API again
+                    BatchDataEnricher.enrichData(inputFile, outputFile, enrichmentQueue::fetch, 0, status);
+                } else {
+                    BatchDataEnricher.enrichData(inputFile, outputFile, status);
+                }
 
             } catch (Exception e) {
                 logger.error("Error during enrichment", e);
                 SwingUtilities.invokeLater(() -> statusLabel.setText("Error: " + e.getMessage()));
             } finally {
-                SwingUtilities.invokeLater(() -> {
-                    captureButton.setEnabled(true);
-                    enrichButton.setEnabled(true);
-                });
+                SwingUtilities.invokeLater(() -> enrichButton.setEnabled(true));
             }
         });
     }
@@ -294,12 +550,11 @@ public class AnprUI extends JFrame {
 
     private void toggleLiveMode() {
         if (liveModeButton.isSelected()) {
-            captureButton.setEnabled(false);
+            // Capture stays available: the scheduler runs it ahead of live frames
             enrichButton.setEnabled(false);
             statusLabel.setText("Live Mode Active - Scanning...");
             new Thread(this::liveProcessingLoop).start();
         } else {
-            captureButton.setEnabled(true);
             enrichButton.setEnabled(true);
             statusLabel.setText("Live Mode Stopped.");
             latestResults = null;
@@ -310,41 +565,50 @@ public class AnprUI extends JFrame {
     private void liveProcessingLoop() {
         while (liveModeButton.isSelected() && isCameraActive) {
             try {
-                Mat frameCopy = null;
-                synchronized (frameLock) {
-                    if (currentFrame != null && !currentFrame.empty()) {
-                        frameCopy = currentFrame.clone();
-                    }
-                }
+                MjpegClient client = mjpegClient;
+                SharedFrame frameCopy = client == null || worthProcessing(client) ? grabFrame() : null;
                 if (frameCopy != null) {
-                    List<ProcessResult> results = imageProcessor.processImage(frameCopy);
-                    this.latestResults = results;
-
-                    boolean newPlate = false;
-                    for (ProcessResult result : results) {
-                        if (result.isValid() && processedPlates.add(result.text)) {
-                            ExcelLogger.logBasicDetection(ConfigLoader.getProperty("log.filename"), result.text);
-                            logger.info("Live: New plate found: {}", result.text);
-                            newPlate = true;
-
-                            // Save snapshot for the new plate
-                            String timestamp = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSS").format(LocalDateTime.now());
-                            String filename = ConfigLoader.getProperty("output.output_folder") + "/live_" + result.text + "_" + timestamp + ".png";
-                            
-                            // Draw on frameCopy for saving
-                            Imgproc.rectangle(frameCopy, new Point(result.x1, result.y1), new Point(result.x2, result.y2), new Scalar(0, 255, 0), 2);
-                            Imgproc.putText(frameCopy, result.text, new Point(result.x1, result.y1 - 10), Imgproc.FONT_HERSHEY_SIMPLEX, 0.9, new Scalar(0, 255, 0), 2);
-                            Imgcodecs.imwrite(filename, frameCopy);
+                    liveFrameMillis = frameCopy.captureTimeMillis();
+                    try {
+                        List<ProcessResult> results;
+                        try {
+                            results = scheduler.submit(frameCopy, InferenceScheduler.Priority.LIVE).join();
+                        } catch (CancellationException e) {
+                            // Went stale behind operator captures; grab a fresh frame instead
+                            continue;
                         }
-                    }
+                        loadGovernor.record(System.currentTimeMillis() - frameCopy.captureTimeMillis());
+                        reportFirstFrame();
+                        this.latestResults = results;
 
-                    if (newPlate) {
-                        SwingUtilities.invokeLater(() -> statusLabel.setText("New plate detected!"));
+                        FrameEvents.enter(frameCopy);
+                        List<ProcessResult> newPlates = new ArrayList<>();
+                        for (ProcessResult result : results) {
+                            if (result.isValid()) {
+                                recordSighting(frameCopy, result);
+                            }
+                            if (result.isValid() && processedPlates.add(result.text)) {
+                                ExcelLogger.logBasicDetection(ConfigLoader.current().logFilename, result.text);
+                                enrich(result);
+                                logger.info("Live: New plate found: {}", result.text);
+                                newPlates.add(result);
+                            }
+                        }
+
+                        if (!newPlates.isEmpty()) {
+                            // Save a snapshot of the new plates off the processing thread
+                            evidenceWriter.submit(frameCopy.retain(), "live", newPlates);
+                            SwingUtilities.invokeLater(() -> statusLabel.setText("New plate detected!"));
+                        }
+                        videoPanel.repaint();
+                    } finally {
+                        FrameEvents.exit();
+                        frameCopy.release();
                     }
-                    videoPanel.repaint();
-                    frameCopy.release();
                 }
-                Thread.sleep(50); // Reduced sleep: Target ~20 FPS if hardware allows
+                Thread.sleep(loadGovernor.intervalMillis());
+                // Never process the same frame twice; the camera sets the upper pace
+                awaitNewFrame(500);
             } catch (Exception e) {
                 logger.error("Error in live loop", e);
             }
@@ -361,8 +625,9 @@ public class AnprUI extends JFrame {
                     g.drawImage(matToBufferedImage(currentFrame), 0, 0, this.getWidth(), this.getHeight(), null);
                 
                     if (latestResults != null && !latestResults.isEmpty()) {
-                        double scaleX = (double) getWidth() / currentFrame.cols();
-                        double scaleY = (double) getHeight() / currentFrame.rows();
+                        // Results are in camera pixels; the preview may be decoded at reduced scale
+                        double scaleX = (double) getWidth() / (currentFrame.cols() * previewReduction);
+                        double scaleY = (double) getHeight() / (currentFrame.rows() * previewReduction);
                         
                         for (ProcessResult result : latestResults) {
                             int x = (int) (result.x1 * scaleX);
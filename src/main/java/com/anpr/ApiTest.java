@@ -13,12 +13,16 @@ public class ApiTest {
         System.out.println("Fetching details for: " + testPlate);
 
         // 1. Test API Call
-        VehicleDetails details = VehicleApiClient.fetchVehicleDetails(testPlate);
-
-        if (details != null) {
-            System.out.println("API Success! Found: " + details.getOwnerName() + ", " + details.getVehicleModel());
-        } else {
-            System.err.println("API Failed. Check logs/console for errors.");
+        VehicleDetails details = null;
+        try {
+            details = new VehicleApiClient().fetchVehicleDetails(testPlate);
+            if (details != null) {
+                System.out.println("API Success! Found: " + details.getOwnerName() + ", " + details.getVehicleModel());
+            } else {
+                System.out.println("API Success, but the plate is not registered.");
+            }
+        } catch (java.io.UncheckedIOException e) {
+            System.err.println("API Failed: " + e.getCause().getMessage() + ". Check logs/console for errors.");
         }
 
         // 2. Test Excel Logging
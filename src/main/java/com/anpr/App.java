@@ -1,23 +1,175 @@
 package com.anpr;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import javax.swing.SwingUtilities;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import nu.pattern.OpenCV;
 
 /**
  * Main entry point for the ANPR application.
  * This class is responsible for loading the native OpenCV library
  * and launching the Swing user interface.
+ * <p>
+ * With {@code --warmup-only} it runs headless: loads the model and OCR, runs the warm-up
+ * pass and exits. This is the training run used to build the AppCDS archive
+ * ({@code mvn package -Pappcds}).
+ * <p>
+ * With {@code --ingest} it runs headless as a frame ingest service (see {@link IngestServer})
+ * until the process is stopped.
+ * <p>
+ * With {@code --coordinator} or {@code --worker <id>} it runs headless as one node of a
+ * cluster that spreads {@code cluster.cameras} over several processes (see
+ * {@link ClusterCoordinator}). Start one coordinator and any number of workers.
  */
 public class App {
 
+    private static final Logger logger = LoggerFactory.getLogger(App.class);
+
     public static void main(String[] args) {
         // Load the native OpenCV library
         OpenCV.loadLocally();
+
+        if (args.length > 0 && "--warmup-only".equals(args[0])) {
+            warmUpOnly();
+            return;
+        }
+        // Continuous, bounded frame trace; see FrameEvents for dumping it
+        if (ConfigLoader.current().getBoolean("trace.enabled", true)) {
+            FrameEvents.startRecording(ConfigLoader.current());
+        }
+        if (args.length > 0 && "--ingest".equals(args[0])) {
+            ConfigLoader.startWatching();
+            ingestOnly();
+            return;
+        }
+        if (args.length > 0 && "--coordinator".equals(args[0])) {
+            coordinatorOnly();
+            return;
+        }
+        if (args.length > 0 && "--worker".equals(args[0])) {
+            ConfigLoader.startWatching();
+            workerOnly(args.length > 1 ? args[1] : "worker-" + ProcessHandle.current().pid());
+            return;
+        }
+
+        // Pick up edits to the external config override without a restart
+        ConfigLoader.startWatching();
         // Launch the UI on the Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
             AnprUI ui = new AnprUI();
             ui.setVisible(true);
         });
     }
+
+    private static void warmUpOnly() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ImageProcessor processor = ImageProcessor.createAsync(ConfigLoader::current, executor).join();
+            processor.warmUp(ConfigLoader.current().getInt("startup.warmupFrames", 3));
+            long uptime = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.out.println("Processor ready " + uptime + " ms after JVM start.");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static ImageProcessor loadProcessor() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ImageProcessor processor = ImageProcessor.createAsync(ConfigLoader::current, executor).join();
+            processor.warmUp(ConfigLoader.current().getInt("startup.warmupFrames", 3));
+            return processor;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void ingestOnly() {
+        ImageProcessor processor = loadProcessor();
+
+        InferenceScheduler scheduler = new InferenceScheduler(processor::processFrame, ConfigLoader::current);
+        try {
+            IngestServer server = new IngestServer(scheduler, ConfigLoader.current());
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                scheduler.close();
+            }));
+        } catch (IOException e) {
+            scheduler.close();
+            System.err.println("Could not start the ingest endpoint: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void coordinatorOnly() {
+        AnprConfig config = ConfigLoader.current();
+        SocketTransport transport = new SocketTransport(config);
+        try {
+            ClusterCoordinator coordinator = new ClusterCoordinator(config, transport);
+            TrafficAnalytics analytics = config.getBoolean("analytics.enabled", true) ? new TrafficAnalytics() : null;
+            // New sightings from every worker end up in this node's log
+            coordinator.addListener(sighting -> {
+                if (sighting.watchlisted) {
+                    logger.warn("Watchlisted plate {} seen at {}.", sighting.plate, sighting.camera);
+                }
+                ExcelLogger.logBasicDetection(ConfigLoader.current().logFilename, sighting.plate);
+            });
+            // The rollups count every read per camera and apply their own visit gap; sightings are
+            // deduplicated by plate alone over the much longer cluster.dedupWindowMillis
+            if (analytics != null) {
+                coordinator.addResultListener(result -> analytics.record(result.timestamp, result.camera, result.plate));
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                coordinator.close();
+                if (analytics != null) {
+                    try {
+                        analytics.close();
+                    } catch (IOException e) {
+                        System.err.println("Could not save traffic analytics: " + e.getMessage());
+                    }
+                }
+            }));
+        } catch (IOException e) {
+            transport.close();
+            System.err.println("Could not start the cluster coordinator: " + e.getMessage());
+            System.exit(1);
+        }
+        awaitShutdown();
+    }
+
+    private static void workerOnly(String workerId) {
+        ImageProcessor processor = loadProcessor();
+        InferenceScheduler scheduler = new InferenceScheduler(processor::processFrame, ConfigLoader::current);
+        SocketTransport transport = new SocketTransport(ConfigLoader.current());
+        try {
+            ClusterWorker worker = new ClusterWorker(workerId, ConfigLoader.current(), transport, scheduler);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                worker.close();
+                transport.close();
+                scheduler.close();
+            }));
+        } catch (IOException e) {
+            scheduler.close();
+            System.err.println("Could not reach the cluster coordinator: " + e.getMessage());
+            System.exit(1);
+        }
+        awaitShutdown();
+    }
+
+    // Cluster threads are daemons; keep the JVM up until it is stopped
+    private static void awaitShutdown() {
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -1,91 +1,387 @@
 package com.anpr;
 
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 
+import com.google.gson.Gson;
+
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Reads the basic detection log (Plate numbers only), fetches details from the API,
  * and saves the enriched data to a new Excel file.
+ * <p>
+ * Both workbooks are streamed, so memory does not grow with the log. The log is left in place:
+ * a sidecar file next to the output ({@code <output>.checkpoint}) records how many log rows are
+ * already enriched, and journals every lookup of the run in progress. A run that is stopped or
+ * crashes resumes from the journal without calling the API again for plates it already has,
+ * and the next run only looks at rows logged since. Each plate is looked up once per run.
+ * A lookup that fails is not journaled: the run finishes the other plates, leaves the output
+ * and checkpoint as they were, and the next run tries the failed plates again.
  */
 public class BatchDataEnricher {
 
     private static final Logger logger = LoggerFactory.getLogger(BatchDataEnricher.class);
+    private static final Gson gson = new Gson();
+    private static final String SHEET_NAME = "Vehicle Logs";
+    private static final String[] HEADERS = {"Timestamp", "Plate Number", "Owner Name", "Vehicle Model", "Registration Date"};
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     public static void main(String[] args) {
-        String inputFile = ConfigLoader.getProperty("log.filename");
+        String inputFile = ConfigLoader.current().logFilename;
         String outputFile = "enriched_" + inputFile;
         enrichData(inputFile, outputFile, msg -> logger.info(msg));
     }
 
     public static void enrichData(String inputFile, String outputFile, Consumer<String> statusCallback) {
-        if (statusCallback != null) statusCallback.accept("Starting batch enrichment...");
+        VehicleApiClient apiClient = new VehicleApiClient();
+        enrichData(inputFile, outputFile, apiClient::fetchVehicleDetails,
+                ConfigLoader.current().getInt("enrich.requestIntervalMillis", 500), statusCallback);
+    }
+
+    /**
+     * @param lookup          Fetches the details of one plate, or returns null when not found;
+     *                        throws when the lookup itself fails.
+     * @param intervalMillis  Pause between two lookups, to be nice to the API.
+     */
+    static void enrichData(String inputFile, String outputFile, Function<String, VehicleDetails> lookup,
+                           long intervalMillis, Consumer<String> statusCallback) {
+        Consumer<String> status = statusCallback != null ? statusCallback : msg -> { };
+        status.accept("Starting batch enrichment...");
         logger.info("Starting batch enrichment. Reading: {}, Writing: {}", inputFile, outputFile);
 
-        List<String> plates = readPlatesFromExcel(inputFile);
-        
-        if (plates.isEmpty()) {
-            if (statusCallback != null) statusCallback.accept("No plates found in " + inputFile);
+        File input = new File(inputFile);
+        if (!input.exists()) {
+            logger.error("Input file does not exist: {}", inputFile);
+            status.accept("No plates found in " + inputFile);
             return;
         }
 
-        if (statusCallback != null) statusCallback.accept("Found " + plates.size() + " plates. Processing...");
+        try {
+            Checkpoint checkpoint = Checkpoint.load(Path.of(outputFile + ".checkpoint"), Path.of(outputFile));
+
+            // 1. Plates logged since the last completed run, once each, in first-seen order
+            Set<String> plates = new LinkedHashSet<>();
+            int[] logRows = {0};
+            readRows(input, (rowNum, cells) -> {
+                if (rowNum == 0) {
+                    return; // Skip header
+                }
+                logRows[0] = rowNum;
+                String plate = cells.size() > 1 ? cells.get(1) : null; // Column 1 is Plate Number
+                if (rowNum > checkpoint.logRows && plate != null && !plate.isBlank()) {
+                    plates.add(plate);
+                }
+            });
+            if (plates.isEmpty()) {
+                status.accept("No new plates found in " + inputFile);
+                return;
+            }
+            int resumed = 0;
+            for (String plate : checkpoint.entries.keySet()) {
+                resumed += plates.contains(plate) ? 1 : 0;
+            }
+            String found = "Found " + plates.size() + " new plates. Processing...";
+            status.accept(resumed > 0 ? found + " Resuming after " + resumed + " already fetched." : found);
+
+            // 2. Look up the rest, journaling each result before moving on
+            int done = 0;
+            int failed = 0;
+            for (String plate : plates) {
+                done++;
+                if (checkpoint.entries.containsKey(plate)) {
+                    continue;
+                }
+                String statusMsg = String.format("[%d/%d] Fetching details for: %s", done, plates.size(), plate);
+                logger.info(statusMsg);
+                status.accept(statusMsg);
+
+                try {
+                    checkpoint.record(new Entry(LocalDateTime.now().format(TIMESTAMP), plate, lookup.apply(plate)));
+                } catch (CancellationException e) {
+                    Thread.currentThread().interrupt(); // Paused below like any other interrupt
+                } catch (RuntimeException e) {
+                    failed++;
+                    logger.warn("Lookup failed for {} ({}); it is retried on the next run.", plate, e.toString());
+                }
 
-        for (int i = 0; i < plates.size(); i++) {
-            String plate = plates.get(i);
-            String statusMsg = String.format("[%d/%d] Fetching details for: %s", i + 1, plates.size(), plate);
-            logger.info(statusMsg);
-            if (statusCallback != null) statusCallback.accept(statusMsg);
-            
-            VehicleDetails details = VehicleApiClient.fetchVehicleDetails(plate);
-            ExcelLogger.logVehicleData(outputFile, plate, details);
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.info("Batch enrichment interrupted after {} of {} plates; the next run resumes from here.", done, plates.size());
+                    status.accept("Enrichment paused at " + done + "/" + plates.size() + ". Run again to resume.");
+                    return;
+                }
+            }
 
-            // Optional: Sleep briefly to be nice to the API
-            try { Thread.sleep(500); } catch (InterruptedException e) {}
+            if (failed > 0) {
+                logger.warn("Batch enrichment: {} of {} lookups failed; the output is written once they succeed.", failed, plates.size());
+                status.accept(failed + " lookups failed. Run again to retry them; the rest are kept.");
+                return;
+            }
+
+            // 3. One streaming pass: earlier runs' rows, then this run's, swapped in atomically
+            int outputRows = writeOutput(Path.of(outputFile), checkpoint, plates);
+            checkpoint.complete(logRows[0], outputRows);
+
+            logger.info("Batch processing complete. {} plates enriched, {} log rows covered.", plates.size(), logRows[0]);
+            status.accept("Batch processing complete. Saved to " + outputFile + ".");
+        } catch (IOException e) {
+            logger.error("Batch enrichment failed; progress so far is kept for the next run.", e);
+            status.accept("Error during enrichment: " + e.getMessage());
         }
+    }
 
-        logger.info("Batch processing complete.");
-        
-        // Reset the input file to avoid re-processing the same data
-        File file = new File(inputFile);
-        if (file.exists() && file.delete()) {
-            logger.info("Input file {} has been reset.", inputFile);
-            if (statusCallback != null) statusCallback.accept("Batch processing complete. Saved to " + outputFile + ". Log reset.");
-        } else {
-            logger.warn("Failed to reset input file {}. Please ensure it is not open.", inputFile);
-            if (statusCallback != null) statusCallback.accept("Batch processing complete. Saved to " + outputFile + ". Warning: Log not reset.");
+    private static int writeOutput(Path output, Checkpoint checkpoint, Set<String> plates) throws IOException {
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        int[] rows = {0};
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100)) {
+            Sheet sheet = workbook.createSheet(SHEET_NAME);
+            createHeaderRow(workbook, sheet);
+
+            // Copy exactly the rows the checkpoint says earlier runs wrote, so a run that died
+            // after replacing the output but before updating the checkpoint does not duplicate
+            if (checkpoint.outputRows > 0 && Files.exists(output)) {
+                readRows(output.toFile(), (rowNum, cells) -> {
+                    if (rowNum > 0 && rows[0] < checkpoint.outputRows) {
+                        writeRow(sheet, ++rows[0], cells);
+                    }
+                });
+            }
+            for (String plate : plates) {
+                writeRow(sheet, ++rows[0], checkpoint.entries.get(plate).cells());
+            }
+
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                workbook.write(out);
+            }
         }
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows[0];
     }
 
-    private static List<String> readPlatesFromExcel(String filePath) {
-        List<String> plates = new ArrayList<>();
-        File file = new File(filePath);
+    private static void createHeaderRow(SXSSFWorkbook workbook, Sheet sheet) {
+        CellStyle headerStyle = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setBold(true);
+        headerStyle.setFont(font);
+        headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
 
-        if (!file.exists()) {
-            logger.error("Input file does not exist: {}", filePath);
-            return plates;
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            header.createCell(i).setCellValue(HEADERS[i]);
+            header.getCell(i).setCellStyle(headerStyle);
+            // Streaming sheets cannot auto-size, so use widths that fit typical values
+            sheet.setColumnWidth(i, (i == 2 ? 28 : 20) * 256);
         }
+    }
 
-        try (FileInputStream fis = new FileInputStream(file);
-             Workbook workbook = new XSSFWorkbook(fis)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            for (Row row : sheet) {
-                if (row.getRowNum() == 0) continue; // Skip header
-                Cell cell = row.getCell(1); // Column 1 is Plate Number
-                if (cell != null) {
-                    plates.add(cell.getStringCellValue());
-                }
+    private static void writeRow(Sheet sheet, int rowNum, List<String> cells) {
+        Row row = sheet.createRow(rowNum);
+        for (int i = 0; i < cells.size(); i++) {
+            if (cells.get(i) != null) {
+                row.createCell(i).setCellValue(cells.get(i));
             }
+        }
+    }
+
+    /**
+     * Streams the first sheet of a workbook row by row with POI's SAX reader.
+     * Cells are indexed by column; missing cells are null.
+     */
+    private static void readRows(File file, BiConsumer<Integer, List<String>> rowHandler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), strings,
+                        new RowCollector(rowHandler), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
-            logger.error("Error reading Excel file", e);
+            throw new IOException("Could not read " + file, e);
+        }
+    }
+
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final BiConsumer<Integer, List<String>> rowHandler;
+        private final List<String> cells = new ArrayList<>();
+
+        RowCollector(BiConsumer<Integer, List<String>> rowHandler) {
+            this.rowHandler = rowHandler;
         }
-        return plates;
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            rowHandler.accept(rowNum, cells);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = new CellReference(cellReference).getCol();
+            while (cells.size() <= column) {
+                cells.add(null);
+            }
+            cells.set(column, formattedValue);
+        }
+    }
+
+    /** One journaled lookup: when it was made, the plate and the details (null when not found). */
+    private static class Entry {
+        final String timestamp;
+        final String plate;
+        final VehicleDetails details;
+
+        Entry(String timestamp, String plate, VehicleDetails details) {
+            this.timestamp = timestamp;
+            this.plate = plate;
+            this.details = details;
+        }
+
+        List<String> cells() {
+            if (details == null) {
+                return List.of(timestamp, plate, "Not Found", "Not Found", "Not Found");
+            }
+            return List.of(timestamp, plate, orNa(details.getOwnerName()), orNa(details.getVehicleModel()),
+                    orNa(details.getRegistrationDate()));
+        }
+
+        private static String orNa(String value) {
+            return value != null ? value : "N/A";
+        }
+    }
+
+    /**
+     * The sidecar file: a header line with the log rows and output rows covered by completed
+     * runs, then one JSON line per plate looked up by the run in progress. Lines are appended
+     * and flushed as lookups finish; a torn last line from a crash is ignored on load.
+     */
+    private static class Checkpoint {
+        final Path path;
+        int logRows;
+        int outputRows;
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+
+        private Checkpoint(Path path) {
+            this.path = path;
+        }
+
+        static Checkpoint load(Path path, Path output) throws IOException {
+            Checkpoint checkpoint = new Checkpoint(path);
+            if (!Files.exists(path)) {
+                // Output from before checkpoints were kept is carried over as it is
+                if (Files.exists(output)) {
+                    int[] rows = {0};
+                    readRows(output.toFile(), (rowNum, cells) -> rows[0] = rowNum);
+                    checkpoint.outputRows = rows[0];
+                }
+                checkpoint.rewrite();
+                return checkpoint;
+            }
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            for (int i = 0; i < lines.size(); i++) {
+                try {
+                    if (i == 0) {
+                        Header header = gson.fromJson(lines.get(i), Header.class);
+                        checkpoint.logRows = header.logRows;
+                        checkpoint.outputRows = header.outputRows;
+                    } else {
+                        Entry entry = gson.fromJson(lines.get(i), Entry.class);
+                        if (entry != null && entry.plate != null) {
+                            checkpoint.entries.put(entry.plate, entry);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Ignoring unreadable line {} of {}.", i + 1, path);
+                }
+            }
+            logger.info("Loaded enrichment checkpoint {}: {} log rows done, {} lookups in progress.",
+                    path, checkpoint.logRows, checkpoint.entries.size());
+            return checkpoint;
+        }
+
+        void record(Entry entry) throws IOException {
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(gson.toJson(entry));
+                writer.newLine();
+            }
+            entries.put(entry.plate, entry);
+        }
+
+        /** Marks the run finished: everything up to these rows is in the output; the journal is cleared. */
+        void complete(int logRows, int outputRows) throws IOException {
+            this.logRows = logRows;
+            this.outputRows = outputRows;
+            entries.clear();
+            rewrite();
+        }
+
+        private void rewrite() throws IOException {
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Header header = new Header();
+            header.logRows = logRows;
+            header.outputRows = outputRows;
+            Files.writeString(temp, gson.toJson(header) + System.lineSeparator(), StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static class Header {
+        int logRows;
+        int outputRows;
     }
 }
@@ -0,0 +1,527 @@
+package com.anpr;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.objdetect.HOGDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads plates without Tesseract: characters are segmented with contours on the binarized
+ * plate and each glyph is classified by nearest neighbour over HOG features.
+ * <p>
+ * Templates are rendered with Java2D from the fonts in {@code ocr.classifier.fonts}, with
+ * small rotations, shears, widths and stroke weights. Labelled crops from real plates can
+ * be added under {@code ocr.classifier.samplesFolder}, one sub-folder per character
+ * (e.g. {@code samples/A/*.png}).
+ * <p>
+ * Glyphs are decoded against the plate layouts, so each position only competes among the
+ * characters its slot allows. Confidence is the weakest position's margin between the best
+ * character and the runner-up, so a plate with one ambiguous glyph scores low and can be
+ * sent to Tesseract.
+ */
+public class CharacterClassifierOcr implements PlateOcr {
+
+    private static final Logger logger = LoggerFactory.getLogger(CharacterClassifierOcr.class);
+
+    static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final String DIGITS = "0123456789";
+
+    // Glyphs are fitted into GLYPH_WIDTH x GLYPH_HEIGHT (keeping their aspect) before HOG
+    private static final int GLYPH_WIDTH = 16;
+    private static final int GLYPH_HEIGHT = 32;
+    // Plates are scaled to this height before binarizing so small crops segment cleanly
+    private static final int PLATE_HEIGHT = 64;
+    private static final int MIN_CHARACTERS = 4;
+    private static final int MAX_CHARACTERS = 12;
+
+    private final HOGDescriptor hog = new HOGDescriptor(new Size(GLYPH_WIDTH, GLYPH_HEIGHT), new Size(8, 8), new Size(4, 4), new Size(4, 4), 9);
+    private final int featureLength;
+    private float[] templates;
+    // Index into ALPHABET of each template
+    private byte[] labels;
+    private int templateCount;
+    // templateCount x featureLength, matched in one native call per plate
+    private final Mat templateMat;
+    private final float[] templateNorms;
+
+    public CharacterClassifierOcr(AnprConfig config) {
+        long start = System.nanoTime();
+        this.featureLength = (int) hog.getDescriptorSize();
+        this.templates = new float[featureLength * 1024];
+        this.labels = new byte[1024];
+
+        Random random = new Random(33);
+        int variants = config.getInt("ocr.classifier.variants", 8);
+        for (String name : config.get("ocr.classifier.fonts", "SansSerif,Monospaced,Dialog").split(",")) {
+            Font font = PlateCorpusGenerator.loadFont(name.trim());
+            for (int style : new int[] {Font.PLAIN, Font.BOLD}) {
+                Font styled = font.deriveFont(style, 72f);
+                for (char c : ALPHABET.toCharArray()) {
+                    for (int v = 0; v < variants; v++) {
+                        addTemplate(c, renderGlyph(styled, c, v == 0 ? null : random));
+                    }
+                }
+            }
+        }
+
+        String samplesFolder = config.get("ocr.classifier.samplesFolder", "");
+        if (!samplesFolder.isEmpty()) {
+            loadSamples(new File(samplesFolder));
+        }
+        templateMat = new Mat(templateCount, featureLength, CvType.CV_32F);
+        templateMat.put(0, 0, Arrays.copyOf(templates, templateCount * featureLength));
+        templateNorms = new float[templateCount];
+        for (int t = 0; t < templateCount; t++) {
+            for (int i = t * featureLength; i < (t + 1) * featureLength; i++) {
+                templateNorms[t] += templates[i] * templates[i];
+            }
+        }
+        templates = null;
+        logger.info("Character classifier built from {} templates in {} ms.", templateCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public Result recognize(Mat grayPlate) {
+        // Loose crops include background around the plate, which can pull a global Otsu level
+        // off and flip the majority colour. Try the whole-crop level and the level of the
+        // central band (mostly plate), each in both polarities, and keep the first attempt
+        // that yields a plate-length read, else the first plausible one
+        Mat scaled = scaleToPlateHeight(grayPlate);
+        Mat binary = null;
+        List<Rect> glyphs = null;
+        for (int attempt = 0; attempt < 4; attempt++) {
+            Mat candidate = binarize(scaled, attempt < 2, attempt % 2 == 1);
+            List<Rect> found = segment(candidate);
+            if (plausible(found) && (glyphs == null || (!plateLength(glyphs) && plateLength(found)))) {
+                if (binary != null) {
+                    binary.release();
+                }
+                binary = candidate;
+                glyphs = found;
+            } else {
+                candidate.release();
+            }
+            if (glyphs != null && plateLength(glyphs)) {
+                break;
+            }
+        }
+        scaled.release();
+        if (glyphs == null) {
+            return Result.EMPTY;
+        }
+
+        // Distance from every glyph to the nearest template of each character
+        Mat queries = new Mat(glyphs.size(), featureLength, CvType.CV_32F);
+        for (int i = 0; i < glyphs.size(); i++) {
+            Mat crop = binary.submat(glyphs.get(i));
+            queries.put(i, 0, features(crop));
+            crop.release();
+        }
+        binary.release();
+        float[][] distances = classDistances(queries);
+        queries.release();
+
+        Result constrained = decodeLayout(distances);
+        return constrained != null ? constrained : decodeFree(distances);
+    }
+
+    // Squared L2 distance from each query row to the nearest template of each character,
+    // expanded as |q|^2 + |t|^2 - 2 q.t so the dot products are a single matrix product
+    private float[][] classDistances(Mat queries) {
+        Mat products = new Mat();
+        Core.gemm(queries, templateMat, -2, new Mat(), 0, products, Core.GEMM_2_T);
+        float[] flat = new float[queries.rows() * templateCount];
+        products.get(0, 0, flat);
+        products.release();
+        float[] query = new float[featureLength];
+
+        float[][] distances = new float[queries.rows()][ALPHABET.length()];
+        for (int q = 0; q < distances.length; q++) {
+            Arrays.fill(distances[q], Float.MAX_VALUE);
+            queries.get(q, 0, query);
+            float queryNorm = 0;
+            for (float value : query) {
+                queryNorm += value * value;
+            }
+            int offset = q * templateCount;
+            for (int t = 0; t < templateCount; t++) {
+                int label = labels[t];
+                float distance = Math.max(0f, queryNorm + templateNorms[t] + flat[offset + t]);
+                distances[q][label] = Math.min(distances[q][label], distance);
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Picks the cheapest reading that fits a plate layout for this many characters:
+     * state code, 1-2 district digits, 1-2 series letters and 4 digits, or the BH layout.
+     * Letter/digit confusions (O/0, S/5, B/8) are settled by the slot a glyph sits in.
+     * @return null when no layout has this many characters.
+     */
+    private static Result decodeLayout(float[][] distances) {
+        int n = distances.length;
+        String bestText = null;
+        float bestCost = Float.MAX_VALUE;
+        float bestConfidence = 0f;
+
+        // Standard: the state code is chosen as a pair from the valid codes
+        String state = null;
+        float stateCost = Float.MAX_VALUE;
+        float secondStateCost = Float.MAX_VALUE;
+        for (String code : ProcessResult.STATE_CODES) {
+            float cost = distances[0][ALPHABET.indexOf(code.charAt(0))] + distances[1][ALPHABET.indexOf(code.charAt(1))];
+            if (cost < stateCost) {
+                secondStateCost = stateCost;
+                stateCost = cost;
+                state = code;
+            } else if (cost < secondStateCost) {
+                secondStateCost = cost;
+            }
+        }
+        for (int district = 1; district <= 2; district++) {
+            int series = n - 2 - district - 4;
+            if (series < 1 || series > 2) {
+                continue;
+            }
+            StringBuilder text = new StringBuilder(state);
+            float cost = stateCost;
+            float confidence = margin(stateCost, secondStateCost);
+            int pos = 2;
+            for (int i = 0; i < n - 2; i++, pos++) {
+                boolean letter = i >= district && i < district + series;
+                String allowed = letter ? ProcessResult.SERIES_LETTERS : DIGITS;
+                int[] choice = bestOf(distances[pos], allowed);
+                text.append(ALPHABET.charAt(choice[0]));
+                cost += distances[pos][choice[0]];
+                confidence = Math.min(confidence, margin(distances[pos][choice[0]], distances[pos][choice[1]]));
+            }
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestText = text.toString();
+                bestConfidence = confidence;
+            }
+        }
+
+        // BH series: 2 digits, "BH", 4 digits, 1-2 series letters
+        if (n == 9 || n == 10) {
+            StringBuilder text = new StringBuilder(n);
+            float cost = distances[2][ALPHABET.indexOf('B')] + distances[3][ALPHABET.indexOf('H')];
+            float confidence = 1f;
+            for (int pos = 0; pos < n; pos++) {
+                if (pos == 2 || pos == 3) {
+                    text.append(pos == 2 ? 'B' : 'H');
+                    continue;
+                }
+                String allowed = pos < 8 ? DIGITS : ProcessResult.SERIES_LETTERS;
+                int[] choice = bestOf(distances[pos], allowed);
+                text.append(ALPHABET.charAt(choice[0]));
+                cost += distances[pos][choice[0]];
+                confidence = Math.min(confidence, margin(distances[pos][choice[0]], distances[pos][choice[1]]));
+            }
+            if (cost < bestCost) {
+                bestText = text.toString();
+                bestConfidence = confidence;
+            }
+        }
+        return bestText == null ? null : new Result(bestText, bestConfidence);
+    }
+
+    // Unconstrained read for glyph counts no layout allows; usually ends up with the fallback
+    private static Result decodeFree(float[][] distances) {
+        StringBuilder text = new StringBuilder(distances.length);
+        float confidence = 1f;
+        for (float[] glyph : distances) {
+            int[] choice = bestOf(glyph, ALPHABET);
+            text.append(ALPHABET.charAt(choice[0]));
+            confidence = Math.min(confidence, margin(glyph[choice[0]], glyph[choice[1]]));
+        }
+        return new Result(text.toString(), confidence);
+    }
+
+    // Indices (into ALPHABET) of the closest and second-closest allowed characters
+    private static int[] bestOf(float[] distances, String allowed) {
+        int best = -1;
+        int second = -1;
+        for (int i = 0; i < allowed.length(); i++) {
+            int index = ALPHABET.indexOf(allowed.charAt(i));
+            if (best < 0 || distances[index] < distances[best]) {
+                second = best;
+                best = index;
+            } else if (second < 0 || distances[index] < distances[second]) {
+                second = index;
+            }
+        }
+        return new int[] {best, second};
+    }
+
+    // 0 when the runner-up is as close as the winner, towards 1 as the winner stands out
+    private static float margin(float best, float runnerUp) {
+        return Math.max(0f, 1f - (float) Math.sqrt(best / Math.max(runnerUp, 1e-6f)));
+    }
+
+    private static boolean plausible(List<Rect> glyphs) {
+        return glyphs.size() >= MIN_CHARACTERS && glyphs.size() <= MAX_CHARACTERS;
+    }
+
+    // Lengths of the standard (8-10) and BH (9-10) layouts
+    private static boolean plateLength(List<Rect> glyphs) {
+        return glyphs.size() >= 8 && glyphs.size() <= 10;
+    }
+
+    /**
+     * Scales the plate to a fixed height and binarizes it with white characters on black.
+     */
+    private static Mat scaleToPlateHeight(Mat grayPlate) {
+        Mat scaled = new Mat();
+        double scale = (double) PLATE_HEIGHT / grayPlate.rows();
+        Imgproc.resize(grayPlate, scaled, new Size(Math.max(1, Math.round(grayPlate.cols() * scale)), PLATE_HEIGHT), 0, 0,
+                scale > 1 ? Imgproc.INTER_CUBIC : Imgproc.INTER_AREA);
+        return scaled;
+    }
+
+    /**
+     * Binarizes with white characters on black, assuming the background is the majority
+     * colour unless {@code invert} is set.
+     * @param wholeCrop Take the Otsu level from the whole crop rather than its central band.
+     */
+    private static Mat binarize(Mat scaled, boolean wholeCrop, boolean invert) {
+        Mat levelSource = wholeCrop ? scaled
+                : scaled.submat(new Rect(scaled.cols() / 5, PLATE_HEIGHT / 4, Math.max(1, scaled.cols() * 3 / 5), PLATE_HEIGHT / 2));
+        Mat binary = new Mat();
+        double level = Imgproc.threshold(levelSource, binary, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+        if (!wholeCrop) {
+            levelSource.release();
+            Imgproc.threshold(scaled, binary, level, 255, Imgproc.THRESH_BINARY);
+        }
+
+        boolean lightBackground = Core.countNonZero(binary) > binary.total() / 2;
+        if (lightBackground != invert) {
+            Core.bitwise_not(binary, binary);
+        }
+        return binary;
+    }
+
+    /**
+     * Finds character boxes, ordered top row first and left to right within a row.
+     */
+    static List<Rect> segment(Mat binary) {
+        // Two-level hierarchy: outer boundaries of blobs, then their holes. Characters inside a
+        // painted plate border are outer boundaries too, unlike with RETR_EXTERNAL
+        List<MatOfPoint> contours = new ArrayList<>();
+        Mat hierarchy = new Mat();
+        Imgproc.findContours(binary.clone(), contours, hierarchy, Imgproc.RETR_CCOMP, Imgproc.CHAIN_APPROX_SIMPLE);
+
+        // 1. Keep character-shaped blobs; the border itself is taller than any character
+        List<Rect> boxes = new ArrayList<>();
+        for (int i = 0; i < contours.size(); i++) {
+            MatOfPoint contour = contours.get(i);
+            boolean hole = hierarchy.get(0, i)[3] >= 0;
+            Rect box = Imgproc.boundingRect(contour);
+            contour.release();
+            if (!hole && box.height >= binary.rows() * 0.25 && box.height <= binary.rows() * 0.95
+                    && box.width >= box.height * 0.08 && box.width <= box.height * 2.5) {
+                boxes.add(box);
+            }
+        }
+        hierarchy.release();
+        if (boxes.isEmpty()) {
+            return boxes;
+        }
+
+        // 2. Drop blobs far from the typical character height (emblems, "IND", screws)
+        int medianHeight = median(boxes, true);
+        boxes.removeIf(b -> b.height < medianHeight * 0.7 || b.height > medianHeight * 1.3);
+
+        // 3. Split blobs of touching characters
+        int medianWidth = median(boxes, false);
+        List<Rect> glyphs = new ArrayList<>();
+        for (Rect box : boxes) {
+            int parts = box.width > medianWidth * 1.6 ? (int) Math.round((double) box.width / medianWidth) : 1;
+            for (int p = 0; p < parts; p++) {
+                int x = box.x + box.width * p / parts;
+                int nextX = box.x + box.width * (p + 1) / parts;
+                glyphs.add(new Rect(x, box.y, nextX - x, box.height));
+            }
+        }
+
+        // 4. Two-row plates: split at the largest vertical gap between character centres
+        glyphs.sort(Comparator.comparingDouble(r -> r.y + r.height / 2.0));
+        int splitAt = glyphs.size();
+        double largestGap = medianHeight * 0.6;
+        for (int i = 1; i < glyphs.size(); i++) {
+            double gap = (glyphs.get(i).y + glyphs.get(i).height / 2.0) - (glyphs.get(i - 1).y + glyphs.get(i - 1).height / 2.0);
+            if (gap > largestGap) {
+                largestGap = gap;
+                splitAt = i;
+            }
+        }
+        List<Rect> ordered = new ArrayList<>(glyphs.size());
+        List<Rect> top = new ArrayList<>(glyphs.subList(0, splitAt));
+        List<Rect> bottom = new ArrayList<>(glyphs.subList(splitAt, glyphs.size()));
+        top.sort(Comparator.comparingInt(r -> r.x));
+        bottom.sort(Comparator.comparingInt(r -> r.x));
+        ordered.addAll(top);
+        ordered.addAll(bottom);
+        return ordered;
+    }
+
+    private static int median(List<Rect> boxes, boolean heights) {
+        int[] values = new int[boxes.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = heights ? boxes.get(i).height : boxes.get(i).width;
+        }
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    /**
+     * HOG features of a white-on-black glyph, fitted into the glyph window without distortion.
+     */
+    private float[] features(Mat glyph) {
+        double scale = Math.min((GLYPH_HEIGHT - 4.0) / glyph.rows(), (GLYPH_WIDTH - 2.0) / glyph.cols());
+        int width = Math.max(1, (int) Math.round(glyph.cols() * scale));
+        int height = Math.max(1, (int) Math.round(glyph.rows() * scale));
+        Mat resized = new Mat();
+        Imgproc.resize(glyph, resized, new Size(width, height), 0, 0, Imgproc.INTER_AREA);
+
+        Mat canvas = Mat.zeros(GLYPH_HEIGHT, GLYPH_WIDTH, CvType.CV_8UC1);
+        Mat target = canvas.submat(new Rect((GLYPH_WIDTH - width) / 2, (GLYPH_HEIGHT - height) / 2, width, height));
+        resized.copyTo(target);
+
+        MatOfFloat descriptor = new MatOfFloat();
+        hog.compute(canvas, descriptor);
+        float[] features = descriptor.toArray();
+        resized.release();
+        target.release();
+        canvas.release();
+        descriptor.release();
+        return features;
+    }
+
+    private void addTemplate(char label, Mat binaryGlyph) {
+        Rect bounds = boundsOf(binaryGlyph);
+        if (bounds == null) {
+            binaryGlyph.release();
+            return;
+        }
+        Mat crop = binaryGlyph.submat(bounds);
+        float[] features = features(crop);
+        crop.release();
+        binaryGlyph.release();
+
+        if (templateCount == labels.length) {
+            templates = Arrays.copyOf(templates, templates.length * 2);
+            labels = Arrays.copyOf(labels, labels.length * 2);
+        }
+        System.arraycopy(features, 0, templates, templateCount * featureLength, featureLength);
+        labels[templateCount++] = (byte) ALPHABET.indexOf(label);
+    }
+
+    private static Rect boundsOf(Mat binary) {
+        Mat points = new Mat();
+        Core.findNonZero(binary, points);
+        if (points.empty()) {
+            return null;
+        }
+        Rect bounds = Imgproc.boundingRect(points);
+        points.release();
+        return bounds;
+    }
+
+    /**
+     * Renders one white-on-black glyph; {@code random} adds a small distortion, null renders it clean.
+     */
+    private static Mat renderGlyph(Font font, char c, Random random) {
+        int size = 128;
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(Color.WHITE);
+        g.setFont(font);
+        FontMetrics metrics = g.getFontMetrics();
+
+        g.translate(size / 2.0, size / 2.0);
+        if (random != null) {
+            g.rotate(Math.toRadians((random.nextDouble() * 2 - 1) * 5));
+            g.shear((random.nextDouble() * 2 - 1) * 0.12, 0);
+            g.scale(0.75 + random.nextDouble() * 0.35, 1);
+        }
+        g.drawString(String.valueOf(c), -metrics.charWidth(c) / 2f, (metrics.getAscent() - metrics.getDescent()) / 2f);
+        g.dispose();
+
+        Mat glyph = new Mat(size, size, CvType.CV_8UC1);
+        glyph.put(0, 0, ((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+
+        Imgproc.threshold(glyph, glyph, 127, 255, Imgproc.THRESH_BINARY);
+
+        // Vary stroke weight, as plate paint and camera blur do
+        if (random != null && random.nextInt(3) != 0) {
+            Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3));
+            if (random.nextBoolean()) {
+                Imgproc.dilate(glyph, glyph, kernel);
+            } else {
+                Imgproc.erode(glyph, glyph, kernel);
+            }
+            kernel.release();
+        }
+        return glyph;
+    }
+
+    private void loadSamples(File folder) {
+        File[] classes = folder.listFiles(File::isDirectory);
+        if (classes == null) {
+            logger.warn("Classifier samples folder {} not found.", folder);
+            return;
+        }
+        int loaded = 0;
+        for (File classFolder : classes) {
+            String name = classFolder.getName().toUpperCase();
+            if (name.length() != 1 || ALPHABET.indexOf(name.charAt(0)) < 0) {
+                continue;
+            }
+            File[] files = classFolder.listFiles((dir, file) -> file.toLowerCase().matches(".*\\.(png|jpe?g|bmp)$"));
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                Mat gray = Imgcodecs.imread(file.getPath(), Imgcodecs.IMREAD_GRAYSCALE);
+                if (gray.empty()) {
+                    continue;
+                }
+                Mat binary = new Mat();
+                Imgproc.threshold(gray, binary, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+                gray.release();
+                if (Core.countNonZero(binary) > binary.total() / 2) {
+                    Core.bitwise_not(binary, binary);
+                }
+                addTemplate(name.charAt(0), binary);
+                loaded++;
+            }
+        }
+        logger.info("Loaded {} labelled character samples from {}", loaded, folder);
+    }
+}
@@ -0,0 +1,343 @@
+package com.anpr;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Spreads camera sources over worker processes and routes their plate reads. Cameras
+ * ({@code cluster.cameras}) and plates share one {@link ConsistentHashRing} of the connected
+ * workers:
+ * <ul>
+ *   <li>Each camera is read and processed by the worker that owns its id.</li>
+ *   <li>Each valid read is forwarded to the worker owning the plate, which keeps the dedup
+ *       and watchlist state for that partition and reports new sightings back here.</li>
+ * </ul>
+ * When a worker joins or leaves, every worker gets a new assignment. It hands the dedup state
+ * of plates it no longer owns to their new owners. Reads arriving until all handoffs are in
+ * are held back, so a new owner never sees a plate before that plate's history. A worker
+ * that crashes takes the state of its partition with it; those plates may be reported once
+ * more.
+ * <p>
+ * Messages to a worker are queued and written by that worker's own sender thread, in order, so
+ * a slow or stalled connection never holds up the coordinator or the other workers.
+ */
+public class ClusterCoordinator implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCoordinator.class);
+    // Reads held during a rebalance; older ones are dropped beyond this
+    private static final int MAX_HELD = 10_000;
+
+    private final ClusterTransport transport;
+    private final Map<String, String> cameras;
+    private final List<Consumer<ClusterMessage>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<ClusterMessage>> resultListeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this
+    private final ConsistentHashRing ring;
+    private final Map<String, ClusterTransport.Link> workers = new LinkedHashMap<>();
+    private final Map<ClusterTransport.Link, String> workerOf = new IdentityHashMap<>();
+    private final Map<String, Outbox> outboxes = new HashMap<>();
+    private final Set<String> awaitingHandoff = new HashSet<>();
+    private final Deque<ClusterMessage> held = new ArrayDeque<>();
+    private Map<String, List<String>> assignments = Map.of();
+    private long epoch;
+    private boolean closed;
+
+    public ClusterCoordinator(AnprConfig config, ClusterTransport transport) throws IOException {
+        this.transport = transport;
+        this.cameras = parseCameras(config.get("cluster.cameras", ""));
+        this.ring = new ConsistentHashRing(config.getInt("cluster.virtualNodes", 64));
+        if (cameras.isEmpty()) {
+            logger.warn("No cluster.cameras configured; workers will only process frames routed to them.");
+        }
+        transport.listen(new ClusterTransport.Handler() {
+            @Override
+            public void onMessage(ClusterTransport.Link link, ClusterMessage message) {
+                handle(link, message);
+            }
+
+            @Override
+            public void onClose(ClusterTransport.Link link) {
+                disconnected(link);
+            }
+        });
+    }
+
+    /**
+     * Parses {@code id=url;id=url}. Semicolons separate cameras because stream URLs may contain
+     * commas; the first {@code =} separates the id.
+     */
+    static Map<String, String> parseCameras(String spec) {
+        Map<String, String> cameras = new LinkedHashMap<>();
+        for (String entry : spec.split(";")) {
+            int split = entry.indexOf('=');
+            if (split > 0) {
+                cameras.put(entry.substring(0, split).trim(), entry.substring(split + 1).trim());
+            }
+        }
+        return cameras;
+    }
+
+    /** Called with each {@link ClusterMessage.Type#SIGHTING} reported by a plate owner. */
+    public void addListener(Consumer<ClusterMessage> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Called with each {@link ClusterMessage.Type#RESULT}, i.e. every valid read of every camera,
+     * before it is routed to the plate owner and without its dedup.
+     */
+    public void addResultListener(Consumer<ClusterMessage> listener) {
+        resultListeners.add(listener);
+    }
+
+    /** Camera ids per connected worker, as last assigned. */
+    public synchronized Map<String, List<String>> assignments() {
+        return assignments;
+    }
+
+    public synchronized List<String> workers() {
+        return new ArrayList<>(workers.keySet());
+    }
+
+    private void handle(ClusterTransport.Link link, ClusterMessage message) {
+        if (message.type == ClusterMessage.Type.SIGHTING) {
+            notify(listeners, message);
+            return;
+        }
+        if (message.type == ClusterMessage.Type.RESULT) {
+            notify(resultListeners, message);
+        }
+        synchronized (this) {
+            switch (message.type) {
+                case HELLO:
+                    join(message.worker, link);
+                    break;
+                case RESULT:
+                    if (awaitingHandoff.isEmpty()) {
+                        route(message);
+                    } else {
+                        if (held.size() >= MAX_HELD) {
+                            held.removeFirst();
+                        }
+                        held.addLast(message);
+                    }
+                    break;
+                case HANDOFF:
+                    routeState(message.lastSeen);
+                    if (message.epoch == epoch && awaitingHandoff.remove(workerOf.get(link))) {
+                        releaseHeld();
+                    }
+                    break;
+                case LEAVE:
+                    workerOf.remove(link);
+                    leave(message.worker, message.lastSeen);
+                    break;
+                default:
+                    logger.warn("Unexpected {} from worker {}", message.type, workerOf.get(link));
+            }
+        }
+    }
+
+    private synchronized void disconnected(ClusterTransport.Link link) {
+        String worker = workerOf.remove(link);
+        if (!closed && worker != null && workers.get(worker) == link) {
+            logger.warn("Cluster worker {} disconnected; its plate partition state is lost.", worker);
+            leave(worker, null);
+        }
+    }
+
+    private void join(String worker, ClusterTransport.Link link) {
+        ClusterTransport.Link previous = workers.put(worker, link);
+        if (previous != null) {
+            // Reconnected: the old link is dead even if its close has not been noticed yet
+            workerOf.remove(previous);
+        }
+        workerOf.put(link, worker);
+        Outbox stale = outboxes.put(worker, new Outbox(worker, link));
+        if (stale != null) {
+            stale.close();
+        }
+        ring.add(worker);
+        logger.info("Cluster worker {} joined.", worker);
+        rebalance();
+    }
+
+    private void leave(String worker, Map<String, Long> state) {
+        if (workers.remove(worker) == null) {
+            return;
+        }
+        outboxes.remove(worker).close();
+        ring.remove(worker);
+        awaitingHandoff.remove(worker);
+        logger.info("Cluster worker {} left.", worker);
+        rebalance();
+        // Sent after the new assignments, so the new owners already know they own these plates
+        routeState(state);
+    }
+
+    // 1. Assign cameras by the new ring, 2. tell every worker, 3. hold reads until all handoffs are in
+    private void rebalance() {
+        epoch++;
+        Map<String, Map<String, String>> perWorker = new LinkedHashMap<>();
+        for (String worker : workers.keySet()) {
+            perWorker.put(worker, new LinkedHashMap<>());
+        }
+        for (Map.Entry<String, String> camera : cameras.entrySet()) {
+            String owner = ring.nodeFor(camera.getKey());
+            if (owner != null) {
+                perWorker.get(owner).put(camera.getKey(), camera.getValue());
+            }
+        }
+
+        Map<String, List<String>> summary = new LinkedHashMap<>();
+        awaitingHandoff.clear();
+        for (Map.Entry<String, Map<String, String>> entry : perWorker.entrySet()) {
+            ClusterMessage assign = ClusterMessage.of(ClusterMessage.Type.ASSIGN, entry.getKey());
+            assign.epoch = epoch;
+            assign.members = ring.nodes();
+            assign.cameras = entry.getValue();
+            if (send(entry.getKey(), assign)) {
+                awaitingHandoff.add(entry.getKey());
+            }
+            summary.put(entry.getKey(), new ArrayList<>(entry.getValue().keySet()));
+        }
+        assignments = summary;
+        logger.info("Cluster rebalanced (epoch {}): {}", epoch, summary);
+        if (workers.isEmpty()) {
+            held.clear();
+        } else {
+            releaseHeld();
+        }
+    }
+
+    private void releaseHeld() {
+        if (!awaitingHandoff.isEmpty()) {
+            return;
+        }
+        while (!held.isEmpty()) {
+            route(held.removeFirst());
+        }
+    }
+
+    private static void notify(List<Consumer<ClusterMessage>> listeners, ClusterMessage message) {
+        for (Consumer<ClusterMessage> listener : listeners) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException e) {
+                logger.error("{} listener failed", message.type, e);
+            }
+        }
+    }
+
+    private void route(ClusterMessage result) {
+        String owner = ring.nodeFor(result.plate);
+        if (owner != null) {
+            send(owner, result);
+        }
+    }
+
+    private void routeState(Map<String, Long> state) {
+        if (state == null || state.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, Long>> byOwner = new HashMap<>();
+        for (Map.Entry<String, Long> entry : state.entrySet()) {
+            String owner = ring.nodeFor(entry.getKey());
+            if (owner != null) {
+                byOwner.computeIfAbsent(owner, k -> new HashMap<>()).put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, Long>> entry : byOwner.entrySet()) {
+            ClusterMessage handoff = ClusterMessage.of(ClusterMessage.Type.HANDOFF, entry.getKey());
+            handoff.epoch = epoch;
+            handoff.lastSeen = entry.getValue();
+            send(entry.getKey(), handoff);
+        }
+    }
+
+    // Only queues the message; the worker's sender thread writes it
+    private boolean send(String worker, ClusterMessage message) {
+        Outbox outbox = outboxes.get(worker);
+        if (outbox == null) {
+            return false;
+        }
+        outbox.add(message);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            for (Outbox outbox : outboxes.values()) {
+                outbox.close();
+            }
+            outboxes.clear();
+        }
+        transport.close();
+    }
+
+    /**
+     * One worker's outgoing messages, written in order on a thread of its own. A failed write
+     * closes the link, so its reader reports the worker as gone.
+     */
+    private static final class Outbox {
+        private final String worker;
+        private final ClusterTransport.Link link;
+        private final LinkedBlockingQueue<ClusterMessage> queue = new LinkedBlockingQueue<>();
+        private final Thread sender;
+        private volatile boolean open = true;
+
+        Outbox(String worker, ClusterTransport.Link link) {
+            this.worker = worker;
+            this.link = link;
+            this.sender = new Thread(this::drain, "cluster-send-" + worker);
+            sender.setDaemon(true);
+            sender.start();
+        }
+
+        void add(ClusterMessage message) {
+            queue.add(message);
+        }
+
+        void close() {
+            open = false;
+            sender.interrupt();
+        }
+
+        private void drain() {
+            try {
+                while (open) {
+                    ClusterMessage message = queue.take();
+                    try {
+                        link.send(message);
+                    } catch (IOException e) {
+                        if (open) {
+                            logger.warn("Could not send {} to worker {}: {}", message.type, worker, e.toString());
+                            link.close();
+                        }
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Closed: the worker left or the coordinator is shutting down
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.anpr;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A message between the cluster coordinator and its workers. All types share this one class
+ * so any transport only has to move a single JSON shape; unused fields stay null.
+ */
+public class ClusterMessage {
+
+    public enum Type {
+        /** Worker to coordinator, on connect: {@code worker}. */
+        HELLO,
+        /** Coordinator to worker: the ring {@code members}, this worker's {@code cameras} and the {@code epoch}. */
+        ASSIGN,
+        /** A valid plate read by a worker: {@code camera}, {@code timestamp}, {@code plate}. Routed to the plate's owner. */
+        RESULT,
+        /** Plate owner to coordinator: a plate not seen within the dedup window, and whether it is watchlisted. */
+        SIGHTING,
+        /** Dedup state ({@code lastSeen}) for plates that changed owner in {@code epoch}; routed to the new owners. */
+        HANDOFF,
+        /** Worker to coordinator, on a clean shutdown: its remaining dedup state in {@code lastSeen}. */
+        LEAVE
+    }
+
+    public Type type;
+    public String worker;
+    public long epoch;
+    public List<String> members;
+    // Camera id to stream URL
+    public Map<String, String> cameras;
+    public String camera;
+    public long timestamp;
+    public String plate;
+    public boolean watchlisted;
+    // Plate to time of its last reported sighting
+    public Map<String, Long> lastSeen;
+
+    static ClusterMessage of(Type type, String worker) {
+        ClusterMessage message = new ClusterMessage();
+        message.type = type;
+        message.worker = worker;
+        return message;
+    }
+
+    static ClusterMessage plate(Type type, String worker, String camera, long timestamp, String plate) {
+        ClusterMessage message = of(type, worker);
+        message.camera = camera;
+        message.timestamp = timestamp;
+        message.plate = plate;
+        return message;
+    }
+}
@@ -0,0 +1,34 @@
+package com.anpr;
+
+import java.io.IOException;
+
+/**
+ * Carries {@link ClusterMessage}s between the coordinator and its workers. The coordinator
+ * listens, workers connect; each side gets a {@link Link} per peer. Messages on one link
+ * arrive in the order they were sent. {@link SocketTransport} is the TCP implementation.
+ */
+public interface ClusterTransport extends AutoCloseable {
+
+    interface Link {
+        void send(ClusterMessage message) throws IOException;
+
+        void close();
+    }
+
+    interface Handler {
+        /** Called on the link's reader thread, one message at a time per link. */
+        void onMessage(Link link, ClusterMessage message);
+
+        /** Called once when the peer disconnects or the link is closed. */
+        void onClose(Link link);
+    }
+
+    /** Coordinator side: accepts worker links until closed. */
+    void listen(Handler handler) throws IOException;
+
+    /** Worker side: opens a link to the coordinator. */
+    Link connect(Handler handler) throws IOException;
+
+    @Override
+    void close();
+}
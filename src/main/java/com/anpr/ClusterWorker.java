@@ -0,0 +1,312 @@
+package com.anpr;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One processing node of a cluster (see {@link ClusterCoordinator}). Reads the cameras the
+ * coordinator assigns to it, runs each frame through its own {@link InferenceScheduler} and
+ * sends every valid plate back. For the plates it owns on the ring it also keeps the dedup
+ * state (last reported sighting, {@code cluster.dedupWindowMillis}) and its share of
+ * {@code cluster.watchlist}, and reports new sightings to the coordinator.
+ * <p>
+ * On a new assignment it hands the state of plates that moved to the coordinator for their new
+ * owners; on close it hands over everything. If the coordinator goes away the cameras stop
+ * and the worker reconnects every few seconds.
+ */
+public class ClusterWorker implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterWorker.class);
+    private static final long RECONNECT_MILLIS = 2000;
+    private static final int PRUNE_INTERVAL = 1000;
+
+    /** A camera stream; {@link #read()} returns null when no frame could be read. */
+    interface CameraSource extends AutoCloseable {
+        Mat read();
+
+        @Override
+        void close();
+    }
+
+    private final String id;
+    private final ClusterTransport transport;
+    private final InferenceScheduler scheduler;
+    private final Function<String, CameraSource> opener;
+    private final int virtualNodes;
+    private final long frameIntervalMillis;
+    private final long dedupWindowMillis;
+    private final Set<String> watchlist;
+
+    // Guarded by this
+    private final Map<String, Thread> cameraThreads = new HashMap<>();
+    private final Map<String, Long> lastSeen = new HashMap<>();
+    private ConsistentHashRing ring;
+    private Set<String> ownedWatchlist = Set.of();
+    private int observed;
+
+    private volatile ClusterTransport.Link link;
+    private volatile boolean running = true;
+
+    public ClusterWorker(String id, AnprConfig config, ClusterTransport transport, InferenceScheduler scheduler) throws IOException {
+        this(id, config, transport, scheduler, ClusterWorker::openCapture);
+    }
+
+    ClusterWorker(String id, AnprConfig config, ClusterTransport transport, InferenceScheduler scheduler,
+                  Function<String, CameraSource> opener) throws IOException {
+        this.id = id;
+        this.transport = transport;
+        this.scheduler = scheduler;
+        this.opener = opener;
+        this.virtualNodes = config.getInt("cluster.virtualNodes", 64);
+        this.frameIntervalMillis = config.getInt("cluster.frameIntervalMillis", 100);
+        this.dedupWindowMillis = config.getInt("cluster.dedupWindowMillis", 600_000);
+        this.watchlist = Arrays.stream(config.get("cluster.watchlist", "").split(","))
+                .map(String::trim).filter(plate -> !plate.isEmpty()).collect(Collectors.toSet());
+        this.ring = new ConsistentHashRing(virtualNodes);
+        connect();
+    }
+
+    /** Camera ids this worker is currently reading. */
+    public synchronized Set<String> cameras() {
+        return new HashSet<>(cameraThreads.keySet());
+    }
+
+    private void connect() throws IOException {
+        link = transport.connect(new ClusterTransport.Handler() {
+            @Override
+            public void onMessage(ClusterTransport.Link from, ClusterMessage message) {
+                handle(message);
+            }
+
+            @Override
+            public void onClose(ClusterTransport.Link closed) {
+                disconnected();
+            }
+        });
+        send(ClusterMessage.of(ClusterMessage.Type.HELLO, id));
+        logger.info("Cluster worker {} connected.", id);
+    }
+
+    private void handle(ClusterMessage message) {
+        switch (message.type) {
+            case ASSIGN:
+                assign(message);
+                break;
+            case RESULT:
+                observe(message);
+                break;
+            case HANDOFF:
+                synchronized (this) {
+                    message.lastSeen.forEach((plate, seen) -> lastSeen.merge(plate, seen, Math::max));
+                }
+                break;
+            default:
+                logger.warn("Unexpected {} from the coordinator", message.type);
+        }
+    }
+
+    private void assign(ClusterMessage message) {
+        Map<String, Long> moved = new HashMap<>();
+        synchronized (this) {
+            // 1. Partition: keep only plates this worker owns on the new ring
+            ring = new ConsistentHashRing(virtualNodes, message.members);
+            ownedWatchlist = watchlist.stream().filter(plate -> id.equals(ring.nodeFor(plate))).collect(Collectors.toSet());
+            for (Iterator<Map.Entry<String, Long>> it = lastSeen.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Long> entry = it.next();
+                if (!id.equals(ring.nodeFor(entry.getKey()))) {
+                    moved.put(entry.getKey(), entry.getValue());
+                    it.remove();
+                }
+            }
+
+            // 2. Cameras: stop the ones taken away, start the new ones
+            for (Iterator<Map.Entry<String, Thread>> it = cameraThreads.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Thread> camera = it.next();
+                if (!message.cameras.containsKey(camera.getKey())) {
+                    camera.getValue().interrupt();
+                    it.remove();
+                }
+            }
+            for (Map.Entry<String, String> camera : message.cameras.entrySet()) {
+                if (!cameraThreads.containsKey(camera.getKey())) {
+                    Thread thread = new Thread(() -> cameraLoop(camera.getKey(), camera.getValue()), "cluster-camera-" + camera.getKey());
+                    thread.setDaemon(true);
+                    cameraThreads.put(camera.getKey(), thread);
+                    thread.start();
+                }
+            }
+        }
+        logger.info("Cluster worker {}: epoch {}, cameras {}, {} plates handed off.", id, message.epoch, message.cameras.keySet(), moved.size());
+
+        // 3. Always answer, so the coordinator knows this worker's handoff is complete
+        ClusterMessage handoff = ClusterMessage.of(ClusterMessage.Type.HANDOFF, id);
+        handoff.epoch = message.epoch;
+        handoff.lastSeen = moved;
+        send(handoff);
+    }
+
+    // A read of a plate this worker owns: report it unless already reported within the window
+    private void observe(ClusterMessage result) {
+        boolean report;
+        boolean watchlisted;
+        synchronized (this) {
+            Long previous = lastSeen.get(result.plate);
+            report = previous == null || result.timestamp - previous > dedupWindowMillis;
+            if (report) {
+                lastSeen.put(result.plate, result.timestamp);
+            }
+            watchlisted = ownedWatchlist.contains(result.plate);
+            if (++observed % PRUNE_INTERVAL == 0) {
+                long horizon = result.timestamp - dedupWindowMillis;
+                lastSeen.values().removeIf(seen -> seen < horizon);
+            }
+        }
+        if (report) {
+            ClusterMessage sighting = ClusterMessage.plate(ClusterMessage.Type.SIGHTING, id, result.camera, result.timestamp, result.plate);
+            sighting.watchlisted = watchlisted;
+            send(sighting);
+        }
+    }
+
+    private void cameraLoop(String cameraId, String url) {
+        CameraSource source = null;
+        try {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                if (source == null) {
+                    source = opener.apply(url);
+                    if (source == null) {
+                        logger.warn("Cluster worker {}: could not open camera {}; retrying.", id, cameraId);
+                        Thread.sleep(RECONNECT_MILLIS);
+                        continue;
+                    }
+                }
+                Mat mat = source.read();
+                if (mat == null) {
+                    source.close();
+                    source = null;
+                    Thread.sleep(RECONNECT_MILLIS);
+                    continue;
+                }
+
+                SharedFrame frame = new SharedFrame(mat, cameraId, System.currentTimeMillis());
+                List<ProcessResult> results;
+                try {
+                    results = scheduler.submit(frame, InferenceScheduler.Priority.LIVE).join();
+                } catch (CancellationException e) {
+                    continue; // Went stale in the queue; read a fresh frame
+                } finally {
+                    frame.release();
+                }
+                for (ProcessResult result : results) {
+                    if (result.isValid()) {
+                        send(ClusterMessage.plate(ClusterMessage.Type.RESULT, id, cameraId, frame.captureTimeMillis(), result.text));
+                    }
+                }
+                Thread.sleep(frameIntervalMillis);
+            }
+        } catch (InterruptedException e) {
+            // Camera reassigned or worker closing
+        } finally {
+            if (source != null) {
+                source.close();
+            }
+        }
+    }
+
+    private void send(ClusterMessage message) {
+        ClusterTransport.Link current = link;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.send(message);
+        } catch (IOException e) {
+            logger.debug("Cluster worker {}: send failed, waiting for reconnect: {}", id, e.toString());
+        }
+    }
+
+    private void stopCameras() {
+        synchronized (this) {
+            cameraThreads.values().forEach(Thread::interrupt);
+            cameraThreads.clear();
+        }
+    }
+
+    private void disconnected() {
+        link = null;
+        stopCameras();
+        if (!running) {
+            return;
+        }
+        logger.warn("Cluster worker {} lost the coordinator; reconnecting.", id);
+        Thread reconnect = new Thread(() -> {
+            while (running) {
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                    connect();
+                    return;
+                } catch (IOException e) {
+                    logger.debug("Cluster worker {}: reconnect failed: {}", id, e.toString());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "cluster-reconnect-" + id);
+        reconnect.setDaemon(true);
+        reconnect.start();
+    }
+
+    /** Stops the cameras and hands this worker's dedup state to the coordinator for redistribution. */
+    @Override
+    public void close() {
+        running = false;
+        stopCameras();
+        ClusterMessage leave = ClusterMessage.of(ClusterMessage.Type.LEAVE, id);
+        synchronized (this) {
+            leave.lastSeen = new HashMap<>(lastSeen);
+        }
+        send(leave);
+        ClusterTransport.Link current = link;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private static CameraSource openCapture(String url) {
+        VideoCapture capture = new VideoCapture(url);
+        if (!capture.isOpened()) {
+            capture.release();
+            return null;
+        }
+        return new CameraSource() {
+            @Override
+            public Mat read() {
+                Mat frame = new Mat();
+                if (capture.read(frame) && !frame.empty()) {
+                    return frame;
+                }
+                frame.release();
+                return null;
+            }
+
+            @Override
+            public void close() {
+                capture.release();
+            }
+        };
+    }
+}
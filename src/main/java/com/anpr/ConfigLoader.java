@@ -1,31 +1,179 @@
 package com.anpr;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads {@code config.properties} from the classpath once, overlays an optional external
+ * override file, and publishes the result as an immutable {@link AnprConfig} snapshot.
+ * The override file defaults to {@code ./config.properties} and can be set with
+ * {@code -Danpr.config=/path/to/file}. Once {@link #startWatching()} is called, edits to it
+ * swap in a new snapshot without a restart.
+ */
 public class ConfigLoader {
 
-    private static final Properties properties = new Properties();
+    private static final Logger logger = LoggerFactory.getLogger(ConfigLoader.class);
+
+    private static final Properties defaults = new Properties();
+    private static final Path overrideFile = Paths.get(System.getProperty("anpr.config", "config.properties")).toAbsolutePath();
+    private static final List<Consumer<AnprConfig>> listeners = new CopyOnWriteArrayList<>();
+    private static volatile AnprConfig current;
+    private static Thread watcherThread;
 
     static {
         try (InputStream input = ConfigLoader.class.getClassLoader().getResourceAsStream("config.properties")) {
             if (input == null) {
                 System.out.println("Sorry, unable to load config.properties");
             } else {
-                properties.load(input);
+                defaults.load(input);
                 System.out.println("Configuration loaded successfully.");
             }
         } catch (Exception e) {
             System.out.println("Error loading configuration: " + e.getMessage());
         }
+        try {
+            current = load(overrideFile);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not read configuration override {}; starting with the defaults.", overrideFile, e);
+            current = new AnprConfig(defaults);
+        }
+    }
+
+    /**
+     * The configuration snapshot currently in effect. Callers on hot paths should read it
+     * once per unit of work (e.g. per frame) and use its fields.
+     */
+    public static AnprConfig current() {
+        return current;
+    }
+
+    /**
+     * Registers a callback that runs on the watcher thread after a new snapshot is published.
+     */
+    public static void addListener(Consumer<AnprConfig> listener) {
+        listeners.add(listener);
+    }
+
+    static void removeListener(Consumer<AnprConfig> listener) {
+        listeners.remove(listener);
     }
 
     public static String getProperty(String key) {
-        return properties.getProperty(key);
+        return current.get(key);
     }
 
     public static float getFloatProperty(String key, float defaultValue) {
-        String value = properties.getProperty(key);
-        return value != null ? Float.parseFloat(value) : defaultValue;
+        return current.getFloat(key, defaultValue);
+    }
+
+    public static int getIntProperty(String key, int defaultValue) {
+        return current.getInt(key, defaultValue);
+    }
+
+    // Throws rather than dropping an override file that cannot be read, so a bad edit never resets the settings
+    private static AnprConfig load(Path file) throws IOException {
+        Properties merged = new Properties();
+        merged.putAll(defaults);
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                Properties overrides = new Properties();
+                overrides.load(reader);
+                merged.putAll(overrides);
+                logger.info("Applied configuration overrides from {}", file);
+            }
+        }
+        return new AnprConfig(merged);
+    }
+
+    /**
+     * Re-reads the override file and atomically publishes a new snapshot. A file that cannot
+     * be read or parsed, or holds invalid values, leaves the previous snapshot in place.
+     */
+    static AnprConfig reload() {
+        return reload(overrideFile);
+    }
+
+    // The snapshot is fully built and validated before it is published; listeners run after,
+    // each on its own, so one failing listener neither hides the new snapshot from the rest
+    // nor makes the reload look rejected
+    static AnprConfig reload(Path file) {
+        AnprConfig updated;
+        try {
+            updated = load(file);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Invalid configuration in {}; keeping the previous settings.", file, e);
+            return current;
+        }
+        current = updated;
+        for (Consumer<AnprConfig> listener : listeners) {
+            try {
+                listener.accept(updated);
+            } catch (RuntimeException e) {
+                logger.error("Configuration listener failed to apply the new settings", e);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Starts a daemon thread that reloads the configuration when the override file changes.
+     * Settings read once at startup (model path, camera URL, folders) still need a restart.
+     */
+    public static synchronized void startWatching() {
+        if (watcherThread != null) {
+            return;
+        }
+        Path directory = overrideFile.getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        watcherThread = new Thread(() -> watch(directory), "config-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        logger.info("Watching {} for configuration changes.", overrideFile);
+    }
+
+    private static void watch(Path directory) {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path && overrideFile.getFileName().equals(context)) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    // Editors often write in several steps; let the file settle before reading it
+                    Thread.sleep(100);
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Configuration watcher stopped", e);
+        }
     }
-}
\ No newline at end of file
+}
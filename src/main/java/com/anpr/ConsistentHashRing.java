@@ -0,0 +1,89 @@
+package com.anpr;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps keys (camera ids, plate numbers) to cluster nodes. Each node is placed on a 64-bit ring
+ * at {@code virtualNodes} points; a key belongs to the first node point at or after its hash.
+ * Adding or removing a node only moves the keys next to its points, so a rebalance keeps most
+ * cameras and plate partitions where they were.
+ * <p>
+ * Every member builds the same ring from the same node list, so the coordinator and the
+ * workers agree on ownership without asking each other.
+ */
+public class ConsistentHashRing {
+
+    private final int virtualNodes;
+    private final TreeMap<Long, String> points = new TreeMap<>();
+    private final List<String> nodes = new ArrayList<>();
+
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = Math.max(1, virtualNodes);
+    }
+
+    public ConsistentHashRing(int virtualNodes, List<String> nodes) {
+        this(virtualNodes);
+        nodes.forEach(this::add);
+    }
+
+    /** @return false when the node was already on the ring. */
+    public synchronized boolean add(String node) {
+        if (nodes.contains(node)) {
+            return false;
+        }
+        nodes.add(node);
+        for (int i = 0; i < virtualNodes; i++) {
+            points.put(hash(node + "#" + i), node);
+        }
+        return true;
+    }
+
+    /** @return false when the node was not on the ring. */
+    public synchronized boolean remove(String node) {
+        if (!nodes.remove(node)) {
+            return false;
+        }
+        points.values().removeIf(node::equals);
+        return true;
+    }
+
+    /** The node owning {@code key}, or null when the ring is empty. */
+    public synchronized String nodeFor(String key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(key));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    /** Nodes in the order they joined. */
+    public synchronized List<String> nodes() {
+        return new ArrayList<>(nodes);
+    }
+
+    public synchronized boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    /**
+     * 64-bit FNV-1a with the MurmurHash3 finalizer, so similar plates land far apart. Also the
+     * plate hash of {@link HyperLogLog}, which needs well-mixed high bits.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,143 @@
+package com.anpr;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import com.google.gson.Gson;
+
+import nu.pattern.OpenCV;
+
+/**
+ * Offline driver that runs {@link ImageProcessor} over a corpus written by
+ * {@link PlateCorpusGenerator} and reports throughput next to accuracy, so a
+ * faster pipeline cannot silently read fewer plates.
+ */
+public class CorpusEvaluator {
+
+    // Frames processed before timing starts (JIT and DNN warm-up)
+    private static final int WARMUP_FRAMES = 5;
+
+    /** Outcome of one evaluation run. */
+    static final class Report {
+        int frames;
+        int timedFrames;
+        long timedNanos;
+        long modelPasses;
+        int detected;
+        int exactMatches;
+        int falseReads;
+
+        double platesPerSecond() {
+            return timedFrames / (timedNanos / 1e9);
+        }
+
+        double millisPerFrame() {
+            return timedNanos / 1e6 / Math.max(1, timedFrames);
+        }
+
+        double passesPerFrame() {
+            return (double) modelPasses / Math.max(1, frames);
+        }
+
+        double recall() {
+            return 100.0 * detected / Math.max(1, frames);
+        }
+
+        double accuracy() {
+            return 100.0 * exactMatches / Math.max(1, frames);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: CorpusEvaluator <corpusDir>");
+            return;
+        }
+        OpenCV.loadLocally();
+
+        File corpusDir = new File(args[0]);
+        ImageProcessor imageProcessor = new ImageProcessor();
+        Report report = evaluate(corpusDir, imageProcessor);
+
+        System.out.println("--- Corpus Evaluation: " + corpusDir.getPath() + " ---");
+        System.out.printf("Frames:               %d%n", report.frames);
+        System.out.printf("Throughput:           %.2f plates/sec (%.1f ms/frame over %d timed frames)%n",
+                report.platesPerSecond(), report.millisPerFrame(), report.timedFrames);
+        System.out.printf("Model passes:         %.1f per frame%n", report.passesPerFrame());
+        System.out.printf("Detection recall:     %.2f%% (IoU >= 0.5)%n", report.recall());
+        System.out.printf("Exact-match accuracy: %.2f%%%n", report.accuracy());
+        System.out.printf("Wrong valid reads:    %d%n", report.falseReads);
+        System.out.printf("OCR cache:            %.1f%% hits, %d ms saved%n",
+                imageProcessor.ocrCache().hitRate() * 100, imageProcessor.ocrCache().savedMillis());
+        System.out.printf("Crop quality gate:    %d of %d crops rejected, %d ms saved%n",
+                imageProcessor.qualityGate().rejectedCount(), imageProcessor.qualityGate().checkedCount(),
+                imageProcessor.qualityGate().savedMillis());
+    }
+
+    static Report evaluate(File corpusDir, ImageProcessor imageProcessor) throws IOException {
+        PlateCorpusGenerator.Sample[] samples;
+        try (Reader reader = new FileReader(new File(corpusDir, PlateCorpusGenerator.GROUND_TRUTH_FILE))) {
+            samples = new Gson().fromJson(reader, PlateCorpusGenerator.Sample[].class);
+        }
+
+        Report report = new Report();
+        report.frames = samples.length;
+        long passesBefore = imageProcessor.modelPasses();
+
+        for (int i = 0; i < samples.length; i++) {
+            PlateCorpusGenerator.Sample sample = samples[i];
+            Mat frame = Imgcodecs.imread(new File(corpusDir, sample.file).getPath());
+            if (frame.empty()) {
+                System.err.println("Skipping unreadable frame " + sample.file);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            List<ProcessResult> results = imageProcessor.processImage(frame);
+            long elapsed = System.nanoTime() - start;
+            if (i >= WARMUP_FRAMES || samples.length <= WARMUP_FRAMES) {
+                report.timedFrames++;
+                report.timedNanos += elapsed;
+            }
+
+            boolean boxFound = false;
+            boolean textMatched = false;
+            for (ProcessResult result : results) {
+                if (iou(result, sample) >= 0.5) {
+                    boxFound = true;
+                }
+                if (result.isValid()) {
+                    if (result.text.equals(sample.plate)) {
+                        textMatched = true;
+                    } else {
+                        report.falseReads++;
+                    }
+                }
+            }
+            if (boxFound) report.detected++;
+            if (textMatched) report.exactMatches++;
+            frame.release();
+        }
+
+        report.modelPasses = imageProcessor.modelPasses() - passesBefore;
+        return report;
+    }
+
+    private static double iou(ProcessResult result, PlateCorpusGenerator.Sample sample) {
+        int ix = Math.min(result.x2, sample.x2) - Math.max(result.x1, sample.x1);
+        int iy = Math.min(result.y2, sample.y2) - Math.max(result.y1, sample.y1);
+        if (ix <= 0 || iy <= 0) {
+            return 0;
+        }
+        double intersection = (double) ix * iy;
+        double union = (double) (result.x2 - result.x1) * (result.y2 - result.y1)
+                + (double) (sample.x2 - sample.x1) * (sample.y2 - sample.y1) - intersection;
+        return intersection / union;
+    }
+}
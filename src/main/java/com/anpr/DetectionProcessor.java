@@ -1,48 +1,41 @@
 package com.anpr;
 
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.opencv.core.Mat;
 import org.opencv.core.Point;
 import org.opencv.core.Rect;
-import org.opencv.core.Scalar;
-import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
 
 import net.sourceforge.tess4j.Tesseract;
-import net.sourceforge.tess4j.TesseractException;
-import net.sourceforge.tess4j.ITessAPI;
 
 /**
  * Handles the processing of a single detected object from the YOLO model.
  */
 public class DetectionProcessor {
 
-    private final Tesseract tesseract;
+    private final PlateOcr ocr;
     private final Pattern platePattern;
+    private final OcrCache ocrCache = new OcrCache();
+    private final CropQualityGate qualityGate = new CropQualityGate();
 
     public DetectionProcessor(Tesseract tesseract, Pattern platePattern) {
-        this.tesseract = tesseract;
+        this(new TesseractOcr(tesseract), platePattern);
+    }
+
+    public DetectionProcessor(PlateOcr ocr, Pattern platePattern) {
+        this.ocr = ocr;
         this.platePattern = platePattern;
-        
-        // --- Performance Optimization ---
-        // 1. Whitelist only uppercase alphanumeric characters to prevent symbol guessing
-        this.tesseract.setTessVariable("tessedit_char_whitelist", "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789");
-        // 2. Set Page Segmentation Mode to 7 (Treat the image as a single text line)
-        this.tesseract.setPageSegMode(ITessAPI.TessPageSegMode.PSM_SINGLE_LINE);
     }
 
     /**
-     * Processes a single detected bounding box.
+     * Processes a single detected bounding box in a frame of the configured camera.
      * @param detectionRow The row from the detections matrix.
      * @param frame The original video frame.
+     * @param config The configuration snapshot for this frame.
      * @return The corrected text of the license plate, or an empty string if not valid.
      */
-    public ProcessResult process(Mat detectionRow, Mat frame) {
+    public ProcessResult process(Mat detectionRow, Mat frame, AnprConfig config) {
         // 1. Extract Bounding Box and Scale
         double x = detectionRow.get(0, 0)[0];
         double y = detectionRow.get(0, 1)[0];
@@ -57,21 +50,32 @@ public class DetectionProcessor {
         int x2 = (int) ((x + w / 2) * xScale);
         int y2 = (int) ((y + h / 2) * yScale);
 
+        return process(new Rect(x1, y1, x2 - x1, y2 - y1), frame, config.cameraId, config);
+    }
+
+    /**
+     * Processes a bounding box that is already in frame coordinates, e.g. one merged
+     * from several tiles.
+     * @param box The detected box; may extend past the frame edges.
+     * @param frame The original video frame.
+     * @param cameraId Camera the frame came from; reads are only reused for the same camera.
+     * @param config The configuration snapshot for this frame.
+     * @return The OCR result for the box, or null if the box fails the geometry or crop quality checks.
+     */
+    public ProcessResult process(Rect box, Mat frame, String cameraId, AnprConfig config) {
         // 2. Clamp and Validate ROI
-        int clampedX1 = Math.max(0, x1);
-        int clampedY1 = Math.max(0, y1);
-        int clampedX2 = Math.min(frame.width() - 1, x2);
-        int clampedY2 = Math.min(frame.height() - 1, y2);
+        int clampedX1 = Math.max(0, box.x);
+        int clampedY1 = Math.max(0, box.y);
+        int clampedX2 = Math.min(frame.width() - 1, box.x + box.width);
+        int clampedY2 = Math.min(frame.height() - 1, box.y + box.height);
 
         if (clampedX2 <= clampedX1 || clampedY2 <= clampedY1) {
             return null; // Invalid ROI
         }
 
         // 3. Aspect Ratio Filter
-        float minAspectRatio = ConfigLoader.getFloatProperty("detection.minAspectRatio", 1.5f);
-        float maxAspectRatio = ConfigLoader.getFloatProperty("detection.maxAspectRatio", 5.5f);
         double aspectRatio = (double) (clampedX2 - clampedX1) / (clampedY2 - clampedY1);
-        if (aspectRatio < minAspectRatio || aspectRatio > maxAspectRatio) {
+        if (aspectRatio < config.minAspectRatio || aspectRatio > config.maxAspectRatio) {
             return null; // Fails aspect ratio filter
         }
 
@@ -82,72 +86,110 @@ public class DetectionProcessor {
             return null;
         }
 
-        String correctedText = "";
-        try {
-            correctedText = performOcr(licensePlate);
-        } catch (TesseractException e) {
-            // System.out.println("Tesseract Error: " + e.getMessage());
+        String correctedText = performOcr(licensePlate, roi, cameraId, config);
+        if (correctedText == null) {
+            return null; // Crop too small, blurred or badly exposed to read
         }
 
         return new ProcessResult(clampedX1, clampedY1, clampedX2, clampedY2, correctedText);
     }
 
-    private String performOcr(Mat licensePlate) throws TesseractException {
-        // Pre-processing
+    /**
+     * Cache of recent reads, shared by all frames this processor sees.
+     */
+    public OcrCache ocrCache() {
+        return ocrCache;
+    }
+
+    /**
+     * Rejected crops and the OCR time they saved.
+     */
+    public CropQualityGate qualityGate() {
+        return qualityGate;
+    }
+
+    // Null when the crop fails the quality gate
+    private String performOcr(Mat licensePlate, Rect box, String cameraId, AnprConfig config) {
+        FrameEvents.Ocr event = FrameEvents.Ocr.start();
+        // Pre-processing; each OCR engine binarizes the gray crop its own way
         Mat grayPlate = new Mat();
         Imgproc.cvtColor(licensePlate, grayPlate, Imgproc.COLOR_BGR2GRAY);
 
-        Mat threshPlate = new Mat();
-        Imgproc.threshold(grayPlate, threshPlate, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+        // Hopeless crops would cost a full OCR pass only to fail validation
+        CropQualityGate.Score score = CropQualityGate.score(grayPlate);
+        CropQualityGate.Reason rejected = qualityGate.check(score, config);
+        if (rejected != null) {
+            grayPlate.release();
+            event.commit(null, rejected.name());
+            return null;
+        }
 
-        Mat resizedPlate = new Mat();
-        Imgproc.resize(threshPlate, resizedPlate, new Size(), 2, 2, Imgproc.INTER_CUBIC);
+        // A near-identical crop at the same spot was read moments ago (vehicle standing still)
+        boolean cached = config.ocrCacheSize > 0;
+        long[] hash = null;
+        long now = System.currentTimeMillis();
+        if (cached) {
+            hash = OcrCache.hash(grayPlate);
+            String previous = ocrCache.lookup(cameraId, box, hash, score.sharpness, config, now);
+            if (previous != null) {
+                grayPlate.release();
+                event.commit(previous, "cached");
+                return previous;
+            }
+        }
 
-        // Convert and OCR
-        BufferedImage bufferedImage = matToBufferedImage(resizedPlate);
-        String rawText = tesseract.doOCR(bufferedImage);
+        long start = System.nanoTime();
+        PlateOcr.Result result = ocr.recognize(grayPlate);
+        long elapsed = System.nanoTime() - start;
+        grayPlate.release();
+        qualityGate.recordOcr(elapsed);
 
         // Post-processing
-        return correctPlateFormat(rawText);
+        String text = normalizePlate(result);
+        if (cached) {
+            ocrCache.put(cameraId, box, hash, text, score.sharpness, elapsed, config, now);
+        }
+        event.commit(text, "read");
+        return text;
     }
 
-    private BufferedImage matToBufferedImage(Mat mat) {
-        int type = mat.channels() > 1 ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_BYTE_GRAY;
-        BufferedImage image = new BufferedImage(mat.cols(), mat.rows(), type);
-        byte[] buffer = new byte[mat.channels() * mat.cols() * mat.rows()];
-        mat.get(0, 0, buffer);
-        System.arraycopy(buffer, 0, ((DataBufferByte) image.getRaster().getDataBuffer()).getData(), 0, buffer.length);
-        return image;
+    /**
+     * Turns a read into a plate with {@link PlateCorrector}, using the reader's per-symbol
+     * alternatives when it reports them. A read no layout fits is returned stripped of noise.
+     */
+    static String normalizePlate(PlateOcr.Result result) {
+        if (result.choices == null) {
+            return normalizePlate(result.text);
+        }
+        String corrected = PlateCorrector.correct(result.text, result.choices, result.choiceScores);
+        return corrected != null ? corrected : clean(result.text);
     }
 
-    // Helper method to correct common OCR errors on Indian license plates
-    private static String correctPlateFormat(String ocrText) {
-        if (ocrText == null || ocrText.isEmpty()) {
+    static String normalizePlate(String ocrText) {
+        if (ocrText == null) {
             return "";
         }
+        String corrected = PlateCorrector.correct(ocrText);
+        return corrected != null ? corrected : clean(ocrText);
+    }
 
-        String text = ocrText.toUpperCase().replaceAll("[^A-Z0-9]", "");
-
-        // Per-character mappings for common OCR errors
-        Map<Character, Character> perCharMap = new HashMap<>();
-        perCharMap.put('O', '0');
-        perCharMap.put('I', '1');
-        perCharMap.put('S', '5');
-        perCharMap.put('B', '8');
-        perCharMap.put('G', '6');
-        perCharMap.put('Y', 'T');
-
-        StringBuilder cleaned = new StringBuilder();
-        for (char ch : text.toCharArray()) {
-            // Apply direct substitution if exists, otherwise keep the original if it's a letter/digit
-            if (perCharMap.containsKey(ch)) {
-                cleaned.append(perCharMap.get(ch));
-            } else if (Character.isLetterOrDigit(ch)) {
-                cleaned.append(ch);
+    // Letters and digits of a read no layout fits, upper-cased. Cut to one more than a plate's
+    // 10 characters, so garbage stays short but a longer read never becomes a valid plate
+    private static String clean(String ocrText) {
+        if (ocrText == null) {
+            return "";
+        }
+        char[] kept = new char[11];
+        int length = 0;
+        for (int i = 0; i < ocrText.length() && length < kept.length; i++) {
+            char c = ocrText.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                c = (char) (c - 32);
+            }
+            if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                kept[length++] = c;
             }
         }
-
-        String cleanedStr = cleaned.toString();
-        return cleanedStr.length() > 10 ? cleanedStr.substring(0, 10) : cleanedStr;
+        return new String(kept, 0, length);
     }
 }
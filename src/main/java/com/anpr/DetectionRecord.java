@@ -0,0 +1,23 @@
+package com.anpr;
+
+import java.time.Instant;
+
+/**
+ * One stored plate sighting.
+ */
+public class DetectionRecord {
+    public final long timestampMillis;
+    public final String cameraId;
+    public final String plate;
+
+    public DetectionRecord(long timestampMillis, String cameraId, String plate) {
+        this.timestampMillis = timestampMillis;
+        this.cameraId = cameraId;
+        this.plate = plate;
+    }
+
+    @Override
+    public String toString() {
+        return Instant.ofEpochMilli(timestampMillis) + " " + cameraId + " " + plate;
+    }
+}
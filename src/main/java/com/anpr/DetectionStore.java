@@ -0,0 +1,417 @@
+package com.anpr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Embedded, time-indexed history of every validated plate sighting.
+ * <p>
+ * Sightings are appended to segment files of fixed-size records ({@link StoreSegment}).
+ * When the active segment is full or older than the seal age it is sealed in the background:
+ * its records are put in time order, a sorted plate index is written and both are
+ * memory-mapped, so plate lookups are a binary search per segment and time ranges are a
+ * binary search on the record timestamps. A maintenance task drops segments older than the
+ * retention period and merges small neighbouring segments.
+ */
+public class DetectionStore implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DetectionStore.class);
+    private static final String CAMERAS_FILE = "cameras.txt";
+
+    private final Path directory;
+    private final int segmentRows;
+    private final long sealAgeMillis;
+    private final Duration retention;
+
+    // Ordered oldest first; the last element is the active segment. Replaced as a whole under
+    // the store lock, so a query iterates one consistent snapshot without locking
+    private volatile List<StoreSegment> segments = List.of();
+    private final List<String> cameras = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> cameraCodes = new HashMap<>();
+    private StoreSegment active;
+    private long nextSegmentId;
+    // Newest sighting in a sealed segment; older ones would break the time order across segments
+    private long sealedUntil = Long.MIN_VALUE;
+    // When the active segment took its first row
+    private long activeSince;
+
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "detection-store-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public DetectionStore(AnprConfig config) throws IOException {
+        this(Paths.get(config.get("store.folder", "detections")),
+                config.getInt("store.segmentRows", 500_000),
+                Duration.ofHours(config.getInt("store.sealHours", 24)),
+                Duration.ofDays(config.getInt("store.retentionDays", 90)),
+                config.getInt("store.maintenanceIntervalMinutes", 10));
+    }
+
+    public DetectionStore(Path directory, int segmentRows, Duration retention) throws IOException {
+        this(directory, segmentRows, Duration.ofDays(1), retention, 10);
+    }
+
+    /**
+     * @param sealAge The active segment is sealed once it has taken rows for this long, even if not full.
+     */
+    public DetectionStore(Path directory, int segmentRows, Duration sealAge, Duration retention, int maintenanceIntervalMinutes)
+            throws IOException {
+        this.directory = directory;
+        this.segmentRows = segmentRows;
+        this.sealAgeMillis = sealAge.toMillis();
+        this.retention = retention;
+        Files.createDirectories(directory);
+
+        loadCameras();
+        openSegments();
+
+        maintenance.scheduleWithFixedDelay(this::maintain, maintenanceIntervalMinutes, maintenanceIntervalMinutes, TimeUnit.MINUTES);
+        maintenance.scheduleWithFixedDelay(this::flushQuietly, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records one sighting with its real capture time. Sightings may arrive slightly out of
+     * order (a manual capture finishing after a newer live frame); the active segment is put
+     * in time order when it is sealed. A sighting older than the newest sealed one is dropped.
+     * Storage errors are logged rather than thrown, so they never abort the detection path.
+     */
+    public synchronized void append(long timestampMillis, String cameraId, String plate) {
+        if (timestampMillis < sealedUntil) {
+            logger.warn("Dropped sighting of {} at {}: older than the last sealed detection segment", plate, Instant.ofEpochMilli(timestampMillis));
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (active.count() == 0) {
+                activeSince = now;
+            }
+            active.append(timestampMillis, cameraCode(cameraId), plate);
+            if (active.count() >= segmentRows || now - activeSince >= sealAgeMillis) {
+                rotate();
+            }
+        } catch (IOException e) {
+            logger.error("Could not store sighting of {}", plate, e);
+        }
+    }
+
+    /**
+     * All sightings of exactly {@code plate} in [fromMillis, toMillis], oldest first.
+     */
+    public List<DetectionRecord> findByPlate(String plate, long fromMillis, long toMillis, int limit) {
+        return findPlate(plate, false, fromMillis, toMillis, limit);
+    }
+
+    /**
+     * All sightings whose plate starts with {@code prefix} (e.g. "MH12") in [fromMillis, toMillis], oldest first.
+     */
+    public List<DetectionRecord> findByPlatePrefix(String prefix, long fromMillis, long toMillis, int limit) {
+        return findPlate(prefix, true, fromMillis, toMillis, limit);
+    }
+
+    /**
+     * Sightings in [fromMillis, toMillis], optionally restricted to one camera, oldest first.
+     * @param cameraId Camera to filter on, or null for all cameras.
+     */
+    public List<DetectionRecord> findByTimeRange(long fromMillis, long toMillis, String cameraId, int limit) {
+        int cameraCode = -1;
+        if (cameraId != null) {
+            synchronized (this) {
+                Integer code = cameraCodes.get(cameraId);
+                if (code == null) {
+                    return List.of();
+                }
+                cameraCode = code;
+            }
+        }
+        List<DetectionRecord> results = new ArrayList<>();
+        for (StoreSegment segment : segments) {
+            segment.scanTime(fromMillis, toMillis, cameraCode, cameras, results, limit);
+            if (results.size() >= limit) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private List<DetectionRecord> findPlate(String plate, boolean prefix, long fromMillis, long toMillis, int limit) {
+        List<DetectionRecord> results = new ArrayList<>();
+        for (StoreSegment segment : segments) {
+            segment.findPlate(plate, prefix, fromMillis, toMillis, cameras, results);
+        }
+        results.sort(Comparator.comparingLong(r -> r.timestampMillis));
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    public long size() {
+        return segments.stream().mapToLong(StoreSegment::count).sum();
+    }
+
+    // --- Segment lifecycle ---
+
+    private void rotate() throws IOException {
+        StoreSegment full = active;
+        sealedUntil = Math.max(sealedUntil, full.maxTimestamp());
+        active = StoreSegment.create(directory, nextSegmentId++);
+        segments = with(segments, active);
+        maintenance.execute(() -> seal(full));
+    }
+
+    private static List<StoreSegment> with(List<StoreSegment> list, StoreSegment added) {
+        List<StoreSegment> copy = new ArrayList<>(list);
+        copy.add(added);
+        return List.copyOf(copy);
+    }
+
+    private static List<StoreSegment> without(List<StoreSegment> list, List<StoreSegment> removed) {
+        List<StoreSegment> copy = new ArrayList<>(list);
+        copy.removeAll(removed);
+        return List.copyOf(copy);
+    }
+
+    private void seal(StoreSegment segment) {
+        try {
+            long start = System.nanoTime();
+            segment.seal();
+            logger.info("Sealed detection segment {} ({} rows) in {} ms", segment.id, segment.count(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            logger.error("Could not seal detection segment {}", segment.id, e);
+        }
+    }
+
+    /**
+     * Seals an idle active segment, applies retention and compacts small sealed segments.
+     * Runs on the maintenance thread.
+     */
+    void maintain() {
+        try {
+            sealIfOld();
+            applyRetention();
+            compact();
+        } catch (Exception e) {
+            logger.error("Detection store maintenance failed", e);
+        }
+    }
+
+    // A quiet site may never fill a segment; seal it anyway so retention applies and its memory index is freed
+    private synchronized void sealIfOld() throws IOException {
+        if (active.count() > 0 && System.currentTimeMillis() - activeSince >= sealAgeMillis) {
+            rotate();
+        }
+    }
+
+    // Retention is per segment: a segment is dropped once its newest record has expired
+    private void applyRetention() throws IOException {
+        long cutoff = Instant.now().minus(retention).toEpochMilli();
+        for (StoreSegment segment : segments) {
+            if (segment == active || !segment.isSealed() || segment.maxTimestamp() >= cutoff) {
+                continue;
+            }
+            synchronized (this) {
+                segments = without(segments, List.of(segment));
+            }
+            segment.delete();
+            logger.info("Dropped expired detection segment {} ({} rows)", segment.id, segment.count());
+        }
+    }
+
+    // Merges runs of neighbouring sealed segments whose combined size fits in one segment
+    private void compact() throws IOException {
+        List<StoreSegment> run = new ArrayList<>();
+        long runRows = 0;
+        for (StoreSegment segment : segments) {
+            boolean mergeable = segment != active && segment.isSealed();
+            if (mergeable && runRows + segment.count() <= segmentRows) {
+                run.add(segment);
+                runRows += segment.count();
+                continue;
+            }
+            if (run.size() > 1) {
+                merge(run);
+            }
+            run = new ArrayList<>();
+            runRows = 0;
+            if (mergeable) {
+                run.add(segment);
+                runRows = segment.count();
+            }
+        }
+        if (run.size() > 1) {
+            merge(run);
+        }
+    }
+
+    private void merge(List<StoreSegment> run) throws IOException {
+        long id;
+        synchronized (this) {
+            id = nextSegmentId++;
+        }
+        StoreSegment merged = StoreSegment.create(directory, id);
+        merged.close();
+        try (FileChannel out = FileChannel.open(merged.dataFile, StandardOpenOption.WRITE)) {
+            for (StoreSegment segment : run) {
+                segment.transferTo(out);
+            }
+        }
+        merged = StoreSegment.open(directory, id);
+        merged.seal();
+
+        // Swap in place so the segment list stays in time order; one assignment, so no query
+        // sees both the merged segment and its parts
+        synchronized (this) {
+            List<StoreSegment> swapped = new ArrayList<>(segments);
+            swapped.set(swapped.indexOf(run.get(0)), merged);
+            swapped.removeAll(run.subList(1, run.size()));
+            segments = List.copyOf(swapped);
+        }
+        for (StoreSegment segment : run) {
+            segment.delete();
+        }
+        logger.info("Compacted {} detection segments into segment {} ({} rows)", run.size(), id, merged.count());
+    }
+
+    private void openSegments() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.matches("seg-\\d+\\.dat"))
+                    .forEach(name -> ids.add(Long.parseLong(name.substring(4, name.length() - 4))));
+        }
+
+        List<StoreSegment> opened = new ArrayList<>();
+        for (long id : ids) {
+            StoreSegment segment = StoreSegment.open(directory, id);
+            if (segment.count() == 0) {
+                segment.delete();
+                continue;
+            }
+            if (!segment.isSealed()) {
+                segment.seal();
+            }
+            opened.add(segment);
+            nextSegmentId = Math.max(nextSegmentId, id + 1);
+        }
+        // Compaction gives merged segments new ids, so order by time rather than id
+        opened.sort(Comparator.comparingLong(StoreSegment::minTimestamp).thenComparingLong(s -> s.id));
+        for (StoreSegment segment : opened) {
+            sealedUntil = Math.max(sealedUntil, segment.maxTimestamp());
+        }
+
+        active = StoreSegment.create(directory, nextSegmentId++);
+        segments = with(opened, active);
+        logger.info("Detection store opened at {} with {} rows in {} segments.", directory, size(), opened.size());
+    }
+
+    private int cameraCode(String cameraId) throws IOException {
+        Integer code = cameraCodes.get(cameraId);
+        if (code == null) {
+            code = cameras.size();
+            Files.writeString(directory.resolve(CAMERAS_FILE), cameraId + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            cameras.add(cameraId);
+            cameraCodes.put(cameraId, code);
+        }
+        return code;
+    }
+
+    private void loadCameras() throws IOException {
+        Path file = directory.resolve(CAMERAS_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (!line.isEmpty()) {
+                cameraCodes.put(line, cameras.size());
+                cameras.add(line);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            StoreSegment current;
+            synchronized (this) {
+                current = active;
+            }
+            current.flush();
+        } catch (IOException e) {
+            logger.warn("Could not flush detection store", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Let pending seals and compaction finish; they take the store lock themselves
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (active.count() > 0) {
+                active.seal();
+            } else {
+                segments = without(segments, List.of(active));
+                active.delete();
+            }
+        }
+    }
+
+    /**
+     * Command-line queries, e.g. {@code plate MH12AB1234 30} for the last 30 days,
+     * {@code prefix MH12 7}, or {@code camera cam1 1}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: DetectionStore plate|prefix|camera <value> [days]");
+            return;
+        }
+        int days = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        long to = System.currentTimeMillis();
+        long from = to - Duration.ofDays(days).toMillis();
+
+        try (DetectionStore store = new DetectionStore(ConfigLoader.current())) {
+            long start = System.nanoTime();
+            List<DetectionRecord> results;
+            switch (args[0]) {
+                case "plate":
+                    results = store.findByPlate(args[1], from, to, 10_000);
+                    break;
+                case "prefix":
+                    results = store.findByPlatePrefix(args[1], from, to, 10_000);
+                    break;
+                case "camera":
+                    results = store.findByTimeRange(from, to, args[1], 10_000);
+                    break;
+                default:
+                    System.out.println("Unknown query type: " + args[0]);
+                    return;
+            }
+            long micros = (System.nanoTime() - start) / 1000;
+            results.forEach(System.out::println);
+            System.out.printf("%d results in %.2f ms (%d rows stored)%n", results.size(), micros / 1000.0, store.size());
+        }
+    }
+}
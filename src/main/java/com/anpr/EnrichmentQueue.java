@@ -0,0 +1,438 @@
+package com.anpr;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+/**
+ * Looks up the vehicle details of newly validated plates in the background, so enrichment
+ * keeps up with detection instead of waiting for a manual batch run.
+ * <ul>
+ *   <li>A plate already queued or being looked up is not queued again; the result is attached
+ *       to every {@link ProcessResult} submitted for it meanwhile. Plates enriched within
+ *       {@code enrich.reuseHours} are answered from memory without calling the API.</li>
+ *   <li>{@code enrich.workers} threads drain the queue, sharing a budget of
+ *       {@code enrich.requestsPerSecond} lookups.</li>
+ *   <li>Queued plates and finished lookups are journaled to {@code enrich.queueFile}, so plates
+ *       still waiting at shutdown are looked up after the next start, and earlier results are
+ *       reused. The journal is compacted on start and whenever it outgrows its live entries.</li>
+ *   <li>A lookup that fails (as opposed to finding nothing) leaves the plate queued; it is tried
+ *       again after {@code enrich.retryMillis}, doubling per failure up to
+ *       {@code enrich.retryMaxMillis}.</li>
+ * </ul>
+ * Depth (plates waiting), lag (age of the oldest waiting plate) and throughput are available
+ * through the getters and logged every {@value #LOG_INTERVAL} lookups.
+ */
+public class EnrichmentQueue implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnrichmentQueue.class);
+    private static final Gson gson = new Gson();
+    private static final int LOG_INTERVAL = 100;
+    private static final int MIN_COMPACT_LINES = 10_000;
+
+    /** One journal line: a queued plate, or a finished lookup when {@code doneAt} is set. */
+    private static final class JournalEntry {
+        String plate;
+        long queuedAt;
+        Long doneAt;
+        VehicleDetails details;
+
+        JournalEntry(String plate, long queuedAt, Long doneAt, VehicleDetails details) {
+            this.plate = plate;
+            this.queuedAt = queuedAt;
+            this.doneAt = doneAt;
+            this.details = details;
+        }
+    }
+
+    private static final class Pending {
+        final long queuedAt;
+        final List<ProcessResult> waiting = new ArrayList<>();
+        int failures;
+
+        Pending(long queuedAt) {
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    private final Function<String, VehicleDetails> lookup;
+    private final Path journalPath;
+    private final long reuseMillis;
+    private final long requestIntervalNanos;
+    private final long retryMillis;
+    private final long retryMaxMillis;
+    private final List<Consumer<ProcessResult>> listeners = new CopyOnWriteArrayList<>();
+    private final LinkedBlockingQueue<String> ready = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "enrichment-retry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Guarded by this: plates queued or in flight (insertion ordered, so the first is the oldest),
+    // finished lookups still worth reusing, and the journal
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private final Map<String, JournalEntry> recent = new LinkedHashMap<>();
+    private BufferedWriter journal;
+    private int journalLines;
+    private long nextRequestNanos;
+    private long enriched;
+    private long reused;
+    private long lookupNanos;
+    private volatile boolean running = true;
+
+    public EnrichmentQueue(AnprConfig config) {
+        this(config, new VehicleApiClient()::fetchVehicleDetails);
+    }
+
+    /**
+     * @param lookup Fetches the details of one plate, or returns null when not found; throws
+     *               when the lookup itself fails.
+     */
+    EnrichmentQueue(AnprConfig config, Function<String, VehicleDetails> lookup) {
+        this.lookup = lookup;
+        this.journalPath = Paths.get(config.get("enrich.queueFile", "enrichment_queue.jsonl"));
+        this.reuseMillis = TimeUnit.HOURS.toMillis(config.getInt("enrich.reuseHours", 24));
+        this.requestIntervalNanos = (long) (1e9 / Math.max(0.01f, config.getFloat("enrich.requestsPerSecond", 2f)));
+        this.retryMillis = Math.max(1, config.getInt("enrich.retryMillis", 5000));
+        this.retryMaxMillis = Math.max(retryMillis, config.getInt("enrich.retryMaxMillis", 600_000));
+
+        replayJournal();
+
+        int workerCount = Math.max(1, config.getInt("enrich.workers", 2));
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::workLoop, "enrichment-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /** Called with each result once its details are attached (on a worker thread). */
+    public void addListener(Consumer<ProcessResult> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Queues a validated plate for enrichment; its details are attached to {@code result} when
+     * they arrive. Returns at once: duplicates join the pending lookup, and recently enriched
+     * plates get their stored details immediately.
+     */
+    public void submit(ProcessResult result) {
+        JournalEntry known;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            Pending queued = pending.get(result.text);
+            if (queued != null) {
+                queued.waiting.add(result);
+                return;
+            }
+            known = reusable(result.text);
+            if (known == null) {
+                Pending fresh = new Pending(System.currentTimeMillis());
+                fresh.waiting.add(result);
+                pending.put(result.text, fresh);
+                append(new JournalEntry(result.text, fresh.queuedAt, null, null));
+                ready.add(result.text);
+            }
+        }
+        if (known != null) {
+            deliver(result, known.details);
+        }
+    }
+
+    /**
+     * Details for a plate now, for callers that need them inline (the Excel export): reuses a
+     * recent result, otherwise looks the plate up within the shared request budget and keeps
+     * the result for reuse. A failed lookup is not kept, so the next call tries again.
+     * @throws CancellationException If interrupted while waiting for a request slot.
+     * @throws RuntimeException      Whatever the lookup throws when it fails.
+     */
+    public VehicleDetails fetch(String plate) {
+        synchronized (this) {
+            JournalEntry known = reusable(plate);
+            if (known != null) {
+                return known.details;
+            }
+        }
+        try {
+            awaitRequestSlot();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted waiting to look up " + plate);
+        }
+        VehicleDetails details = lookup.apply(plate);
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            JournalEntry entry = new JournalEntry(plate, now, now, details);
+            recent.remove(plate);
+            recent.put(plate, entry);
+            append(entry);
+        }
+        return details;
+    }
+
+    /** Plates waiting for or undergoing a lookup. */
+    public synchronized int depth() {
+        return pending.size();
+    }
+
+    /** How long the oldest waiting plate has been queued, or 0 when the queue is empty. */
+    public synchronized long lagMillis() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        return System.currentTimeMillis() - pending.values().iterator().next().queuedAt;
+    }
+
+    /** Lookups made since start. */
+    public synchronized long enrichedCount() {
+        return enriched;
+    }
+
+    /** Submissions answered from earlier lookups without calling the API. */
+    public synchronized long reusedCount() {
+        return reused;
+    }
+
+    private void workLoop() {
+        while (running) {
+            String plate;
+            try {
+                plate = ready.take();
+                awaitRequestSlot();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            long start = System.nanoTime();
+            VehicleDetails details;
+            try {
+                details = lookup.apply(plate);
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return; // Closed mid-lookup; the journal keeps it queued for the next start
+                }
+                retryLater(plate, e);
+                continue;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (!running) {
+                // Closed mid-lookup: the HTTP client clears the interrupt, so check the flag we set
+                // and keep the plate queued rather than trust an answer cut short
+                return;
+            }
+
+            List<ProcessResult> waiting;
+            synchronized (this) {
+                Pending done = pending.remove(plate);
+                JournalEntry entry = new JournalEntry(plate, done.queuedAt, System.currentTimeMillis(), details);
+                recent.remove(plate);
+                recent.put(plate, entry);
+                append(entry);
+                waiting = done.waiting;
+                enriched++;
+                lookupNanos += elapsed;
+                if (enriched % LOG_INTERVAL == 0) {
+                    logger.info("Enrichment: {} lookups (avg {} ms), {} reused, depth {}, lag {} ms.",
+                            enriched, lookupNanos / enriched / 1_000_000, reused, pending.size(), lagMillisLocked());
+                }
+            }
+            for (ProcessResult result : waiting) {
+                deliver(result, details);
+            }
+        }
+    }
+
+    // The plate stays pending (and queued in the journal) and goes back on the ready queue later
+    private void retryLater(String plate, RuntimeException e) {
+        long delay;
+        synchronized (this) {
+            Pending failed = pending.get(plate);
+            failed.failures++;
+            delay = Math.min(retryMaxMillis, retryMillis << Math.min(failed.failures - 1, 20));
+        }
+        logger.warn("Enrichment lookup failed for {} ({}); retrying in {} ms.", plate, e.toString(), delay);
+        retries.schedule(() -> {
+            if (running) {
+                ready.add(plate);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Caller holds the lock; counts the hit
+    private JournalEntry reusable(String plate) {
+        JournalEntry known = recent.get(plate);
+        if (known == null || System.currentTimeMillis() - known.doneAt > reuseMillis) {
+            return null;
+        }
+        reused++;
+        return known;
+    }
+
+    private long lagMillisLocked() {
+        return pending.isEmpty() ? 0 : System.currentTimeMillis() - pending.values().iterator().next().queuedAt;
+    }
+
+    // Spaces lookups across all workers; each reserves the next free slot and waits for it
+    private void awaitRequestSlot() throws InterruptedException {
+        long slot;
+        synchronized (this) {
+            long now = System.nanoTime();
+            slot = Math.max(now, nextRequestNanos);
+            nextRequestNanos = slot + requestIntervalNanos;
+        }
+        long waitNanos = slot - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void deliver(ProcessResult result, VehicleDetails details) {
+        result.setVehicleDetails(details);
+        for (Consumer<ProcessResult> listener : listeners) {
+            try {
+                listener.accept(result);
+            } catch (RuntimeException e) {
+                logger.error("Enrichment listener failed", e);
+            }
+        }
+    }
+
+    // 1. Rebuild the queue and reusable results, 2. rewrite the journal with just those
+    private synchronized void replayJournal() {
+        long now = System.currentTimeMillis();
+        if (Files.exists(journalPath)) {
+            try {
+                for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+                    JournalEntry entry;
+                    try {
+                        entry = gson.fromJson(line, JournalEntry.class);
+                    } catch (RuntimeException e) {
+                        continue; // Torn last line after a crash
+                    }
+                    if (entry == null || entry.plate == null) {
+                        continue;
+                    }
+                    if (entry.doneAt == null) {
+                        pending.putIfAbsent(entry.plate, new Pending(entry.queuedAt));
+                    } else {
+                        pending.remove(entry.plate);
+                        recent.remove(entry.plate);
+                        if (now - entry.doneAt <= reuseMillis) {
+                            recent.put(entry.plate, entry);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Could not read enrichment journal {}; starting empty.", journalPath, e);
+            }
+        }
+        compactJournal();
+        ready.addAll(pending.keySet());
+        if (!pending.isEmpty() || !recent.isEmpty()) {
+            logger.info("Enrichment queue restored: {} plates waiting, {} recent results.", pending.size(), recent.size());
+        }
+    }
+
+    private void compactJournal() {
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+            Path temp = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (JournalEntry entry : recent.values()) {
+                    writer.write(gson.toJson(entry));
+                    writer.newLine();
+                }
+                for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+                    writer.write(gson.toJson(new JournalEntry(entry.getKey(), entry.getValue().queuedAt, null, null)));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journalLines = recent.size() + pending.size();
+            journal = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.error("Could not write enrichment journal {}; queued plates will not survive a restart.", journalPath, e);
+            journal = null;
+        }
+    }
+
+    private void append(JournalEntry entry) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.write(gson.toJson(entry));
+            journal.newLine();
+            journal.flush();
+        } catch (IOException e) {
+            logger.error("Could not append to enrichment journal {}", journalPath, e);
+        }
+        if (++journalLines > Math.max(MIN_COMPACT_LINES, 2 * (recent.size() + pending.size()))) {
+            expireRecent();
+            compactJournal();
+        }
+    }
+
+    private void expireRecent() {
+        long now = System.currentTimeMillis();
+        recent.values().removeIf(entry -> now - entry.doneAt > reuseMillis);
+    }
+
+    /** Stops the workers; plates still queued stay in the journal for the next start. */
+    @Override
+    public void close() {
+        running = false;
+        retries.shutdownNow();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            try {
+                if (journal != null) {
+                    journal.close();
+                }
+            } catch (IOException e) {
+                logger.error("Error closing enrichment journal", e);
+            }
+            journal = null;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.anpr;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Saves visual evidence (annotated frame plus a tight crop of each valid plate) as JPEG
+ * on a dedicated writer thread. Processing threads only hand off a retained
+ * {@link SharedFrame}; encoding, disk I/O and quota eviction happen here.
+ * Files are rolled into {@code <folder>/<yyyy-MM-dd>/<cameraId>/}. Only files in that layout
+ * with the writer's own names count toward {@code evidence.quotaMb} and are ever evicted.
+ */
+public class EvidenceWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EvidenceWriter.class);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HHmmssSSS");
+    // <kind>_<HHmmssSSS>.jpg frames and <kind>_<HHmmssSSS>_<plate>_crop.jpg crops
+    private static final Pattern DAY_NAME = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z]+_\\d{9}(_[A-Z0-9]+_crop)?\\.jpg");
+
+    private static final class Evidence {
+        final SharedFrame frame;
+        final List<ProcessResult> results;
+        final Path framePath;
+        final Path originalPath;
+
+        Evidence(SharedFrame frame, List<ProcessResult> results, Path framePath, Path originalPath) {
+            this.frame = frame;
+            this.results = results;
+            this.framePath = framePath;
+            this.originalPath = originalPath;
+        }
+    }
+
+    private static final class StoredFile {
+        final Path path;
+        final long size;
+
+        StoredFile(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    private final BlockingQueue<Evidence> queue;
+    private final Path outputRoot;
+    private final Path inputRoot;
+    private final MatOfInt jpegParams;
+    private final int cropPadding;
+    private final boolean saveOriginal;
+    private final long quotaBytes;
+    private final Deque<StoredFile> storedFiles = new ArrayDeque<>();
+    private long usedBytes;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    public EvidenceWriter(AnprConfig config) {
+        this.queue = new ArrayBlockingQueue<>(config.getInt("evidence.queueCapacity", 32));
+        this.outputRoot = Paths.get(config.outputFolder);
+        this.inputRoot = Paths.get(config.inputFolder);
+        this.jpegParams = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, config.getInt("evidence.jpegQuality", 85));
+        this.cropPadding = config.getInt("evidence.cropPadding", 4);
+        this.saveOriginal = config.getBoolean("evidence.saveOriginal", false);
+        this.quotaBytes = (long) (config.getFloat("evidence.quotaMb", 2048f) * 1024 * 1024);
+
+        scanExistingFiles();
+
+        this.writerThread = new Thread(this::writeLoop, "evidence-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues a frame for saving. Takes over the caller's reference on {@code frame},
+     * so callers pass {@code frame.retain()} and release their own reference as usual.
+     * @param kind Filename prefix, e.g. "capture" or "live".
+     * @param results Detections to draw; valid plates are also saved as crops.
+     * @return The path the annotated frame will be written to, or null if the queue was full.
+     */
+    public Path submit(SharedFrame frame, String kind, List<ProcessResult> results) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(frame.captureTimeMillis()), ZoneId.systemDefault());
+        String name = kind + "_" + TIME_FORMAT.format(time) + ".jpg";
+        Path framePath = dayDirectory(outputRoot, time, frame.cameraId()).resolve(name);
+        Path originalPath = saveOriginal ? dayDirectory(inputRoot, time, frame.cameraId()).resolve(name) : null;
+
+        if (!running) {
+            logger.warn("Evidence writer closed, dropping {}", framePath);
+            frame.release();
+            return null;
+        }
+        if (!queue.offer(new Evidence(frame, new ArrayList<>(results), framePath, originalPath))) {
+            logger.warn("Evidence queue full, dropping {}", framePath);
+            frame.release();
+            return null;
+        }
+        return framePath;
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            Evidence evidence;
+            try {
+                evidence = queue.poll(200, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (evidence == null) {
+                continue;
+            }
+            try {
+                write(evidence);
+            } catch (Exception e) {
+                logger.error("Failed to save evidence {}", evidence.framePath, e);
+            } finally {
+                evidence.frame.release();
+            }
+        }
+    }
+
+    private void write(Evidence evidence) throws IOException {
+        Mat frame = evidence.frame.mat();
+        Files.createDirectories(evidence.framePath.getParent());
+
+        // 1. Unannotated original, if configured
+        if (evidence.originalPath != null) {
+            Files.createDirectories(evidence.originalPath.getParent());
+            writeJpeg(evidence.originalPath, frame);
+        }
+
+        // 2. Tight crops of each valid plate, taken from the clean frame
+        String baseName = evidence.framePath.getFileName().toString().replace(".jpg", "");
+        for (ProcessResult result : evidence.results) {
+            if (!result.isValid()) {
+                continue;
+            }
+            int x1 = Math.max(0, result.x1 - cropPadding);
+            int y1 = Math.max(0, result.y1 - cropPadding);
+            int x2 = Math.min(frame.cols(), result.x2 + cropPadding);
+            int y2 = Math.min(frame.rows(), result.y2 + cropPadding);
+            if (x2 <= x1 || y2 <= y1) {
+                continue;
+            }
+            Mat crop = frame.submat(new Rect(x1, y1, x2 - x1, y2 - y1));
+            writeJpeg(evidence.framePath.resolveSibling(baseName + "_" + result.text + "_crop.jpg"), crop);
+            crop.release();
+        }
+
+        // 3. Annotated full frame; drawn on a copy because other holders may still read the frame
+        Mat annotated = frame.clone();
+        for (ProcessResult result : evidence.results) {
+            if (result.isValid()) {
+                Imgproc.rectangle(annotated, new Point(result.x1, result.y1), new Point(result.x2, result.y2), new Scalar(0, 255, 0), 2);
+                Imgproc.putText(annotated, result.text, new Point(result.x1, result.y1 - 10), Imgproc.FONT_HERSHEY_SIMPLEX, 0.9, new Scalar(0, 255, 0), 2);
+            } else {
+                Imgproc.rectangle(annotated, new Point(result.x1, result.y1), new Point(result.x2, result.y2), new Scalar(0, 0, 255), 1);
+            }
+        }
+        writeJpeg(evidence.framePath, annotated);
+        annotated.release();
+        logger.debug("Saved evidence to {}", evidence.framePath);
+
+        enforceQuota();
+    }
+
+    private void writeJpeg(Path path, Mat mat) throws IOException {
+        if (!Imgcodecs.imwrite(path.toString(), mat, jpegParams)) {
+            throw new IOException("Could not encode " + path);
+        }
+        long size = Files.size(path);
+        storedFiles.addLast(new StoredFile(path, size));
+        usedBytes += size;
+    }
+
+    // Oldest-first eviction; files are tracked in write order, which is age order
+    private void enforceQuota() {
+        while (usedBytes > quotaBytes && !storedFiles.isEmpty()) {
+            StoredFile oldest = storedFiles.removeFirst();
+            usedBytes -= oldest.size;
+            try {
+                Files.deleteIfExists(oldest.path);
+                deleteEmptyParents(oldest.path.getParent());
+            } catch (IOException e) {
+                logger.warn("Could not evict evidence file {}", oldest.path, e);
+            }
+        }
+    }
+
+    private void deleteEmptyParents(Path dir) throws IOException {
+        while (dir != null && !dir.equals(outputRoot) && !dir.equals(inputRoot)) {
+            File[] remaining = dir.toFile().listFiles();
+            if (remaining == null || remaining.length > 0) {
+                return;
+            }
+            Files.delete(dir);
+            dir = dir.getParent();
+        }
+    }
+
+    // Picks up what earlier runs wrote; originals only count while they are being saved
+    private void scanExistingFiles() {
+        List<StoredFile> existing = new ArrayList<>();
+        List<Path> roots = saveOriginal ? List.of(outputRoot, inputRoot) : List.of(outputRoot);
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(root, 3)) {
+                files.filter(p -> isOwnFile(root, p)).forEach(p -> existing.add(new StoredFile(p, p.toFile().length())));
+            } catch (IOException e) {
+                logger.warn("Could not scan evidence folder {}", root, e);
+            }
+        }
+        existing.sort(Comparator.comparingLong(f -> f.path.toFile().lastModified()));
+        for (StoredFile file : existing) {
+            storedFiles.addLast(file);
+            usedBytes += file.size;
+        }
+        logger.info("Evidence store holds {} files ({} MB of {} MB quota).", storedFiles.size(), usedBytes >> 20, quotaBytes >> 20);
+        enforceQuota();
+    }
+
+    // <root>/<yyyy-MM-dd>/<cameraId>/<one of our names>
+    private static boolean isOwnFile(Path root, Path file) {
+        Path relative = root.relativize(file);
+        return relative.getNameCount() == 3
+                && DAY_NAME.matcher(relative.getName(0).toString()).matches()
+                && FILE_NAME.matcher(relative.getName(2).toString()).matches()
+                && Files.isRegularFile(file);
+    }
+
+    private static Path dayDirectory(Path root, LocalDateTime time, String cameraId) {
+        return root.resolve(DAY_FORMAT.format(time)).resolve(cameraId);
+    }
+
+    /**
+     * Stops accepting evidence and waits for queued frames to be written.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
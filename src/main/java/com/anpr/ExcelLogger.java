@@ -19,19 +19,24 @@ public class ExcelLogger {
     private static final String[] BASIC_HEADERS = {"Timestamp", "Plate Number"};
     private static final String[] FULL_HEADERS = {"Timestamp", "Plate Number", "Owner Name", "Vehicle Model", "Registration Date"};
 
-    public static synchronized void logBasicDetection(String filePath, String plateNumber) {
+    public static void logBasicDetection(String filePath, String plateNumber) {
+        FrameEvents.SinkWrite event = FrameEvents.SinkWrite.start("excel", plateNumber);
         writeToExcel(filePath, plateNumber, null, BASIC_HEADERS);
+        event.commit();
     }
 
     /**
      * Logs the vehicle details to an Excel file.
-     * Used by the BatchDataEnricher to save full details.
+     * Rewrites the whole workbook per call; batch enrichment streams its output instead.
      */
-    public static synchronized void logVehicleData(String filePath, String plateNumber, VehicleDetails details) {
+    public static void logVehicleData(String filePath, String plateNumber, VehicleDetails details) {
+        FrameEvents.SinkWrite event = FrameEvents.SinkWrite.start("excel", plateNumber);
         writeToExcel(filePath, plateNumber, details, FULL_HEADERS);
+        event.commit();
     }
 
-    private static void writeToExcel(String filePath, String plateNumber, VehicleDetails details, String[] headers) {
+    // Synchronized here rather than in the callers, so a trace shows the wait for another write
+    private static synchronized void writeToExcel(String filePath, String plateNumber, VehicleDetails details, String[] headers) {
         Workbook workbook = null;
         File file = new File(filePath);
 
@@ -0,0 +1,47 @@
+package com.anpr;
+
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tries a fast reader first and hands the plate to a slower one only when the fast read is
+ * unsure or does not form a valid plate. The slower read replaces the fast one only if it
+ * forms a valid plate itself. If the fallback cannot run at all (e.g. the Tesseract library
+ * is missing), the fast reader's result is used as is.
+ */
+public class FallbackPlateOcr implements PlateOcr {
+
+    private static final Logger logger = LoggerFactory.getLogger(FallbackPlateOcr.class);
+
+    private final PlateOcr primary;
+    private final PlateOcr fallback;
+    private final float minConfidence;
+    private volatile boolean fallbackAvailable = true;
+
+    /**
+     * @param minConfidence Primary results below this confidence go to the fallback.
+     */
+    public FallbackPlateOcr(PlateOcr primary, PlateOcr fallback, float minConfidence) {
+        this.primary = primary;
+        this.fallback = fallback;
+        this.minConfidence = minConfidence;
+    }
+
+    @Override
+    public Result recognize(Mat grayPlate) {
+        Result result = primary.recognize(grayPlate);
+        if (!fallbackAvailable || (result.confidence >= minConfidence
+                && ProcessResult.isValidPlate(DetectionProcessor.normalizePlate(result)))) {
+            return result;
+        }
+        try {
+            Result second = fallback.recognize(grayPlate);
+            return ProcessResult.isValidPlate(DetectionProcessor.normalizePlate(second)) ? second : result;
+        } catch (LinkageError e) {
+            logger.warn("Fallback OCR unavailable, using primary results only: {}", e.toString());
+            fallbackAvailable = false;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.anpr;
+
+import java.time.Duration;
+import java.util.List;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Java Flight Recorder events for each step of a frame's life: capture, queueing, inference,
+ * OCR and the sink writes. Every event carries the camera id and {@link SharedFrame#sequence()}
+ * of its frame, so {@link FrameTraceAnalyzer} can rebuild the timeline of each plate.
+ * <p>
+ * Steps deep in the pipeline do not see the frame, so the thread working on it sets it with
+ * {@link #enter(SharedFrame)} and clears it with {@link #exit()}. Events are cheap when no
+ * recording runs; with {@code trace.enabled} the application keeps a bounded recording in
+ * the background that can be dumped at any time with
+ * {@code jcmd <pid> JFR.dump name=anpr-trace filename=trace.jfr}.
+ */
+public final class FrameEvents {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrameEvents.class);
+    public static final String RECORDING_NAME = "anpr-trace";
+
+    private static final ThreadLocal<SharedFrame> current = new ThreadLocal<>();
+
+    private FrameEvents() {
+    }
+
+    /** Marks {@code frame} as the one this thread is working on. */
+    public static void enter(SharedFrame frame) {
+        current.set(frame);
+    }
+
+    public static void exit() {
+        current.remove();
+    }
+
+    // Fills the correlation fields from the frame this thread is working on, if any
+    private static <T extends FrameEvent> T tag(T event) {
+        SharedFrame frame = current.get();
+        if (frame != null) {
+            event.camera = frame.cameraId();
+            event.frame = frame.sequence();
+        }
+        return event;
+    }
+
+    /** Common correlation fields. */
+    @Category({"ANPR", "Frame Pipeline"})
+    @StackTrace(false)
+    public abstract static class FrameEvent extends Event {
+        @Label("Camera")
+        String camera;
+
+        @Label("Frame")
+        @Description("Process-wide frame sequence number")
+        long frame;
+    }
+
+    @Name("com.anpr.FrameCapture")
+    @Label("Frame Capture")
+    @Description("A camera frame taken for processing; the duration is the decode or copy")
+    public static final class Capture extends FrameEvent {
+        @Label("Capture Time")
+        @Description("When the camera loop received the frame")
+        @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+        long captureTime;
+
+        static Capture start(String cameraId) {
+            Capture event = new Capture();
+            event.camera = cameraId;
+            event.begin();
+            return event;
+        }
+
+        void commit(SharedFrame taken) {
+            end();
+            if (taken != null && shouldCommit()) {
+                frame = taken.sequence();
+                captureTime = taken.captureTimeMillis();
+                commit();
+            }
+        }
+    }
+
+    @Name("com.anpr.FrameQueue")
+    @Label("Frame Queue")
+    @Description("Wait in the inference queue, from submission until the worker takes or drops the frame")
+    public static final class Queue extends FrameEvent {
+        @Label("Priority")
+        String priority;
+
+        @Label("Dropped")
+        boolean dropped;
+
+        static Queue start(SharedFrame frame, InferenceScheduler.Priority priority) {
+            Queue event = new Queue();
+            event.camera = frame.cameraId();
+            event.frame = frame.sequence();
+            event.priority = priority.name();
+            event.begin();
+            return event;
+        }
+
+        void commit(boolean dropped) {
+            end();
+            if (shouldCommit()) {
+                this.dropped = dropped;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.anpr.Inference")
+    @Label("Inference")
+    @Description("Plate detection model passes over one frame")
+    public static final class Inference extends FrameEvent {
+        @Label("Regions")
+        int regions;
+
+        @Label("Candidates")
+        int candidates;
+
+        static Inference start() {
+            Inference event = tag(new Inference());
+            event.begin();
+            return event;
+        }
+
+        void commit(int regions, int candidates) {
+            end();
+            if (shouldCommit()) {
+                this.regions = regions;
+                this.candidates = candidates;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.anpr.Ocr")
+    @Label("OCR")
+    @Description("Reading one plate crop: quality gate, cache lookup and OCR")
+    public static final class Ocr extends FrameEvent {
+        @Label("Plate")
+        String plate;
+
+        @Label("Outcome")
+        @Description("read, cached or the quality gate's rejection reason")
+        String outcome;
+
+        static Ocr start() {
+            Ocr event = tag(new Ocr());
+            event.begin();
+            return event;
+        }
+
+        void commit(String plate, String outcome) {
+            end();
+            if (shouldCommit()) {
+                this.plate = plate;
+                this.outcome = outcome;
+                commit();
+            }
+        }
+    }
+
+    @Name("com.anpr.SinkWrite")
+    @Label("Sink Write")
+    @Description("Writing a plate to a sink, including the wait for the sink's lock")
+    public static final class SinkWrite extends FrameEvent {
+        @Label("Sink")
+        String sink;
+
+        @Label("Plate")
+        String plate;
+
+        static SinkWrite start(String sink, String plate) {
+            SinkWrite event = tag(new SinkWrite());
+            event.sink = sink;
+            event.plate = plate;
+            event.begin();
+            return event;
+        }
+    }
+
+    /**
+     * Starts the background recording of the pipeline events, bounded by
+     * {@code trace.maxAgeMinutes} and {@code trace.maxSizeMb}.
+     * @return The running recording, or null if it could not be started.
+     */
+    public static Recording startRecording(AnprConfig config) {
+        try {
+            Recording recording = new Recording();
+            recording.setName(RECORDING_NAME);
+            for (Class<? extends Event> type : eventTypes()) {
+                recording.enable(type);
+            }
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofMinutes(config.getInt("trace.maxAgeMinutes", 10)));
+            recording.setMaxSize(config.getInt("trace.maxSizeMb", 64) * 1024L * 1024L);
+            recording.start();
+            logger.info("Frame tracing on; dump with: jcmd {} JFR.dump name={} filename=trace.jfr",
+                    ProcessHandle.current().pid(), RECORDING_NAME);
+            return recording;
+        } catch (RuntimeException e) {
+            logger.warn("Could not start the frame trace recording: {}", e.toString());
+            return null;
+        }
+    }
+
+    static List<Class<? extends Event>> eventTypes() {
+        return List.of(Capture.class, Queue.class, Inference.class, Ocr.class, SinkWrite.class);
+    }
+}
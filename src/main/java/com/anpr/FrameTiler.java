@@ -0,0 +1,104 @@
+package com.anpr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.opencv.core.Rect;
+
+/**
+ * Works out which parts of a frame the detector runs on for the configured
+ * {@code detection.strategy}: the whole frame, the camera's fixed regions of interest,
+ * or overlapping square tiles of those regions.
+ */
+final class FrameTiler {
+
+    private FrameTiler() {
+    }
+
+    /**
+     * @param cameraId Camera the frame came from; picks its {@code detection.roi.<camera>} regions.
+     * @return Regions in frame pixels; never empty.
+     */
+    static List<Rect> regions(AnprConfig config, String cameraId, int frameWidth, int frameHeight) {
+        Rect frame = new Rect(0, 0, frameWidth, frameHeight);
+        if (config.detectionStrategy.equals("full")) {
+            return Collections.singletonList(frame);
+        }
+
+        List<Rect> rois = parseRois(config.roiSpec(cameraId), frameWidth, frameHeight);
+        if (rois.isEmpty()) {
+            rois = Collections.singletonList(frame);
+        }
+        if (config.detectionStrategy.equals("roi")) {
+            return rois;
+        }
+
+        List<Rect> tiles = new ArrayList<>();
+        for (Rect roi : rois) {
+            tiles.addAll(tile(roi, config.tileSize, config.tileOverlap));
+        }
+        return tiles;
+    }
+
+    /**
+     * Parses {@code x,y,width,height;...} and clips each region to the frame. Regions that
+     * fall outside the frame are dropped.
+     */
+    static List<Rect> parseRois(String spec, int frameWidth, int frameHeight) {
+        List<Rect> rois = new ArrayList<>();
+        if (spec == null || spec.isBlank()) {
+            return rois;
+        }
+        for (String part : spec.split(";")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            String[] values = part.split(",");
+            if (values.length != 4) {
+                throw new IllegalArgumentException("Region must be x,y,width,height: " + part);
+            }
+            int x = Math.max(0, Integer.parseInt(values[0].trim()));
+            int y = Math.max(0, Integer.parseInt(values[1].trim()));
+            int right = Math.min(frameWidth, Integer.parseInt(values[0].trim()) + Integer.parseInt(values[2].trim()));
+            int bottom = Math.min(frameHeight, Integer.parseInt(values[1].trim()) + Integer.parseInt(values[3].trim()));
+            if (right > x && bottom > y) {
+                rois.add(new Rect(x, y, right - x, bottom - y));
+            }
+        }
+        return rois;
+    }
+
+    /**
+     * Covers {@code area} with square tiles of {@code tileSize} whose neighbours overlap by at
+     * least {@code overlap} of a tile. Tiles are spread evenly so the last one ends on the area
+     * edge; an area narrower than a tile gets a single tile spanning it on that axis.
+     */
+    static List<Rect> tile(Rect area, int tileSize, float overlap) {
+        int stride = Math.max(1, Math.round(tileSize * (1 - overlap)));
+        int[] xs = positions(area.x, area.width, tileSize, stride);
+        int[] ys = positions(area.y, area.height, tileSize, stride);
+        int width = Math.min(tileSize, area.width);
+        int height = Math.min(tileSize, area.height);
+
+        List<Rect> tiles = new ArrayList<>(xs.length * ys.length);
+        for (int y : ys) {
+            for (int x : xs) {
+                tiles.add(new Rect(x, y, width, height));
+            }
+        }
+        return tiles;
+    }
+
+    private static int[] positions(int start, int length, int size, int stride) {
+        if (length <= size) {
+            return new int[] {start};
+        }
+        int count = (length - size + stride - 1) / stride + 1;
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = start + (int) Math.round((double) i * (length - size) / (count - 1));
+        }
+        return positions;
+    }
+}
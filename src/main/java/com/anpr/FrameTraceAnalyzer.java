@@ -0,0 +1,166 @@
+package com.anpr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Latency breakdown of a recording of {@link FrameEvents}, e.g. one dumped with
+ * {@code jcmd <pid> JFR.dump name=anpr-trace filename=trace.jfr}. The events of each frame are
+ * joined on camera and frame number into a {@link Timeline}; the report prints percentiles
+ * per step and the slowest frames that logged a plate.
+ */
+public class FrameTraceAnalyzer {
+
+    /** Steps in pipeline order. */
+    static final String[] STEPS = {"wait", "capture", "queue", "inference", "ocr", "sink", "total"};
+
+    /** The steps of one frame, in milliseconds. */
+    static final class Timeline {
+        final String camera;
+        final long frame;
+        final Map<String, Double> millis = new LinkedHashMap<>();
+        final TreeSet<String> plates = new TreeSet<>();
+        Instant captured;
+        Instant firstEvent;
+        Instant lastEvent;
+        boolean dropped;
+
+        Timeline(String camera, long frame) {
+            this.camera = camera;
+            this.frame = frame;
+        }
+
+        void add(String step, Duration duration) {
+            millis.merge(step, duration.toNanos() / 1e6, Double::sum);
+        }
+
+        void seen(RecordedEvent event) {
+            if (firstEvent == null || event.getStartTime().isBefore(firstEvent)) {
+                firstEvent = event.getStartTime();
+            }
+            if (lastEvent == null || event.getEndTime().isAfter(lastEvent)) {
+                lastEvent = event.getEndTime();
+            }
+        }
+
+        // From the camera loop receiving the frame (or the first step seen) to the end of the last step
+        double totalMillis() {
+            Instant start = captured != null ? captured : firstEvent;
+            return Duration.between(start, lastEvent).toNanos() / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder(String.format("%s#%d", camera, frame));
+            for (String step : STEPS) {
+                Double ms = millis.get(step);
+                if (ms != null) {
+                    line.append(String.format(" %s=%.1f", step, ms));
+                }
+            }
+            return line.append(" plates=").append(plates).toString();
+        }
+    }
+
+    /** Joins the pipeline events of a recording per frame, in frame order. */
+    static List<Timeline> timelines(Path recording) throws IOException {
+        Map<String, Timeline> byFrame = new LinkedHashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+            String type = event.getEventType().getName();
+            if (!type.startsWith("com.anpr.") || event.getLong("frame") == 0) {
+                continue;
+            }
+            String camera = event.getString("camera");
+            long frame = event.getLong("frame");
+            Timeline timeline = byFrame.computeIfAbsent(camera + '#' + frame, k -> new Timeline(camera, frame));
+            timeline.seen(event);
+            switch (type) {
+                case "com.anpr.FrameCapture":
+                    timeline.captured = event.getInstant("captureTime");
+                    timeline.add("wait", Duration.between(timeline.captured, event.getStartTime()));
+                    timeline.add("capture", event.getDuration());
+                    break;
+                case "com.anpr.FrameQueue":
+                    timeline.add("queue", event.getDuration());
+                    timeline.dropped = event.getBoolean("dropped");
+                    break;
+                case "com.anpr.Inference":
+                    timeline.add("inference", event.getDuration());
+                    break;
+                case "com.anpr.Ocr":
+                    timeline.add("ocr", event.getDuration());
+                    break;
+                case "com.anpr.SinkWrite":
+                    timeline.add("sink", event.getDuration());
+                    timeline.plates.add(event.getString("plate"));
+                    break;
+                default:
+                    break;
+            }
+        }
+        List<Timeline> timelines = new ArrayList<>(byFrame.values());
+        for (Timeline timeline : timelines) {
+            timeline.millis.put("total", timeline.totalMillis());
+        }
+        timelines.sort(Comparator.comparingLong((Timeline t) -> t.frame));
+        return timelines;
+    }
+
+    private static double percentile(List<Double> sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * Prints the breakdown of a recording, e.g. {@code trace.jfr 10} for the 10 slowest plates.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: FrameTraceAnalyzer <recording.jfr> [slowest]");
+            return;
+        }
+        int slowest = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<Timeline> timelines = timelines(Paths.get(args[0]));
+        long dropped = timelines.stream().filter(t -> t.dropped).count();
+        System.out.printf("%d frames traced, %d dropped as stale%n%n", timelines.size(), dropped);
+
+        System.out.printf("%-10s %7s %9s %9s %9s %9s%n", "step (ms)", "frames", "p50", "p90", "p99", "max");
+        for (String step : STEPS) {
+            List<Double> values = new ArrayList<>();
+            for (Timeline timeline : timelines) {
+                Double ms = timeline.millis.get(step);
+                if (ms != null && !timeline.dropped) {
+                    values.add(ms);
+                }
+            }
+            if (values.isEmpty()) {
+                continue;
+            }
+            values.sort(null);
+            System.out.printf("%-10s %7d %9.1f %9.1f %9.1f %9.1f%n", step, values.size(),
+                    percentile(values, 0.5), percentile(values, 0.9), percentile(values, 0.99), values.get(values.size() - 1));
+        }
+
+        List<Timeline> logged = new ArrayList<>();
+        for (Timeline timeline : timelines) {
+            if (!timeline.plates.isEmpty()) {
+                logged.add(timeline);
+            }
+        }
+        logged.sort(Comparator.comparingDouble((Timeline t) -> t.millis.get("total")).reversed());
+        System.out.printf("%nSlowest logged plates:%n");
+        logged.stream().limit(slowest).forEach(System.out::println);
+    }
+}
@@ -1,66 +1,225 @@
 package com.anpr;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import org.opencv.core.Core;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
-import org.opencv.core.Size;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfRect2d;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Rect2d;
+import org.opencv.core.Scalar;
 import org.opencv.dnn.Dnn;
-import org.opencv.dnn.Net;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import net.sourceforge.tess4j.Tesseract;
 
 public class ImageProcessor {
 
-    private final Net yoloNet;
+    private static final Logger logger = LoggerFactory.getLogger(ImageProcessor.class);
+
+    private final PlateDetector detector;
     private final DetectionProcessor detectionProcessor;
-    private final float confidenceThreshold;
+    private final Supplier<AnprConfig> config;
+    // Per camera, so frames of different cameras are never diffed against each other
+    private final Map<String, CameraRegions> cameraRegions = new HashMap<>();
+    private boolean batchSupported = true;
+    private long modelPasses;
 
     public ImageProcessor() {
-        // 1. Load YOLO Model
-        String modelPath = ConfigLoader.getProperty("model.path");
-        this.yoloNet = Dnn.readNetFromONNX(modelPath);
-        if (yoloNet.empty()) {
-            throw new RuntimeException("Failed to load YOLO model from " + modelPath);
+        this(ConfigLoader::current);
+    }
+
+    /**
+     * @param config Source of the current configuration snapshot; read once per frame so
+     *               thresholds can be tuned while running. Model path, detector and OCR
+     *               engine settings are only read here.
+     */
+    public ImageProcessor(Supplier<AnprConfig> config) {
+        this(config, createDetector(config.get()), createOcr(config.get()));
+    }
+
+    /** Detector regions of one camera and its motion state. */
+    private static final class CameraRegions {
+        final MotionGate motionGate = new MotionGate();
+        // Recomputed only when the config snapshot or the frame size changes
+        AnprConfig config;
+        int width;
+        int height;
+        List<Rect> regions;
+    }
+
+    ImageProcessor(Supplier<AnprConfig> config, PlateDetector detector, PlateOcr ocr) {
+        this.config = config;
+        this.detector = detector;
+
+        // Initialize Helper Processors
+        Pattern platePattern = Pattern.compile("^[A-Z]{2}[0-9]{2}[A-Z]{1,2}[0-9]{4}$");
+        this.detectionProcessor = new DetectionProcessor(ocr, platePattern);
+    }
+
+    /**
+     * Loads the YOLO model and initializes the OCR engine in parallel on {@code executor}.
+     * @param config Same as {@link #ImageProcessor(Supplier)}.
+     * @return A future completing with the processor, or exceptionally if either part fails.
+     */
+    public static CompletableFuture<ImageProcessor> createAsync(Supplier<AnprConfig> config, Executor executor) {
+        AnprConfig startupConfig = config.get();
+        CompletableFuture<PlateDetector> model = CompletableFuture.supplyAsync(() -> createDetector(startupConfig), executor);
+        CompletableFuture<PlateOcr> ocr = CompletableFuture.supplyAsync(() -> createOcr(startupConfig), executor);
+        return model.thenCombine(ocr, (plateDetector, plateOcr) -> new ImageProcessor(config, plateDetector, plateOcr));
+    }
+
+    /**
+     * Loads {@code model.path} with the backend chosen by {@code detector.engine}: "opencv"
+     * (OpenCV DNN) or "onnxruntime" (ONNX Runtime on the CPU, needed to run INT8 exports fast).
+     */
+    static PlateDetector createDetector(AnprConfig startupConfig) {
+        String engine = startupConfig.get("detector.engine", "opencv");
+        switch (engine) {
+            case "opencv":
+                return new OpenCvDetector(startupConfig.modelPath);
+            case "onnxruntime":
+                return new OnnxRuntimeDetector(startupConfig.modelPath, startupConfig);
+            default:
+                throw new IllegalArgumentException("detector.engine must be opencv or onnxruntime: " + engine);
         }
-        System.out.println("YOLO model loaded successfully.");
+    }
 
-        // 2. Initialize Tesseract
-        Tesseract tesseract = new Tesseract();
+    /**
+     * Builds the reader chosen by {@code ocr.engine}: "tesseract", or "classifier" with
+     * Tesseract as the fallback for unsure reads.
+     */
+    private static PlateOcr createOcr(AnprConfig startupConfig) {
+        Tesseract tesseract = new TesseractOcr.SymbolTesseract();
         try {
-            tesseract.setDatapath(ConfigLoader.getProperty("tesseract.path"));
+            tesseract.setDatapath(startupConfig.tesseractPath);
         } catch (Exception e) {
             throw new RuntimeException("Failed to set Tesseract data path.", e);
         }
+        TesseractOcr tesseractOcr = new TesseractOcr(tesseract);
 
-        // 3. Initialize Helper Processors
-        Pattern platePattern = Pattern.compile("^[A-Z]{2}[0-9]{2}[A-Z]{1,2}[0-9]{4}$");
-        this.detectionProcessor = new DetectionProcessor(tesseract, platePattern);
-        this.confidenceThreshold = ConfigLoader.getFloatProperty("detection.confidenceThreshold", 0.5f);
+        String engine = startupConfig.get("ocr.engine", "tesseract");
+        switch (engine) {
+            case "tesseract":
+                return tesseractOcr;
+            case "classifier":
+                return new FallbackPlateOcr(new CharacterClassifierOcr(startupConfig), tesseractOcr,
+                        startupConfig.getFloat("ocr.fallbackConfidence", 0.1f));
+            default:
+                throw new IllegalArgumentException("ocr.engine must be tesseract or classifier: " + engine);
+        }
     }
 
-    public synchronized List<ProcessResult> processImage(Mat frame) {
-        List<ProcessResult> validResults = new ArrayList<>();
+    /**
+     * Runs the full pipeline on synthetic frames so DNN layer buffers are allocated, the
+     * hot methods are compiled and the Tesseract library and language data are loaded
+     * before the first real frame arrives.
+     * @param frames Number of passes; 0 disables the warm-up.
+     */
+    public void warmUp(int frames) {
+        if (frames <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        Mat frame = new Mat(720, 1280, CvType.CV_8UC3, new Scalar(90, 90, 90));
+        Imgproc.rectangle(frame, new Point(490, 330), new Point(790, 400), new Scalar(255, 255, 255), -1);
+        Imgproc.putText(frame, "MH12AB1234", new Point(505, 380), Imgproc.FONT_HERSHEY_SIMPLEX, 1.2, new Scalar(0, 0, 0), 3);
 
-        // 1. Prepare frame for YOLO
-        Mat inputBlob = Dnn.blobFromImage(frame, 1 / 255.0, new Size(640, 640), new org.opencv.core.Scalar(0), true, false);
-        yoloNet.setInput(inputBlob);
+        // The model rarely fires on a drawn plate, so OCR is also driven directly with a
+        // detection row (cx, cy, w, h, conf in 640x640 space) covering the plate
+        Mat plateRow = new Mat(1, 5, CvType.CV_32F);
+        plateRow.put(0, 0, 640 * 640 / 1280.0, 365 * 640 / 720.0, 300 * 640 / 1280.0, 70 * 640 / 720.0, 1.0);
+        // Repeated reads of the same drawn plate must reach the OCR engine, not the cache
+        AnprConfig uncached = config.get().with("ocr.cache.size", "0");
 
-        // 2. Run Inference
-        Mat output = yoloNet.forward();
-        Mat detections = output.reshape(1, (int) output.size(1));
-        Core.transpose(detections, detections);
+        boolean ocrAvailable = true;
+        try {
+            for (int i = 0; i < frames; i++) {
+                if (!ocrAvailable) {
+                    runModel(frame);
+                    continue;
+                }
+                try {
+                    processImage(frame);
+                    synchronized (this) {
+                        detectionProcessor.process(plateRow, frame, uncached);
+                    }
+                } catch (RuntimeException | LinkageError e) {
+                    // A broken OCR install should surface on real frames; keep warming the detector
+                    logger.warn("OCR warm-up failed: {}", e.toString());
+                    ocrAvailable = false;
+                }
+            }
+            detectionProcessor.ocrCache().clear();
+            detectionProcessor.qualityGate().clear();
+            logger.info("Warm-up of {} frames finished in {} ms.", frames, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            plateRow.release();
+            frame.release();
+        }
+    }
 
-        // 3. Process each detection
-        for (int i = 0; i < detections.rows(); i++) {
-            Mat row = detections.row(i);
-            if ((float) row.get(0, 4)[0] < confidenceThreshold) {
-                continue;
+    /**
+     * Runs the pipeline on a frame taken from the {@link InferenceScheduler}. Only routine
+     * stream frames (live and ingest) go through the camera's motion gate; an operator's
+     * capture always scans every region, even if the scene has not changed.
+     */
+    public List<ProcessResult> processFrame(SharedFrame frame, InferenceScheduler.Priority priority) {
+        boolean stream = priority == InferenceScheduler.Priority.LIVE || priority == InferenceScheduler.Priority.INGEST;
+        return processImage(frame.mat(), frame.cameraId(), stream);
+    }
+
+    /**
+     * Runs the pipeline on a single frame of the configured camera, scanning every region.
+     */
+    public List<ProcessResult> processImage(Mat frame) {
+        return processImage(frame, config.get().cameraId, false);
+    }
+
+    /**
+     * @param cameraId Camera the frame came from; picks its regions of interest and motion state.
+     * @param motionGated Whether tiles where nothing moved since the camera's previous gated frame are skipped.
+     */
+    public synchronized List<ProcessResult> processImage(Mat frame, String cameraId, boolean motionGated) {
+        List<ProcessResult> validResults = new ArrayList<>();
+        AnprConfig frameConfig = config.get();
+        String camera = cameraId != null ? cameraId : frameConfig.cameraId;
+
+        // 1. Pick the regions to run YOLO on (whole frame, fixed ROIs or tiles with motion)
+        List<Rect> regions = regionsFor(frame, camera, motionGated, frameConfig);
+
+        // 2. Run inference and map every candidate back to frame coordinates
+        FrameEvents.Inference inference = FrameEvents.Inference.start();
+        List<Rect2d> boxes = new ArrayList<>();
+        List<Float> scores = new ArrayList<>();
+        if (frameConfig.batchTiles && batchSupported && regions.size() > 1) {
+            detectBatched(frame, regions, frameConfig.confidenceThreshold, boxes, scores);
+        } else {
+            for (Rect region : regions) {
+                Mat input = region.width == frame.cols() && region.height == frame.rows() ? frame : frame.submat(region);
+                collectBoxes(runModel(input), region, frameConfig.confidenceThreshold, boxes, scores);
             }
+        }
+        inference.commit(regions.size(), boxes.size());
 
-            ProcessResult result = detectionProcessor.process(row, frame);
+        // 3. Merge overlapping candidates (including the same plate seen by two tiles) and OCR each
+        for (int index : suppressOverlaps(boxes, scores, frameConfig)) {
+            Rect2d box = boxes.get(index);
+            Rect frameBox = new Rect((int) box.x, (int) box.y, (int) box.width, (int) box.height);
+            ProcessResult result = detectionProcessor.process(frameBox, frame, camera, frameConfig);
             if (result != null) { // Return all processed results, not just valid ones
                 validResults.add(result);
             }
@@ -68,4 +227,114 @@ public class ImageProcessor {
 
         return validResults;
     }
+
+    private List<Rect> regionsFor(Mat frame, String cameraId, boolean motionGated, AnprConfig frameConfig) {
+        CameraRegions camera = cameraRegions.computeIfAbsent(cameraId, k -> new CameraRegions());
+        if (frameConfig != camera.config || frame.cols() != camera.width || frame.rows() != camera.height) {
+            camera.regions = FrameTiler.regions(frameConfig, cameraId, frame.cols(), frame.rows());
+            camera.config = frameConfig;
+            camera.width = frame.cols();
+            camera.height = frame.rows();
+        }
+        if (!motionGated || !frameConfig.detectionStrategy.equals("tiled")) {
+            return camera.regions;
+        }
+        return camera.motionGate.filter(frame, camera.regions, frameConfig.motionMinFraction, frameConfig.fullScanInterval);
+    }
+
+    private void detectBatched(Mat frame, List<Rect> regions, float confidenceThreshold, List<Rect2d> boxes, List<Float> scores) {
+        List<Mat> tiles = new ArrayList<>(regions.size());
+        for (Rect region : regions) {
+            tiles.add(frame.submat(region));
+        }
+        Mat output = detector.detectBatch(tiles);
+        if (output == null) {
+            // Models exported with a fixed batch size of 1 reject batches; fall back to one tile at a time
+            logger.warn("Model does not accept batched input, running tiles one by one.");
+            batchSupported = false;
+            for (int i = 0; i < regions.size(); i++) {
+                collectBoxes(runModel(tiles.get(i)), regions.get(i), confidenceThreshold, boxes, scores);
+            }
+            return;
+        }
+        modelPasses++;
+        for (int i = 0; i < regions.size(); i++) {
+            collectBoxes(output.row(i), regions.get(i), confidenceThreshold, boxes, scores);
+        }
+    }
+
+    private synchronized Mat runModel(Mat input) {
+        modelPasses++;
+        return detector.detect(input);
+    }
+
+    /**
+     * Number of model forward passes so far (a batch counts once); used to report the cost
+     * of a detection strategy.
+     */
+    synchronized long modelPasses() {
+        return modelPasses;
+    }
+
+    /**
+     * Hit rate and OCR time saved by the read cache.
+     */
+    public OcrCache ocrCache() {
+        return detectionProcessor.ocrCache();
+    }
+
+    /**
+     * Crops rejected before OCR and the OCR time saved.
+     */
+    public CropQualityGate qualityGate() {
+        return detectionProcessor.qualityGate();
+    }
+
+    // Scales boxes from the 640x640 model input back to the region they were inferred on
+    private static void collectBoxes(Mat output, Rect region, float confidenceThreshold, List<Rect2d> boxes, List<Float> scores) {
+        double xScale = region.width / 640.0;
+        double yScale = region.height / 640.0;
+        for (Mat row : decodeDetections(output, confidenceThreshold)) {
+            double cx = row.get(0, 0)[0];
+            double cy = row.get(0, 1)[0];
+            double w = row.get(0, 2)[0];
+            double h = row.get(0, 3)[0];
+            boxes.add(new Rect2d(region.x + (cx - w / 2) * xScale, region.y + (cy - h / 2) * yScale, w * xScale, h * yScale));
+            scores.add((float) row.get(0, 4)[0]);
+        }
+    }
+
+    private static int[] suppressOverlaps(List<Rect2d> boxes, List<Float> scores, AnprConfig frameConfig) {
+        if (boxes.isEmpty()) {
+            return new int[0];
+        }
+        MatOfRect2d boxMat = new MatOfRect2d();
+        boxMat.fromList(boxes);
+        MatOfFloat scoreMat = new MatOfFloat();
+        scoreMat.fromList(scores);
+        MatOfInt kept = new MatOfInt();
+        Dnn.NMSBoxes(boxMat, scoreMat, frameConfig.confidenceThreshold, frameConfig.nmsThreshold, kept);
+        return kept.toArray();
+    }
+
+    /**
+     * Converts the raw YOLOv8 output (1 x [4 + classes] x N) into one row per candidate
+     * box and keeps the rows whose confidence reaches the threshold.
+     * @param output The tensor returned by a {@link PlateDetector}.
+     * @param confidenceThreshold Minimum confidence for a row to be kept.
+     * @return Candidate rows in the (cx, cy, w, h, confidence) layout expected by {@link DetectionProcessor}.
+     */
+    static List<Mat> decodeDetections(Mat output, float confidenceThreshold) {
+        Mat detections = output.reshape(1, (int) output.size(1));
+        Core.transpose(detections, detections);
+
+        List<Mat> candidates = new ArrayList<>();
+        for (int i = 0; i < detections.rows(); i++) {
+            Mat row = detections.row(i);
+            if ((float) row.get(0, 4)[0] >= confidenceThreshold) {
+                candidates.add(row);
+            }
+        }
+        return candidates;
+    }
 }
\ No newline at end of file
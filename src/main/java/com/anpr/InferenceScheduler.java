@@ -0,0 +1,250 @@
+package com.anpr;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single inference worker fed from a priority queue, so an operator's capture is processed
+ * next instead of waiting behind live-mode frames. A frame already in the model cannot be
+ * interrupted, so a capture waits for at most one frame in flight.
+ * <p>
+ * Live frames never pile up: each camera keeps at most one queued live frame (a newer one
+ * replaces it), and a live frame older than {@code inference.maxLiveAgeMillis} when its turn
+ * comes is dropped. Dropped frames complete their future with a {@link CancellationException}.
+ */
+public class InferenceScheduler implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(InferenceScheduler.class);
+
+    // Completed frames between two latency log lines
+    private static final int LOG_INTERVAL = 500;
+
+    /** Highest first. */
+    public enum Priority {
+        /** A frame the operator asked for ("Capture & Process"). */
+        CAPTURE,
+        /** A frame pushed by another device or service through the ingest endpoint. */
+        INGEST,
+        /** Routine live-mode frames; dropped when stale. */
+        LIVE
+    }
+
+    private static final class Task implements Comparable<Task> {
+        final SharedFrame frame;
+        final Priority priority;
+        final long sequence;
+        final long submittedNanos = System.nanoTime();
+        final FrameEvents.Queue queued;
+        final CompletableFuture<List<ProcessResult>> result = new CompletableFuture<>();
+
+        Task(SharedFrame frame, Priority priority, long sequence) {
+            this.frame = frame;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.queued = FrameEvents.Queue.start(frame, priority);
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Latency histogram with 1 ms buckets up to {@link #MAX_MILLIS}; slower samples land in the last bucket.
+     */
+    public static final class Latency {
+        private static final int MAX_MILLIS = 10_000;
+        private final long[] buckets = new long[MAX_MILLIS + 1];
+        private long count;
+        private long maxMillis;
+
+        synchronized void record(long millis) {
+            buckets[(int) Math.min(Math.max(0, millis), MAX_MILLIS)]++;
+            count++;
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        /** @param quantile 0 to 1, e.g. 0.99. */
+        public synchronized long percentile(double quantile) {
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int millis = 0; millis < buckets.length; millis++) {
+                seen += buckets[millis];
+                if (seen >= rank && seen > 0) {
+                    return millis;
+                }
+            }
+            return 0;
+        }
+
+        public synchronized long count() {
+            return count;
+        }
+
+        public synchronized long maxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d p50=%dms p99=%dms max=%dms", count(), percentile(0.5), percentile(0.99), maxMillis());
+        }
+    }
+
+    private final BiFunction<SharedFrame, Priority, List<ProcessResult>> processor;
+    private final Supplier<AnprConfig> config;
+    private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+    // The one queued live frame per camera, replaced by newer frames
+    private final Map<String, Task> queuedLive = new ConcurrentHashMap<>();
+    private final Map<Priority, Latency> latency = new EnumMap<>(Priority.class);
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * @param processor Runs the pipeline on one frame, e.g. {@code imageProcessor::processFrame};
+     *                  the priority tells an operator's capture from routine stream frames.
+     * @param config Supplies the current configuration snapshot, usually {@code ConfigLoader::current}.
+     */
+    public InferenceScheduler(BiFunction<SharedFrame, Priority, List<ProcessResult>> processor, Supplier<AnprConfig> config) {
+        this.processor = processor;
+        this.config = config;
+        for (Priority priority : Priority.values()) {
+            latency.put(priority, new Latency());
+        }
+        this.worker = new Thread(this::workerLoop, "inference-worker");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * For processors that need neither the camera nor the priority of a frame, e.g. test stubs.
+     */
+    public InferenceScheduler(Function<Mat, List<ProcessResult>> processor, Supplier<AnprConfig> config) {
+        this((frame, priority) -> processor.apply(frame.mat()), config);
+    }
+
+    /**
+     * Queues a frame. The scheduler takes its own reference, so the caller may release the
+     * frame as soon as this returns.
+     * @return Completes with the results, or with a {@link CancellationException} if the
+     *         frame was dropped as stale or the scheduler closed.
+     */
+    public CompletableFuture<List<ProcessResult>> submit(SharedFrame frame, Priority priority) {
+        Task task = new Task(frame.retain(), priority, sequence.getAndIncrement());
+        if (!running) {
+            drop(task);
+            return task.result;
+        }
+        if (priority == Priority.LIVE) {
+            Task replaced = queuedLive.put(frame.cameraId(), task);
+            if (replaced != null && queue.remove(replaced)) {
+                drop(replaced);
+            }
+        }
+        queue.add(task);
+        return task.result;
+    }
+
+    /** Queue wait plus processing time of completed frames of one priority. */
+    public Latency latency(Priority priority) {
+        return latency.get(priority);
+    }
+
+    /** Live frames dropped as stale or replaced by a newer frame. */
+    public long droppedFrames() {
+        return dropped.get();
+    }
+
+    private void workerLoop() {
+        long completed = 0;
+        while (running) {
+            Task task;
+            try {
+                // Polled rather than taken, so close() stops the loop without interrupting a frame
+                task = queue.poll(200, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (task == null) {
+                continue;
+            }
+            if (task.priority == Priority.LIVE) {
+                queuedLive.remove(task.frame.cameraId(), task);
+                long ageMillis = System.currentTimeMillis() - task.frame.captureTimeMillis();
+                if (ageMillis > config.get().maxLiveAgeMillis) {
+                    drop(task);
+                    continue;
+                }
+            }
+
+            task.queued.commit(false);
+            FrameEvents.enter(task.frame);
+            try {
+                List<ProcessResult> results = processor.apply(task.frame, task.priority);
+                latency.get(task.priority).record((System.nanoTime() - task.submittedNanos) / 1_000_000);
+                task.result.complete(results);
+            } catch (RuntimeException | LinkageError e) {
+                task.result.completeExceptionally(e);
+            } finally {
+                FrameEvents.exit();
+                task.frame.release();
+            }
+
+            if (++completed % LOG_INTERVAL == 0) {
+                logger.info("Inference latency: capture {}, ingest {}, live {}; {} stale live frames dropped.",
+                        latency(Priority.CAPTURE), latency(Priority.INGEST), latency(Priority.LIVE), dropped.get());
+            }
+        }
+    }
+
+    private void drop(Task task) {
+        if (task.priority == Priority.LIVE) {
+            dropped.incrementAndGet();
+        }
+        task.queued.commit(true);
+        task.frame.release();
+        task.result.cancel(false);
+    }
+
+    /**
+     * Stops the worker after the frame in flight, waiting up to 5 seconds for it; queued frames
+     * are dropped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        dropQueued();
+        try {
+            worker.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Frames submitted while closing, after the first drain
+        dropQueued();
+    }
+
+    private void dropQueued() {
+        List<Task> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(this::drop);
+    }
+}
@@ -0,0 +1,414 @@
+package com.anpr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP/1.1 endpoint for frames pushed by edge devices and other services, so decoding the
+ * camera stream need not happen on this box.
+ * <p>
+ * {@code POST /frames} takes either one JPEG ({@code Content-Type: image/jpeg}) or a
+ * {@code multipart/*} batch with one JPEG per part. The camera and capture time come from the
+ * {@code X-Camera-Id} and {@code X-Capture-Time} (epoch millis) headers or the {@code camera}
+ * and {@code timestamp} query parameters; a part's own headers override the request's.
+ * The response is the detections as JSON, one entry per frame for batches.
+ * <p>
+ * Each handler thread reads the body into its own reused heap and native buffers and decodes
+ * straight from the native one. Bodies over {@code ingest.maxBytes} get 413, and requests
+ * beyond {@code ingest.maxConcurrent} in flight get 429 with {@code Retry-After}, so a burst
+ * cannot queue unbounded work in front of the processor.
+ */
+public class IngestServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestServer.class);
+
+    private static final int INITIAL_BUFFER = 512 * 1024;
+
+    /** One detection in the response. */
+    static final class Detection {
+        String plate;
+        boolean valid;
+        int x1, y1, x2, y2;
+
+        Detection(ProcessResult result) {
+            this.plate = result.text;
+            this.valid = result.isValid();
+            this.x1 = result.x1;
+            this.y1 = result.y1;
+            this.x2 = result.x2;
+            this.y2 = result.y2;
+        }
+    }
+
+    /** Results for one frame in the response. */
+    static final class FrameResult {
+        String camera;
+        long timestamp;
+        List<Detection> detections;
+        String error;
+    }
+
+    /** Per-thread body buffer: heap bytes read from the socket and a native copy for imdecode. */
+    private static final class Buffer {
+        byte[] bytes = new byte[INITIAL_BUFFER];
+        Mat mat = new Mat(1, INITIAL_BUFFER, CvType.CV_8UC1);
+    }
+
+    private final InferenceScheduler scheduler;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final int maxBytes;
+    private final int maxBatchFrames;
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(this::newBuffer);
+    // Every thread's buffer, so close() can free their native memory
+    private final Set<Buffer> allBuffers = ConcurrentHashMap.newKeySet();
+    private final Gson gson = new Gson();
+
+    /**
+     * Binds to {@code ingest.host}:{@code ingest.port} (port 0 picks a free one) and starts serving.
+     */
+    public IngestServer(InferenceScheduler scheduler, AnprConfig config) throws IOException {
+        this.scheduler = scheduler;
+        this.maxBytes = config.getInt("ingest.maxBytes", 8 * 1024 * 1024);
+        this.maxBatchFrames = config.getInt("ingest.maxBatchFrames", 16);
+        int maxConcurrent = config.getInt("ingest.maxConcurrent", 4);
+        this.inFlight = new Semaphore(maxConcurrent);
+
+        this.server = HttpServer.create(new InetSocketAddress(config.get("ingest.host", "127.0.0.1"), config.getInt("ingest.port", 8090)), 0);
+        // Twice the limit, so requests over it are still answered (429) promptly instead of waiting for a thread
+        this.executor = Executors.newFixedThreadPool(2 * maxConcurrent);
+        server.setExecutor(executor);
+        server.createContext("/frames", this::handle);
+        server.start();
+        logger.info("Frame ingest listening on http://{}:{}/frames", server.getAddress().getHostString(), port());
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            // Early rejections leave the body unread, so the connection cannot be reused
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                exchange.getResponseHeaders().set("Connection", "close");
+                sendError(exchange, 405, "POST JPEG frames to /frames");
+                return;
+            }
+            String lengthHeader = exchange.getRequestHeaders().getFirst("Content-Length");
+            long declaredLength = lengthHeader == null ? 0 : parseLength(lengthHeader);
+            if (declaredLength < 0) {
+                exchange.getResponseHeaders().set("Connection", "close");
+                sendError(exchange, 400, "Malformed Content-Length");
+                return;
+            }
+            if (declaredLength > maxBytes) {
+                exchange.getResponseHeaders().set("Connection", "close");
+                sendError(exchange, 413, "Body exceeds " + maxBytes + " bytes");
+                return;
+            }
+            if (!inFlight.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.getResponseHeaders().set("Connection", "close");
+                sendError(exchange, 429, "Too many frames in flight");
+                return;
+            }
+            try {
+                process(exchange);
+            } finally {
+                inFlight.release();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Ingest request failed", e);
+        }
+    }
+
+    private void process(HttpExchange exchange) throws IOException {
+        Buffer buffer = buffers.get();
+        int length = readBody(exchange.getRequestBody(), buffer);
+        if (length < 0) {
+            exchange.getResponseHeaders().set("Connection", "close");
+            sendError(exchange, 413, "Body exceeds " + maxBytes + " bytes");
+            return;
+        }
+        // One copy into the native buffer; every frame is decoded from a view of it
+        buffer.mat.put(0, 0, buffer.bytes, 0, length);
+
+        Headers headers = exchange.getRequestHeaders();
+        String query = exchange.getRequestURI().getRawQuery();
+        String camera = first(headers.getFirst("X-Camera-Id"), queryParameter(query, "camera"), "ingest");
+        long timestamp = parseTime(first(headers.getFirst("X-Capture-Time"), queryParameter(query, "timestamp"), null));
+
+        String contentType = headers.getFirst("Content-Type");
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+            String boundary = boundary(contentType);
+            if (boundary == null) {
+                sendError(exchange, 400, "Multipart body without a boundary");
+                return;
+            }
+            List<int[]> parts = findParts(buffer.bytes, length, boundary.getBytes(StandardCharsets.ISO_8859_1));
+            if (parts.isEmpty() || parts.size() > maxBatchFrames) {
+                sendError(exchange, parts.isEmpty() ? 400 : 413, parts.size() + " frames in batch; 1 to " + maxBatchFrames + " allowed");
+                return;
+            }
+
+            List<CompletableFuture<FrameResult>> pending = new ArrayList<>();
+            for (int[] part : parts) {
+                Headers partHeaders = partHeaders(buffer.bytes, part);
+                pending.add(submit(buffer, part[1], part[2],
+                        first(partHeaders.getFirst("X-Camera-Id"), camera, null),
+                        partHeaders.containsKey("X-Capture-Time") ? parseTime(partHeaders.getFirst("X-Capture-Time")) : timestamp));
+            }
+            List<FrameResult> results = new ArrayList<>();
+            for (CompletableFuture<FrameResult> future : pending) {
+                results.add(future.join());
+            }
+            send(exchange, 200, gson.toJson(results));
+        } else {
+            FrameResult result = submit(buffer, 0, length, camera, timestamp).join();
+            send(exchange, result.error == null ? 200 : 422, gson.toJson(result));
+        }
+    }
+
+    private CompletableFuture<FrameResult> submit(Buffer buffer, int start, int end, String camera, long timestamp) {
+        FrameResult result = new FrameResult();
+        result.camera = camera;
+        result.timestamp = timestamp;
+
+        Mat encoded = buffer.mat.colRange(start, end);
+        Mat frame = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+        encoded.release();
+        if (frame.empty()) {
+            frame.release();
+            result.error = "Not a decodable image";
+            return CompletableFuture.completedFuture(result);
+        }
+
+        SharedFrame shared = new SharedFrame(frame, camera, timestamp);
+        CompletableFuture<List<ProcessResult>> processed = scheduler.submit(shared, InferenceScheduler.Priority.INGEST);
+        shared.release();
+        return processed.handle((detections, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                result.error = cause.toString();
+            } else {
+                result.detections = new ArrayList<>();
+                for (ProcessResult detection : detections) {
+                    result.detections.add(new Detection(detection));
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Reads the whole body into the thread's buffer, growing it up to {@code maxBytes}.
+     * @return The body length, or -1 if it is larger than allowed.
+     */
+    private int readBody(InputStream body, Buffer buffer) throws IOException {
+        int length = 0;
+        while (true) {
+            if (length == buffer.bytes.length) {
+                if (length >= maxBytes) {
+                    return body.read() < 0 ? length : -1;
+                }
+                int grown = (int) Math.min(maxBytes, 2L * buffer.bytes.length);
+                buffer.bytes = Arrays.copyOf(buffer.bytes, grown);
+                buffer.mat.release();
+                buffer.mat = new Mat(1, grown, CvType.CV_8UC1);
+            }
+            int read = body.read(buffer.bytes, length, buffer.bytes.length - length);
+            if (read < 0) {
+                return length;
+            }
+            // Checked on every read: the buffer may start out larger than the limit
+            if (length + read > maxBytes) {
+                return -1;
+            }
+            length += read;
+        }
+    }
+
+    private Buffer newBuffer() {
+        Buffer buffer = new Buffer();
+        allBuffers.add(buffer);
+        return buffer;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        FrameResult error = new FrameResult();
+        error.error = message;
+        send(exchange, status, gson.toJson(error));
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Locates the parts of a multipart body.
+     * @return Per part: start of its headers, start of its content and end of its content.
+     */
+    static List<int[]> findParts(byte[] body, int length, byte[] boundary) {
+        byte[] delimiter = new byte[boundary.length + 2];
+        delimiter[0] = '-';
+        delimiter[1] = '-';
+        System.arraycopy(boundary, 0, delimiter, 2, boundary.length);
+
+        List<int[]> parts = new ArrayList<>();
+        int at = indexOf(body, length, delimiter, 0);
+        while (at >= 0) {
+            int afterDelimiter = at + delimiter.length;
+            // "--" after the delimiter closes the body
+            if (afterDelimiter + 1 >= length || (body[afterDelimiter] == '-' && body[afterDelimiter + 1] == '-')) {
+                break;
+            }
+            int headerStart = afterDelimiter + 2; // skip CRLF
+            int headerEnd = indexOf(body, length, new byte[] {'\r', '\n', '\r', '\n'}, headerStart - 2);
+            if (headerEnd < 0) {
+                break;
+            }
+            int contentStart = headerEnd + 4;
+            int next = indexOf(body, length, delimiter, contentStart);
+            if (next < 0) {
+                break;
+            }
+            // The CRLF before the next delimiter belongs to the delimiter
+            int contentEnd = next >= contentStart + 2 && body[next - 2] == '\r' && body[next - 1] == '\n' ? next - 2 : next;
+            parts.add(new int[] {headerStart, contentStart, contentEnd});
+            at = next;
+        }
+        return parts;
+    }
+
+    private static Headers partHeaders(byte[] body, int[] part) {
+        Headers headers = new Headers();
+        int headerLength = Math.max(0, part[1] - 4 - part[0]);
+        for (String line : new String(body, part[0], headerLength, StandardCharsets.ISO_8859_1).split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private static int indexOf(byte[] data, int length, byte[] pattern, int from) {
+        outer:
+        for (int i = Math.max(0, from); i <= length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static String boundary(String contentType) {
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("boundary=")) {
+                String value = trimmed.substring("boundary=".length());
+                return value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+            }
+        }
+        return null;
+    }
+
+    private static String queryParameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    // -1 for a value that is not a non-negative number
+    private static long parseLength(String value) {
+        try {
+            long length = Long.parseLong(value.trim());
+            return length < 0 ? -1 : length;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseTime(String value) {
+        if (value == null || value.isBlank()) {
+            return System.currentTimeMillis();
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return System.currentTimeMillis();
+        }
+    }
+
+    private static String first(String a, String b, String fallback) {
+        return a != null && !a.isBlank() ? a : b != null && !b.isBlank() ? b : fallback;
+    }
+
+    /**
+     * Stops accepting requests, giving those in progress a second to finish, then frees the
+     * per-thread body buffers.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Ingest requests still running at shutdown; their buffers are left to the GC.");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (Buffer buffer : allBuffers) {
+            buffer.mat.release();
+        }
+        allBuffers.clear();
+    }
+}
@@ -0,0 +1,180 @@
+package com.anpr;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps live-mode latency within {@code governor.latencySloMillis} by adjusting how much work
+ * each frame costs and how often frames are taken:
+ * <ul>
+ *   <li>When the smoothed end-to-end latency exceeds the target, the detail level is lowered:
+ *       with the tiled strategy each level enlarges the tiles by half of the configured size,
+ *       so fewer model passes cover the frame. It is raised again once latency stays well
+ *       under the target.</li>
+ *   <li>The pause between live frames grows while process CPU use is above
+ *       {@code governor.targetCpu} (leaving headroom for captures and the rest of the box) and
+ *       shrinks when there is spare CPU.</li>
+ * </ul>
+ * When the coarsest level still misses the target the box is reported as over capacity.
+ * Decisions are logged and readable through the getters; the effective configuration is
+ * {@link #config()}, which the processor reads instead of the raw snapshot.
+ */
+public class LoadGovernor {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGovernor.class);
+
+    // Frames between two decisions, and the weight of the newest frame in the latency average
+    private static final int DECISION_INTERVAL = 10;
+    private static final double SMOOTHING = 0.2;
+    // Latency below this share of the target counts as headroom for more detail
+    private static final double HEADROOM = 0.6;
+    // Shortest pause between live frames, whatever the configuration says
+    private static final long MIN_INTERVAL_FLOOR = 10;
+
+    private final Supplier<AnprConfig> base;
+    private final DoubleSupplier cpuLoad;
+
+    private double latencyMillis = -1;
+    private double cpu;
+    private int frames;
+    private int detailLevel;
+    private long intervalMillis;
+    private boolean overCapacity;
+
+    // Effective snapshot for the current base snapshot and level; rebuilt only when either changes
+    private AnprConfig derivedFrom;
+    private int derivedLevel;
+    private AnprConfig derived;
+
+    public LoadGovernor(Supplier<AnprConfig> base) {
+        this(base, LoadGovernor::processCpuLoad);
+    }
+
+    /**
+     * @param cpuLoad Process CPU use from 0 to 1, or a negative value when unknown.
+     */
+    LoadGovernor(Supplier<AnprConfig> base, DoubleSupplier cpuLoad) {
+        this.base = base;
+        this.cpuLoad = cpuLoad;
+        // Start at the old fixed pace and adjust from there
+        this.intervalMillis = Math.max(50, base.get().getInt("governor.minIntervalMillis", 10));
+    }
+
+    /**
+     * The configuration the processor should use for the next frame: the current snapshot with
+     * the governor's tile size applied. Returns the same instance until something changes, so
+     * per-snapshot caches downstream stay valid.
+     */
+    public synchronized AnprConfig config() {
+        AnprConfig current = base.get();
+        if (current != derivedFrom || detailLevel != derivedLevel) {
+            derivedFrom = current;
+            derivedLevel = detailLevel;
+            derived = detailLevel == 0 ? current
+                    : current.with("detection.tileSize", String.valueOf(current.tileSize + detailLevel * current.tileSize / 2));
+        }
+        return derived;
+    }
+
+    /**
+     * Records one finished live frame and, every few frames, re-tunes the level and interval.
+     * @param endToEndMillis From frame capture to results, including time spent queued.
+     */
+    public synchronized void record(long endToEndMillis) {
+        latencyMillis = latencyMillis < 0 ? endToEndMillis : SMOOTHING * endToEndMillis + (1 - SMOOTHING) * latencyMillis;
+        if (++frames % DECISION_INTERVAL != 0) {
+            return;
+        }
+
+        AnprConfig config = base.get();
+        if (!config.getBoolean("governor.enabled", true)) {
+            return;
+        }
+        long slo = config.getInt("governor.latencySloMillis", 500);
+        int maxLevel = config.detectionStrategy.equals("tiled") ? config.getInt("governor.maxDetailLevels", 4) : 0;
+        int level = detailLevel;
+        boolean over = overCapacity;
+
+        // 1. Detail: coarser while over the target, finer again with clear headroom
+        if (latencyMillis > slo) {
+            if (level < maxLevel) {
+                level++;
+            } else {
+                over = true;
+            }
+        } else if (latencyMillis < HEADROOM * slo) {
+            over = false;
+            if (level > 0) {
+                level--;
+            }
+        }
+
+        // 2. Pace: back off while CPU is saturated, speed up when there is spare capacity
+        cpu = cpuLoad.getAsDouble();
+        double targetCpu = config.getFloat("governor.targetCpu", 0.85f);
+        long minInterval = Math.max(MIN_INTERVAL_FLOOR, config.getInt("governor.minIntervalMillis", 10));
+        long maxInterval = config.getInt("governor.maxIntervalMillis", 1000);
+        long interval = intervalMillis;
+        if (cpu > targetCpu) {
+            interval = Math.min(maxInterval, Math.max(interval * 2, minInterval + 10));
+        } else if (cpu >= 0 && cpu < HEADROOM * targetCpu && latencyMillis <= slo) {
+            interval = Math.max(minInterval, interval / 2);
+        }
+
+        if (level != detailLevel || interval != intervalMillis) {
+            logger.info("Load governor: latency {} ms (target {} ms), CPU {}; detail level {} -> {}, interval {} -> {} ms.",
+                    Math.round(latencyMillis), slo, formatCpu(cpu), detailLevel, level, intervalMillis, interval);
+        }
+        if (over && !overCapacity) {
+            logger.warn("Load governor: over capacity. Latency {} ms exceeds the {} ms target at the coarsest detail level.",
+                    Math.round(latencyMillis), slo);
+        } else if (!over && overCapacity) {
+            logger.info("Load governor: back within capacity ({} ms).", Math.round(latencyMillis));
+        }
+        detailLevel = level;
+        intervalMillis = interval;
+        overCapacity = over;
+    }
+
+    /** Pause before the next live frame. */
+    public synchronized long intervalMillis() {
+        return intervalMillis;
+    }
+
+    /** 0 is the configured detail; each level enlarges the tiles by half their configured size. */
+    public synchronized int detailLevel() {
+        return detailLevel;
+    }
+
+    /** Smoothed end-to-end latency of live frames, or -1 before the first frame. */
+    public synchronized long latencyMillis() {
+        return Math.round(latencyMillis);
+    }
+
+    /** Process CPU use (0 to 1) at the last decision, or negative when the JVM cannot tell. */
+    public synchronized double cpuLoad() {
+        return cpu;
+    }
+
+    /** True while the latency target is missed even at the coarsest detail level. */
+    public synchronized boolean overCapacity() {
+        return overCapacity;
+    }
+
+    private static String formatCpu(double cpu) {
+        return cpu < 0 ? "n/a" : String.format("%.0f%%", cpu * 100);
+    }
+
+    private static double processCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuLoad();
+        }
+        return -1;
+    }
+}
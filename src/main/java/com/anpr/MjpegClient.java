@@ -0,0 +1,431 @@
+package com.anpr;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads an HTTP MJPEG stream ({@code multipart/x-mixed-replace}, e.g. IP Webcam's
+ * {@code /video}) on its own thread over a non-blocking {@link SocketChannel}.
+ * <ul>
+ *   <li>Part boundaries and headers are parsed in place in one reused direct buffer. A part's
+ *       JPEG bytes are read straight into a direct frame buffer, which becomes the latest
+ *       frame when complete.</li>
+ *   <li>Nothing is decoded on arrival: {@link #decode(int)} and {@link #decodeFrame} decode
+ *       the latest frame when a caller needs it, optionally at 1/2, 1/4 or 1/8 scale ({@code IMREAD_REDUCED_*}), which
+ *       skips most of the JPEG decoder's work.</li>
+ *   <li>A stream that drops, errors or stays silent for {@code camera.readTimeoutMillis} is
+ *       reconnected after {@code camera.reconnectMinMillis}, doubling up to
+ *       {@code camera.reconnectMaxMillis} while it stays unreachable.</li>
+ * </ul>
+ */
+public class MjpegClient implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MjpegClient.class);
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int INITIAL_FRAME_BYTES = 256 * 1024;
+    private static final int MAX_FRAME_BYTES = 32 * 1024 * 1024;
+
+    private final URI uri;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long minBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Thread reader;
+
+    // Reader thread only; the read buffer stays in read mode between calls
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES).flip();
+    private ByteBuffer filling = ByteBuffer.allocateDirect(INITIAL_FRAME_BYTES);
+    private byte[] delimiter;
+
+    // Guarded by this
+    private ByteBuffer latest;
+    private long sequence;
+    private long latestMillis;
+
+    private volatile boolean running = true;
+    private volatile boolean connected;
+    private volatile long reconnects;
+
+    public MjpegClient(String url, AnprConfig config) {
+        this.uri = URI.create(url);
+        if (!"http".equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("MJPEG client needs an http:// URL: " + url);
+        }
+        this.connectTimeoutMillis = config.getInt("camera.connectTimeoutMillis", 3000);
+        this.readTimeoutMillis = config.getInt("camera.readTimeoutMillis", 5000);
+        this.minBackoffMillis = Math.max(1, config.getInt("camera.reconnectMinMillis", 100));
+        this.maxBackoffMillis = Math.max(minBackoffMillis, config.getInt("camera.reconnectMaxMillis", 5000));
+        this.reader = new Thread(this::readLoop, "mjpeg-" + uri.getHost());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * The {@code imdecode} flag for a color decode at 1/{@code reduction} scale.
+     * @param reduction 1, 2, 4 or 8.
+     */
+    public static int reducedColor(int reduction) {
+        switch (reduction) {
+            case 1:
+                return Imgcodecs.IMREAD_COLOR;
+            case 2:
+                return Imgcodecs.IMREAD_REDUCED_COLOR_2;
+            case 4:
+                return Imgcodecs.IMREAD_REDUCED_COLOR_4;
+            case 8:
+                return Imgcodecs.IMREAD_REDUCED_COLOR_8;
+            default:
+                throw new IllegalArgumentException("Reduction must be 1, 2, 4 or 8: " + reduction);
+        }
+    }
+
+    /**
+     * Decodes the latest frame. The encoded bytes are read in place, so no copy is made
+     * besides the decoded image.
+     * @param flags {@code Imgcodecs.IMREAD_*} flags, e.g. {@code IMREAD_REDUCED_GRAYSCALE_8}.
+     * @return The decoded frame, or null if none has arrived yet or it does not decode.
+     */
+    public synchronized Mat decode(int flags) {
+        if (latest == null) {
+            return null;
+        }
+        Mat encoded = new Mat(1, latest.limit(), CvType.CV_8UC1, latest);
+        Mat frame = Imgcodecs.imdecode(encoded, flags);
+        encoded.release();
+        if (frame.empty()) {
+            frame.release();
+            return null;
+        }
+        return frame;
+    }
+
+    /**
+     * Decodes the latest frame and stamps it with that frame's arrival time, both under one
+     * lock, so a frame arriving in between cannot pair one frame's pixels with the other's time.
+     * @param flags {@code Imgcodecs.IMREAD_*} flags, as for {@link #decode(int)}.
+     * @return The decoded frame, or null if none has arrived yet or it does not decode.
+     */
+    public synchronized SharedFrame decodeFrame(int flags, String cameraId) {
+        Mat frame = decode(flags);
+        return frame != null ? new SharedFrame(frame, cameraId, latestMillis) : null;
+    }
+
+    /** Number of frames received so far; a changed value means a new frame. */
+    public synchronized long sequence() {
+        return sequence;
+    }
+
+    /** Arrival time of the latest frame, or 0 before the first. */
+    public synchronized long latestMillis() {
+        return latestMillis;
+    }
+
+    /**
+     * Waits until a frame newer than {@code seen} arrives, the timeout passes or the client closes.
+     * @return The current {@link #sequence()}.
+     */
+    public synchronized long awaitFrame(long seen, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (sequence <= seen && running) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                break;
+            }
+            wait(left);
+        }
+        return sequence;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /** Connection attempts after the first. */
+    public long reconnects() {
+        return reconnects;
+    }
+
+    private void readLoop() {
+        long backoff = minBackoffMillis;
+        while (running) {
+            try (SocketChannel channel = SocketChannel.open(); Selector selector = Selector.open()) {
+                // 1. Connect and send the request blocking, then read without blocking
+                channel.socket().connect(new InetSocketAddress(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 80), connectTimeoutMillis);
+                channel.write(ByteBuffer.wrap(request().getBytes(StandardCharsets.ISO_8859_1)));
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ);
+                buffer.clear().flip();
+
+                // 2. Response head, then one part after another
+                String boundary = readResponseHead(channel, selector);
+                connected = true;
+                backoff = minBackoffMillis;
+                logger.info("MJPEG stream {} connected.", uri);
+                skipToDelimiter(channel, selector, boundary);
+                while (running) {
+                    readPart(channel, selector, boundary);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    logger.warn("MJPEG stream {} failed: {}; reconnecting in {} ms.", uri, e.toString(), backoff);
+                }
+            }
+            connected = false;
+            if (!running) {
+                break;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                break;
+            }
+            reconnects++;
+            backoff = Math.min(backoff * 2, maxBackoffMillis);
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private String request() {
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            path += "?" + uri.getRawQuery();
+        }
+        StringBuilder request = new StringBuilder("GET ").append(path).append(" HTTP/1.1\r\n")
+                .append("Host: ").append(uri.getHost()).append(uri.getPort() > 0 ? ":" + uri.getPort() : "").append("\r\n")
+                .append("Accept: multipart/x-mixed-replace, image/jpeg\r\n")
+                .append("Connection: close\r\n");
+        if (uri.getRawUserInfo() != null) {
+            // IP Webcam's optional login
+            String credentials = Base64.getEncoder().encodeToString(uri.getUserInfo().getBytes(StandardCharsets.UTF_8));
+            request.append("Authorization: Basic ").append(credentials).append("\r\n");
+        }
+        return request.append("\r\n").toString();
+    }
+
+    private String readResponseHead(SocketChannel channel, Selector selector) throws IOException {
+        String status = readLine(channel, selector);
+        String[] parts = status.split(" ");
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/") || !parts[1].equals("200")) {
+            throw new IOException("Camera answered " + status);
+        }
+        String boundary = null;
+        for (String line = readLine(channel, selector); !line.isEmpty(); line = readLine(channel, selector)) {
+            if (line.regionMatches(true, 0, "Content-Type:", 0, 13)) {
+                boundary = boundaryOf(line.substring(13));
+            }
+        }
+        if (boundary == null) {
+            throw new IOException("Not a multipart MJPEG stream: " + uri);
+        }
+        return boundary;
+    }
+
+    // Boundary parameter without quotes or leading dashes; some cameras include the "--" in it
+    static String boundaryOf(String contentType) {
+        int start = contentType.toLowerCase(Locale.ROOT).indexOf("boundary=");
+        if (start < 0) {
+            return null;
+        }
+        String value = contentType.substring(start + "boundary=".length());
+        int end = value.indexOf(';');
+        value = (end >= 0 ? value.substring(0, end) : value).trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return stripDashes(value);
+    }
+
+    private static String stripDashes(String line) {
+        int start = 0;
+        while (start < line.length() && line.charAt(start) == '-') {
+            start++;
+        }
+        return line.substring(start);
+    }
+
+    // Consumes lines up to and including the next delimiter; remembers it for parts without a length
+    private void skipToDelimiter(SocketChannel channel, Selector selector, String boundary) throws IOException {
+        while (true) {
+            String line = readLine(channel, selector);
+            String core = stripDashes(line);
+            if (core.equals(boundary + "--")) {
+                throw new EOFException("MJPEG stream ended");
+            }
+            if (core.equals(boundary) && !line.equals(core)) {
+                delimiter = ("\r\n" + line).getBytes(StandardCharsets.ISO_8859_1);
+                return;
+            }
+        }
+    }
+
+    private void readPart(SocketChannel channel, Selector selector, String boundary) throws IOException {
+        // 1. Part headers; only the length matters
+        long length = -1;
+        for (String line = readLine(channel, selector); !line.isEmpty(); line = readLine(channel, selector)) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                length = Long.parseLong(line.substring(15).trim());
+            }
+        }
+        if (length > MAX_FRAME_BYTES) {
+            throw new IOException("MJPEG part of " + length + " bytes");
+        }
+
+        // 2. Body: with a length it is read straight into the frame buffer and published at
+        //    once; without one it runs until the next delimiter
+        if (length >= 0) {
+            ensureCapacity((int) length);
+            filling.clear().limit((int) length);
+            int buffered = Math.min(buffer.remaining(), (int) length);
+            filling.put(buffer.slice().limit(buffered));
+            buffer.position(buffer.position() + buffered);
+            while (filling.hasRemaining()) {
+                readSome(channel, selector, filling);
+            }
+            publish();
+            skipToDelimiter(channel, selector, boundary);
+        } else {
+            filling.clear();
+            scanToDelimiter(channel, selector);
+            String rest = readLine(channel, selector);
+            publish();
+            if (rest.startsWith("--")) {
+                throw new EOFException("MJPEG stream ended");
+            }
+        }
+    }
+
+    // Copies body bytes into the frame buffer until the delimiter, keeping a possible partial match buffered
+    private void scanToDelimiter(SocketChannel channel, Selector selector) throws IOException {
+        while (true) {
+            int found = indexOf(buffer, delimiter);
+            int end = found >= 0 ? found : Math.max(buffer.position(), buffer.limit() - delimiter.length + 1);
+            int count = end - buffer.position();
+            ensureCapacity(filling.position() + count);
+            filling.put(buffer.slice().limit(count));
+            buffer.position(end);
+            if (found >= 0) {
+                buffer.position(found + delimiter.length);
+                return;
+            }
+            fill(channel, selector);
+        }
+    }
+
+    private static int indexOf(ByteBuffer haystack, byte[] needle) {
+        int last = haystack.limit() - needle.length;
+        outer:
+        for (int i = haystack.position(); i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack.get(i + j) != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (bytes > MAX_FRAME_BYTES) {
+            throw new IOException("MJPEG part exceeds " + MAX_FRAME_BYTES + " bytes");
+        }
+        if (bytes > filling.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(Math.min(MAX_FRAME_BYTES, Math.max(bytes, filling.capacity() * 2)));
+            filling.flip();
+            larger.put(filling);
+            filling = larger;
+        }
+    }
+
+    // Swaps the completed frame buffer with the previous latest one
+    private void publish() {
+        filling.flip();
+        synchronized (this) {
+            ByteBuffer previous = latest;
+            latest = filling;
+            latestMillis = System.currentTimeMillis();
+            sequence++;
+            notifyAll();
+            filling = previous != null ? previous : ByteBuffer.allocateDirect(latest.capacity());
+        }
+    }
+
+    // A header line without its CR LF (a bare LF is accepted)
+    private String readLine(SocketChannel channel, Selector selector) throws IOException {
+        int scanned = buffer.position();
+        while (true) {
+            for (int i = scanned; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    int end = i > buffer.position() && buffer.get(i - 1) == '\r' ? i - 1 : i;
+                    byte[] line = new byte[end - buffer.position()];
+                    buffer.get(line);
+                    buffer.position(i + 1);
+                    return new String(line, StandardCharsets.ISO_8859_1);
+                }
+            }
+            scanned = buffer.remaining();
+            fill(channel, selector);
+        }
+    }
+
+    // Reads more after the unparsed bytes, which move to the front of the buffer
+    private void fill(SocketChannel channel, Selector selector) throws IOException {
+        buffer.compact();
+        try {
+            if (!buffer.hasRemaining()) {
+                throw new IOException("MJPEG header line exceeds " + READ_BUFFER_BYTES + " bytes");
+            }
+            readSome(channel, selector, buffer);
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    private void readSome(SocketChannel channel, Selector selector, ByteBuffer target) throws IOException {
+        while (true) {
+            int read = channel.read(target);
+            if (read < 0) {
+                throw new EOFException("Camera closed the stream");
+            }
+            if (read > 0) {
+                return;
+            }
+            if (selector.select(readTimeoutMillis) == 0) {
+                if (!running) {
+                    throw new IOException("Client closed");
+                }
+                throw new SocketTimeoutException("No data for " + readTimeoutMillis + " ms");
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        reader.interrupt();
+        try {
+            reader.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.anpr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Skips detector regions where nothing moved since the previous frame. Frames are compared
+ * on a grayscale copy downscaled by {@link #SCALE}, so the check costs far less than a
+ * model pass. Not thread-safe; {@link ImageProcessor} calls it under its own lock.
+ */
+final class MotionGate {
+
+    static final int SCALE = 8;
+    // Per-pixel change (0-255) that counts as motion rather than sensor noise
+    private static final double PIXEL_DELTA = 25;
+
+    private Mat previous;
+    private int framesSinceFullScan;
+
+    /**
+     * @param minFraction Share of a region's pixels that must change for it to be kept; 0 keeps all.
+     * @param fullScanInterval Every this many frames all regions are kept.
+     * @return The regions to run the detector on.
+     */
+    List<Rect> filter(Mat frame, List<Rect> regions, float minFraction, int fullScanInterval) {
+        if (minFraction <= 0 || regions.size() == 1) {
+            return regions;
+        }
+
+        Mat small = new Mat();
+        Imgproc.resize(frame, small, new Size(Math.max(1, frame.cols() / SCALE), Math.max(1, frame.rows() / SCALE)), 0, 0, Imgproc.INTER_AREA);
+        if (small.channels() > 1) {
+            Imgproc.cvtColor(small, small, Imgproc.COLOR_BGR2GRAY);
+        }
+
+        Mat changed = advance(small, fullScanInterval);
+        if (changed == null) {
+            return regions;
+        }
+        List<Rect> moving = new ArrayList<>();
+        for (Rect region : regions) {
+            int x = Math.min(region.x / SCALE, changed.cols() - 1);
+            int y = Math.min(region.y / SCALE, changed.rows() - 1);
+            Rect scaled = new Rect(x, y,
+                    Math.max(1, Math.min(region.width / SCALE, changed.cols() - x)),
+                    Math.max(1, Math.min(region.height / SCALE, changed.rows() - y)));
+            Mat area = changed.submat(scaled);
+            if (Core.countNonZero(area) >= minFraction * scaled.area()) {
+                moving.add(region);
+            }
+            area.release();
+        }
+        changed.release();
+        return moving;
+    }
+
+    /**
+     * Whole-frame check on a frame that is already gray and reduced by {@link #SCALE}, e.g.
+     * decoded with {@code IMREAD_REDUCED_GRAYSCALE_8}; takes ownership of {@code small}.
+     * @return Whether at least {@code minFraction} of the pixels changed; always true on a full scan.
+     */
+    boolean moved(Mat small, float minFraction, int fullScanInterval) {
+        if (minFraction <= 0) {
+            small.release();
+            return true;
+        }
+        Mat changed = advance(small, fullScanInterval);
+        if (changed == null) {
+            return true;
+        }
+        boolean moved = Core.countNonZero(changed) >= minFraction * changed.total();
+        changed.release();
+        return moved;
+    }
+
+    // Thresholded difference to the previous frame, or null when a full scan is due; keeps small as the new previous
+    private Mat advance(Mat small, int fullScanInterval) {
+        boolean fullScan = previous == null || !previous.size().equals(small.size())
+                || ++framesSinceFullScan >= fullScanInterval;
+        Mat changed = null;
+        if (fullScan) {
+            framesSinceFullScan = 0;
+        } else {
+            changed = new Mat();
+            Core.absdiff(small, previous, changed);
+            Imgproc.threshold(changed, changed, PIXEL_DELTA, 255, Imgproc.THRESH_BINARY);
+        }
+        if (previous != null) {
+            previous.release();
+        }
+        previous = small;
+        return changed;
+    }
+}
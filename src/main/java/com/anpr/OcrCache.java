@@ -0,0 +1,191 @@
+package com.anpr;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers recent plate reads so a vehicle standing in front of the camera (e.g. at a boom
+ * barrier) is not OCR'd again on every frame. A crop matches an entry when it comes from the
+ * same camera, its box is roughly where the entry's box was, and the difference hashes of
+ * the two binarized crops are within {@code ocr.cache.maxDistance} of their 256 bits.
+ * <p>
+ * The hash cannot tell plates apart that differ in a single similar glyph (3 and 8), so an
+ * entry only matches while the plate is seen without a gap longer than
+ * {@code ocr.cache.maxGapMillis}: the next vehicle pulling into the same spot is read afresh.
+ * Entries also expire {@code ocr.cache.ttlMillis} after the read, so a standing vehicle is
+ * still re-read now and then. A matching crop that is {@code quality.rereadSharpnessRatio}
+ * times sharper than the one read (see {@link CropQualityGate}) replaces the entry, so a
+ * vehicle coming to a stop is read from its sharpest crop rather than its first.
+ */
+public class OcrCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OcrCache.class);
+
+    // Boxes match when their centres are within this share of the box width and their widths within 25%
+    private static final double MAX_CENTRE_SHIFT = 0.25;
+    private static final double MAX_WIDTH_CHANGE = 0.25;
+    // Difference hash grid; plates are wide, so most cells run along the text line.
+    // 256 bits keep plates that differ in one character apart, which 64 bits do not
+    private static final int HASH_COLUMNS = 32;
+    private static final int HASH_ROWS = 8;
+    // Lookups between two log lines
+    private static final long LOG_INTERVAL = 1000;
+
+    private static final class Entry {
+        final String camera;
+        final Rect box;
+        final long[] hash;
+        final String text;
+        final double sharpness;
+        final long createdMillis;
+        long lastSeenMillis;
+
+        Entry(String camera, Rect box, long[] hash, String text, double sharpness, long createdMillis) {
+            this.camera = camera;
+            this.box = box;
+            this.hash = hash;
+            this.text = text;
+            this.sharpness = sharpness;
+            this.createdMillis = createdMillis;
+            this.lastSeenMillis = createdMillis;
+        }
+    }
+
+    // Access-ordered, so the first entry is the least recently used
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long nextId;
+    private long hits;
+    private long misses;
+    private long ocrNanos;
+
+    /**
+     * Difference hash of a gray plate crop: the crop is binarized (Otsu), shrunk to 33x8 and
+     * each bit records whether a cell is brighter than its right-hand neighbour.
+     */
+    static long[] hash(Mat grayPlate) {
+        Mat binary = new Mat();
+        Imgproc.threshold(grayPlate, binary, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+        Mat small = new Mat();
+        Imgproc.resize(binary, small, new Size(HASH_COLUMNS + 1, HASH_ROWS), 0, 0, Imgproc.INTER_AREA);
+        byte[] pixels = new byte[(HASH_COLUMNS + 1) * HASH_ROWS];
+        small.get(0, 0, pixels);
+        binary.release();
+        small.release();
+
+        long[] hash = new long[HASH_COLUMNS * HASH_ROWS / 64];
+        int bit = 0;
+        for (int row = 0; row < HASH_ROWS; row++) {
+            for (int col = 0; col < HASH_COLUMNS; col++, bit++) {
+                int left = pixels[row * (HASH_COLUMNS + 1) + col] & 0xFF;
+                int right = pixels[row * (HASH_COLUMNS + 1) + col + 1] & 0xFF;
+                if (left > right) {
+                    hash[bit >> 6] |= 1L << (bit & 63);
+                }
+            }
+        }
+        return hash;
+    }
+
+    static int distance(long[] a, long[] b) {
+        int bits = 0;
+        for (int i = 0; i < a.length; i++) {
+            bits += Long.bitCount(a[i] ^ b[i]);
+        }
+        return bits;
+    }
+
+    /**
+     * @param sharpness The crop's {@link CropQualityGate.Score#sharpness}.
+     * @return The cached text for a matching crop, or null on a miss (the caller then runs OCR
+     *         and reports the read with {@link #put}). A match is a miss, and is dropped, when
+     *         this crop is sharp enough to be worth reading again.
+     */
+    public synchronized String lookup(String camera, Rect box, long[] hash, double sharpness, AnprConfig config, long nowMillis) {
+        Long match = null;
+        for (Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Entry> next = it.next();
+            Entry entry = next.getValue();
+            if (nowMillis - entry.createdMillis > config.ocrCacheTtlMillis
+                    || nowMillis - entry.lastSeenMillis > config.ocrCacheMaxGapMillis) {
+                it.remove();
+            } else if (match == null && entry.camera.equals(camera) && sameSpot(entry.box, box)
+                    && distance(entry.hash, hash) <= config.ocrCacheMaxDistance) {
+                match = next.getKey();
+            }
+        }
+
+        if (match != null && config.qualityRereadSharpnessRatio > 0
+                && sharpness > entries.get(match).sharpness * config.qualityRereadSharpnessRatio) {
+            entries.remove(match);
+            match = null;
+        }
+
+        String text = null;
+        if (match != null) {
+            // get() moves the entry to the most recently used end
+            Entry entry = entries.get(match);
+            entry.lastSeenMillis = nowMillis;
+            text = entry.text;
+            hits++;
+        } else {
+            misses++;
+        }
+        if ((hits + misses) % LOG_INTERVAL == 0) {
+            logger.info("OCR cache: {} hit rate over {} lookups, {} ms of OCR saved.",
+                    String.format("%.1f%%", hitRate() * 100), hits + misses, savedMillis());
+        }
+        return text;
+    }
+
+    /**
+     * Stores a fresh read, evicting the least recently used entries beyond {@code ocr.cache.size}.
+     * @param sharpness Sharpness of the crop that was read.
+     * @param ocrNanos Time the OCR took; used to estimate the time saved by later hits.
+     */
+    public synchronized void put(String camera, Rect box, long[] hash, String text, double sharpness, long ocrNanos,
+                                 AnprConfig config, long nowMillis) {
+        this.ocrNanos += ocrNanos;
+        entries.put(nextId++, new Entry(camera, box, hash, text, sharpness, nowMillis));
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > config.ocrCacheSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Drops all entries and counters, e.g. after reads of synthetic warm-up frames.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+        ocrNanos = 0;
+    }
+
+    /** Share of lookups (0 to 1) answered from the cache. */
+    public synchronized double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /** OCR time avoided by hits, estimated from the mean time of the reads that did run. */
+    public synchronized long savedMillis() {
+        return misses == 0 ? 0 : hits * (ocrNanos / misses) / 1_000_000;
+    }
+
+    private static boolean sameSpot(Rect a, Rect b) {
+        double centreShift = Math.hypot((a.x + a.width / 2.0) - (b.x + b.width / 2.0),
+                (a.y + a.height / 2.0) - (b.y + b.height / 2.0));
+        return centreShift <= MAX_CENTRE_SHIFT * a.width
+                && Math.abs(a.width - b.width) <= MAX_WIDTH_CHANGE * a.width;
+    }
+}
@@ -0,0 +1,211 @@
+package com.anpr;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+
+/**
+ * {@link PlateDetector} on ONNX Runtime's CPU execution provider. Unlike OpenCV DNN it runs
+ * quantized (QDQ INT8) exports with integer kernels, and its threading and graph
+ * optimizations are configurable:
+ * <ul>
+ *   <li>{@code detector.intraOpThreads}: threads inside one operator; 0 uses one per core.</li>
+ *   <li>{@code detector.interOpThreads}: threads running independent operators in parallel;
+ *       0 or 1 runs the graph sequentially.</li>
+ *   <li>{@code detector.optimizationLevel}: none, basic, extended or all.</li>
+ * </ul>
+ * Each batch size gets its own direct input and output buffers, allocated on first use and
+ * wrapped once as tensors: frames are written straight into the NCHW input and the model
+ * writes into the output a Mat views, so a pass copies nothing across JNI.
+ */
+public class OnnxRuntimeDetector implements PlateDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(OnnxRuntimeDetector.class);
+    private static final int DEFAULT_INPUT_SIZE = 640;
+
+    private final OrtEnvironment environment = OrtEnvironment.getEnvironment();
+    private final OrtSession session;
+    private final String inputName;
+    private final String outputName;
+    // -1 when the model was exported with a dynamic batch size
+    private final long fixedBatchSize;
+    private final int inputWidth;
+    private final int inputHeight;
+
+    // Guarded by this
+    private final Map<Integer, Buffers> buffers = new HashMap<>();
+    private final Mat resized = new Mat();
+    private final Mat rgb = new Mat();
+    private final Mat scaled = new Mat();
+
+    public OnnxRuntimeDetector(String modelPath, AnprConfig config) {
+        long start = System.nanoTime();
+        try (OrtSession.SessionOptions options = sessionOptions(config)) {
+            session = environment.createSession(modelPath, options);
+            inputName = session.getInputNames().iterator().next();
+            outputName = session.getOutputNames().iterator().next();
+            long[] shape = ((TensorInfo) session.getInputInfo().get(inputName).getInfo()).getShape();
+            fixedBatchSize = shape[0] > 0 ? shape[0] : -1;
+            inputHeight = shape[2] > 0 ? (int) shape[2] : DEFAULT_INPUT_SIZE;
+            inputWidth = shape[3] > 0 ? (int) shape[3] : DEFAULT_INPUT_SIZE;
+        } catch (OrtException e) {
+            throw new RuntimeException("Failed to load YOLO model from " + modelPath, e);
+        }
+        logger.info("YOLO model loaded with ONNX Runtime in {} ms.", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static OrtSession.SessionOptions sessionOptions(AnprConfig config) throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        int intraOpThreads = config.getInt("detector.intraOpThreads", 0);
+        int interOpThreads = config.getInt("detector.interOpThreads", 0);
+        if (intraOpThreads > 0) {
+            options.setIntraOpNumThreads(intraOpThreads);
+        }
+        if (interOpThreads > 1) {
+            options.setExecutionMode(OrtSession.SessionOptions.ExecutionMode.PARALLEL);
+            options.setInterOpNumThreads(interOpThreads);
+        } else {
+            options.setExecutionMode(OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL);
+        }
+        options.setOptimizationLevel(optimizationLevel(config.get("detector.optimizationLevel", "all")));
+        return options;
+    }
+
+    private static OrtSession.SessionOptions.OptLevel optimizationLevel(String level) {
+        switch (level.toLowerCase(Locale.ROOT)) {
+            case "none":
+                return OrtSession.SessionOptions.OptLevel.NO_OPT;
+            case "basic":
+                return OrtSession.SessionOptions.OptLevel.BASIC_OPT;
+            case "extended":
+                return OrtSession.SessionOptions.OptLevel.EXTENDED_OPT;
+            case "all":
+                return OrtSession.SessionOptions.OptLevel.ALL_OPT;
+            default:
+                throw new IllegalArgumentException("detector.optimizationLevel must be none, basic, extended or all: " + level);
+        }
+    }
+
+    @Override
+    public synchronized Mat detect(Mat image) {
+        return run(List.of(image));
+    }
+
+    @Override
+    public synchronized Mat detectBatch(List<Mat> images) {
+        if (fixedBatchSize > 0 && images.size() != fixedBatchSize) {
+            return null;
+        }
+        return run(images);
+    }
+
+    private Mat run(List<Mat> images) {
+        Buffers batch = buffers.computeIfAbsent(images.size(), Buffers::new);
+        try {
+            // 1. Write each image into its three planes of the NCHW input
+            for (int i = 0; i < images.size(); i++) {
+                fill(images.get(i), batch, i);
+            }
+
+            // 2. Run into the pinned output; the first pass of a batch size learns its shape
+            Map<String, OnnxTensor> inputs = Map.of(inputName, batch.inputTensor);
+            if (batch.outputTensor == null) {
+                try (OrtSession.Result result = session.run(inputs)) {
+                    OnnxTensor output = (OnnxTensor) result.get(0);
+                    batch.pinOutput(output.getInfo().getShape(), output.getFloatBuffer());
+                }
+            } else {
+                session.run(inputs, Map.of(outputName, batch.outputTensor)).close();
+            }
+        } catch (OrtException e) {
+            throw new RuntimeException("ONNX Runtime inference failed", e);
+        }
+        return batch.output;
+    }
+
+    // Same preprocessing as Dnn.blobFromImage(image, 1/255, size, 0, swapRB=true, crop=false)
+    private void fill(Mat image, Buffers batch, int index) {
+        Imgproc.resize(image, resized, new Size(inputWidth, inputHeight));
+        int conversion = image.channels() == 1 ? Imgproc.COLOR_GRAY2RGB
+                : image.channels() == 4 ? Imgproc.COLOR_BGRA2RGB : Imgproc.COLOR_BGR2RGB;
+        Imgproc.cvtColor(resized, rgb, conversion);
+        rgb.convertTo(scaled, CvType.CV_32F, 1 / 255.0);
+        for (int channel = 0; channel < 3; channel++) {
+            Core.extractChannel(scaled, batch.planes[index * 3 + channel], channel);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Buffers batch : buffers.values()) {
+            batch.close();
+        }
+        buffers.clear();
+        try {
+            session.close();
+        } catch (OrtException e) {
+            logger.warn("Error closing ONNX Runtime session", e);
+        }
+    }
+
+    /** Input and output of one batch size; the Mats are views of the direct buffers the tensors wrap. */
+    private final class Buffers {
+        final ByteBuffer inputBytes;
+        final OnnxTensor inputTensor;
+        final Mat[] planes;
+        ByteBuffer outputBytes;
+        OnnxTensor outputTensor;
+        Mat output;
+
+        Buffers(int batchSize) {
+            inputBytes = ByteBuffer.allocateDirect(batchSize * 3 * inputHeight * inputWidth * Float.BYTES).order(ByteOrder.nativeOrder());
+            try {
+                inputTensor = OnnxTensor.createTensor(environment, inputBytes.asFloatBuffer(),
+                        new long[] {batchSize, 3, inputHeight, inputWidth});
+            } catch (OrtException e) {
+                throw new RuntimeException("Could not allocate the ONNX Runtime input", e);
+            }
+            Mat input = new Mat(batchSize * 3 * inputHeight, inputWidth, CvType.CV_32F, inputBytes);
+            planes = new Mat[batchSize * 3];
+            for (int i = 0; i < planes.length; i++) {
+                planes[i] = input.rowRange(i * inputHeight, (i + 1) * inputHeight);
+            }
+        }
+
+        void pinOutput(long[] shape, FloatBuffer values) throws OrtException {
+            outputBytes = ByteBuffer.allocateDirect(values.remaining() * Float.BYTES).order(ByteOrder.nativeOrder());
+            outputBytes.asFloatBuffer().put(values);
+            outputTensor = OnnxTensor.createTensor(environment, outputBytes.asFloatBuffer(), shape);
+            int[] sizes = new int[shape.length];
+            for (int i = 0; i < shape.length; i++) {
+                sizes[i] = (int) shape[i];
+            }
+            output = new Mat(1, outputBytes.capacity() / Float.BYTES, CvType.CV_32F, outputBytes).reshape(1, sizes);
+        }
+
+        void close() {
+            inputTensor.close();
+            if (outputTensor != null) {
+                outputTensor.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.anpr;
+
+import java.util.List;
+
+import org.opencv.core.CvException;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PlateDetector} on OpenCV's DNN module. Threading follows OpenCV's global setting and
+ * the graph is run as imported.
+ */
+public class OpenCvDetector implements PlateDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenCvDetector.class);
+    private static final Size INPUT_SIZE = new Size(640, 640);
+
+    private final Net net;
+
+    public OpenCvDetector(String modelPath) {
+        long start = System.nanoTime();
+        net = Dnn.readNetFromONNX(modelPath);
+        if (net.empty()) {
+            throw new RuntimeException("Failed to load YOLO model from " + modelPath);
+        }
+        logger.info("YOLO model loaded with OpenCV DNN in {} ms.", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public synchronized Mat detect(Mat image) {
+        Mat inputBlob = Dnn.blobFromImage(image, 1 / 255.0, INPUT_SIZE, new Scalar(0), true, false);
+        net.setInput(inputBlob);
+        return net.forward();
+    }
+
+    @Override
+    public synchronized Mat detectBatch(List<Mat> images) {
+        Mat output;
+        try {
+            Mat inputBlob = Dnn.blobFromImages(images, 1 / 255.0, INPUT_SIZE, new Scalar(0), true, false);
+            net.setInput(inputBlob);
+            output = net.forward();
+        } catch (CvException e) {
+            logger.debug("Batched forward failed", e);
+            return null;
+        }
+        // Models exported with a fixed batch size of 1 may also return a mangled output instead of failing
+        return output.dims() == 3 && output.size(0) == images.size() ? output : null;
+    }
+
+    @Override
+    public void close() {
+        // Net has no explicit release; its native memory goes with the object
+    }
+}
@@ -0,0 +1,336 @@
+package com.anpr;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Kernel;
+import java.awt.image.RescaleOp;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Renders synthetic Indian number plates into background frames for load and accuracy testing.
+ * Every plate matches one of the MoRTH formats accepted by {@link ProcessResult#isValid()}.
+ * The frames are written next to a {@code ground_truth.json} that {@link CorpusEvaluator} reads.
+ */
+public class PlateCorpusGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlateCorpusGenerator.class);
+    static final String GROUND_TRUTH_FILE = "ground_truth.json";
+
+    // Base plate size, roughly the 500 x 120 mm private-car plate
+    private static final int PLATE_WIDTH = 500;
+    private static final int PLATE_HEIGHT = 120;
+
+    /** Ground truth for one generated frame. */
+    static class Sample {
+        String file;
+        String plate;
+        String format;
+        int x1, y1, x2, y2;
+    }
+
+    private final Random random;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final List<Font> fonts = new ArrayList<>();
+    private final List<File> backgrounds = new ArrayList<>();
+    private final float bhFraction;
+    private final float maxSkewDegrees;
+    private final int maxBlurRadius;
+    private final float noiseSigma;
+    private final float minLighting;
+    private final float maxLighting;
+    private final float minPlateWidth;
+    private final float maxPlateWidth;
+
+    public PlateCorpusGenerator(long seed) {
+        this(seed, ConfigLoader.current());
+    }
+
+    public PlateCorpusGenerator(long seed, AnprConfig config) {
+        this.random = new Random(seed);
+        this.frameWidth = config.getInt("corpus.frameWidth", 1280);
+        this.frameHeight = config.getInt("corpus.frameHeight", 720);
+        this.bhFraction = config.getFloat("corpus.bhFraction", 0.15f);
+        this.maxSkewDegrees = config.getFloat("corpus.maxSkewDegrees", 12f);
+        this.maxBlurRadius = config.getInt("corpus.maxBlurRadius", 2);
+        this.noiseSigma = config.getFloat("corpus.noiseSigma", 8f);
+        this.minLighting = config.getFloat("corpus.minLighting", 0.6f);
+        this.maxLighting = config.getFloat("corpus.maxLighting", 1.3f);
+        this.minPlateWidth = config.getFloat("corpus.minPlateWidth", 0.10f);
+        this.maxPlateWidth = config.getFloat("corpus.maxPlateWidth", 0.28f);
+
+        String fontList = config.get("corpus.fonts");
+        for (String name : (fontList == null ? "SansSerif" : fontList).split(",")) {
+            fonts.add(loadFont(name.trim()));
+        }
+
+        String backgroundFolder = config.get("corpus.backgroundFolder");
+        if (backgroundFolder != null && !backgroundFolder.isBlank()) {
+            File[] files = new File(backgroundFolder).listFiles((dir, name) -> name.toLowerCase().matches(".*\\.(jpe?g|png)$"));
+            if (files != null) {
+                backgrounds.addAll(Arrays.asList(files));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: PlateCorpusGenerator <outputDir> [count] [seed]");
+            return;
+        }
+        File outputDir = new File(args[0]);
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 27L;
+
+        new PlateCorpusGenerator(seed).generate(outputDir, count);
+    }
+
+    /**
+     * Writes {@code count} frames and the matching ground truth into {@code outputDir}.
+     */
+    public List<Sample> generate(File outputDir, int count) throws IOException {
+        outputDir.mkdirs();
+        List<Sample> samples = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            samples.add(generateFrame(outputDir, String.format("frame_%05d.jpg", i + 1)));
+            if ((i + 1) % 100 == 0) {
+                logger.info("Generated {}/{} frames", i + 1, count);
+            }
+        }
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer writer = new FileWriter(new File(outputDir, GROUND_TRUTH_FILE))) {
+            gson.toJson(samples, writer);
+        }
+        logger.info("Corpus of {} frames written to {}", count, outputDir.getAbsolutePath());
+        return samples;
+    }
+
+    private Sample generateFrame(File outputDir, String fileName) throws IOException {
+        boolean bhSeries = random.nextFloat() < bhFraction;
+        String plate = bhSeries ? randomBhPlate(random) : randomStandardPlate(random);
+
+        BufferedImage frame = renderBackground();
+        BufferedImage plateImage = renderPlate(plate, bhSeries);
+
+        // Place the plate with a random size, position, rotation and shear
+        double plateWidth = frameWidth * (minPlateWidth + random.nextDouble() * (maxPlateWidth - minPlateWidth));
+        double scale = plateWidth / PLATE_WIDTH;
+        double centerX = frameWidth * (0.2 + random.nextDouble() * 0.6);
+        double centerY = frameHeight * (0.35 + random.nextDouble() * 0.45);
+        double skew = Math.toRadians(maxSkewDegrees);
+
+        AffineTransform transform = new AffineTransform();
+        transform.translate(centerX, centerY);
+        transform.rotate((random.nextDouble() * 2 - 1) * skew / 2);
+        transform.shear(Math.tan((random.nextDouble() * 2 - 1) * skew), Math.tan((random.nextDouble() * 2 - 1) * skew / 2));
+        transform.scale(scale, scale);
+        transform.translate(-PLATE_WIDTH / 2.0, -PLATE_HEIGHT / 2.0);
+
+        Graphics2D g = frame.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.drawImage(plateImage, transform, null);
+        g.dispose();
+
+        Rectangle bounds = transform.createTransformedShape(new Rectangle(0, 0, PLATE_WIDTH, PLATE_HEIGHT)).getBounds()
+                .intersection(new Rectangle(0, 0, frameWidth, frameHeight));
+
+        frame = applyLighting(frame);
+        frame = applyBlur(frame);
+        applyNoise(frame);
+
+        ImageIO.write(frame, "jpg", new File(outputDir, fileName));
+
+        Sample sample = new Sample();
+        sample.file = fileName;
+        sample.plate = plate;
+        sample.format = bhSeries ? "BH" : "STANDARD";
+        sample.x1 = bounds.x;
+        sample.y1 = bounds.y;
+        sample.x2 = bounds.x + bounds.width;
+        sample.y2 = bounds.y + bounds.height;
+        return sample;
+    }
+
+    /** Standard plate, e.g. MH12AB1234 or DL3C4567: state, 1-2 digit district, 1-2 letter series, 4 digits. */
+    static String randomStandardPlate(Random random) {
+        StringBuilder sb = new StringBuilder(10);
+        sb.append(ProcessResult.STATE_CODES[random.nextInt(ProcessResult.STATE_CODES.length)]);
+        if (random.nextInt(8) == 0) {
+            sb.append(1 + random.nextInt(9));
+        } else {
+            sb.append(String.format("%02d", 1 + random.nextInt(99)));
+        }
+        appendSeries(sb, random);
+        sb.append(String.format("%04d", random.nextInt(10000)));
+        return sb.toString();
+    }
+
+    /** BH series plate, e.g. 22BH1234AA: 2 digit year, BH, 4 digits, 1-2 letter series. */
+    static String randomBhPlate(Random random) {
+        StringBuilder sb = new StringBuilder(10);
+        sb.append(String.format("%02d", 21 + random.nextInt(6)));
+        sb.append("BH");
+        sb.append(String.format("%04d", random.nextInt(10000)));
+        appendSeries(sb, random);
+        return sb.toString();
+    }
+
+    private static void appendSeries(StringBuilder sb, Random random) {
+        int letters = random.nextInt(4) == 0 ? 1 : 2;
+        for (int i = 0; i < letters; i++) {
+            sb.append(ProcessResult.SERIES_LETTERS.charAt(random.nextInt(ProcessResult.SERIES_LETTERS.length())));
+        }
+    }
+
+    BufferedImage renderPlate(String plate, boolean bhSeries) {
+        BufferedImage image = new BufferedImage(PLATE_WIDTH, PLATE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Commercial vehicles carry yellow plates; BH series is always white
+        boolean commercial = !bhSeries && random.nextInt(4) == 0;
+        g.setColor(commercial ? new Color(250, 210, 40) : new Color(245, 245, 240));
+        g.fillRoundRect(0, 0, PLATE_WIDTH, PLATE_HEIGHT, 16, 16);
+        g.setColor(Color.BLACK);
+        g.setStroke(new BasicStroke(5));
+        g.drawRoundRect(4, 4, PLATE_WIDTH - 8, PLATE_HEIGHT - 8, 14, 14);
+
+        String display = spaced(plate, bhSeries);
+        Font font = fonts.get(random.nextInt(fonts.size())).deriveFont(Font.BOLD, PLATE_HEIGHT * 0.7f);
+        g.setFont(font);
+        FontMetrics metrics = g.getFontMetrics();
+        int textWidth = metrics.stringWidth(display);
+        float fit = Math.min(1f, (PLATE_WIDTH - 40f) / textWidth);
+        if (fit < 1f) {
+            g.setFont(font.deriveFont(font.getSize2D() * fit));
+            metrics = g.getFontMetrics();
+            textWidth = metrics.stringWidth(display);
+        }
+        int baseline = (PLATE_HEIGHT + metrics.getAscent() - metrics.getDescent()) / 2;
+        g.drawString(display, (PLATE_WIDTH - textWidth) / 2, baseline);
+        g.dispose();
+        return image;
+    }
+
+    // Plates are printed in groups: "MH 12 AB 1234" and "22 BH 1234 AA"
+    private static String spaced(String plate, boolean bhSeries) {
+        if (bhSeries) {
+            return plate.substring(0, 2) + " BH " + plate.substring(4, 8) + " " + plate.substring(8);
+        }
+        int seriesStart = Character.isDigit(plate.charAt(3)) ? 4 : 3;
+        int numberStart = plate.length() - 4;
+        return plate.substring(0, 2) + " " + plate.substring(2, seriesStart) + " "
+                + plate.substring(seriesStart, numberStart) + " " + plate.substring(numberStart);
+    }
+
+    private BufferedImage renderBackground() {
+        BufferedImage frame = new BufferedImage(frameWidth, frameHeight, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = frame.createGraphics();
+        if (!backgrounds.isEmpty()) {
+            File file = backgrounds.get(random.nextInt(backgrounds.size()));
+            try {
+                BufferedImage background = ImageIO.read(file);
+                if (background != null) {
+                    g.drawImage(background, 0, 0, frameWidth, frameHeight, null);
+                    g.dispose();
+                    return frame;
+                }
+            } catch (IOException e) {
+                logger.warn("Could not read background {}, using a procedural one.", file, e);
+            }
+        }
+
+        // Road below, sky/buildings above, and a vehicle body the plate sits on
+        int shade = 60 + random.nextInt(80);
+        g.setPaint(new GradientPaint(0, 0, new Color(shade + 40, shade + 50, shade + 60), 0, frameHeight, new Color(shade / 2, shade / 2, shade / 2)));
+        g.fillRect(0, 0, frameWidth, frameHeight);
+        g.setColor(new Color(random.nextInt(200), random.nextInt(200), random.nextInt(200)));
+        int bodyX = random.nextInt(frameWidth / 4);
+        int bodyY = frameHeight / 5 + random.nextInt(frameHeight / 5);
+        g.fillRoundRect(bodyX, bodyY, frameWidth - bodyX - random.nextInt(frameWidth / 4), frameHeight - bodyY, 80, 80);
+        for (int i = 0; i < 6; i++) {
+            g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            g.fillRect(random.nextInt(frameWidth), random.nextInt(frameHeight), 20 + random.nextInt(120), 10 + random.nextInt(60));
+        }
+        g.dispose();
+        return frame;
+    }
+
+    private BufferedImage applyLighting(BufferedImage frame) {
+        float gain = minLighting + random.nextFloat() * (maxLighting - minLighting);
+        BufferedImage lit = new RescaleOp(gain, 0f, null).filter(frame, null);
+
+        // Directional shadow across part of the frame
+        if (random.nextBoolean()) {
+            Graphics2D g = lit.createGraphics();
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.1f + random.nextFloat() * 0.3f));
+            g.setPaint(new GradientPaint(0, 0, Color.BLACK, frameWidth, frameHeight * random.nextFloat(), new Color(0, 0, 0, 0)));
+            g.fillRect(0, 0, frameWidth, frameHeight);
+            g.dispose();
+        }
+        return lit;
+    }
+
+    private BufferedImage applyBlur(BufferedImage frame) {
+        int radius = random.nextInt(maxBlurRadius + 1);
+        if (radius == 0) {
+            return frame;
+        }
+        int size = radius * 2 + 1;
+        float[] kernel = new float[size * size];
+        Arrays.fill(kernel, 1f / kernel.length);
+        return new ConvolveOp(new Kernel(size, size, kernel), ConvolveOp.EDGE_NO_OP, null).filter(frame, null);
+    }
+
+    private void applyNoise(BufferedImage frame) {
+        if (noiseSigma <= 0) {
+            return;
+        }
+        byte[] pixels = ((DataBufferByte) frame.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < pixels.length; i++) {
+            int value = (pixels[i] & 0xFF) + (int) (random.nextGaussian() * noiseSigma);
+            pixels[i] = (byte) Math.max(0, Math.min(255, value));
+        }
+    }
+
+    static Font loadFont(String name) {
+        if (name.toLowerCase().endsWith(".ttf")) {
+            try {
+                return Font.createFont(Font.TRUETYPE_FONT, new File(name));
+            } catch (Exception e) {
+                logger.warn("Could not load font file {}, falling back to SansSerif.", name, e);
+                return new Font(Font.SANS_SERIF, Font.BOLD, 12);
+            }
+        }
+        return new Font(name, Font.BOLD, 12);
+    }
+}
@@ -0,0 +1,275 @@
+package com.anpr;
+
+/**
+ * Turns a raw OCR read into the most likely valid plate in one pass over a small lattice.
+ * <p>
+ * Every read symbol offers a few candidate characters, each with a cost: the read character
+ * and the reader's alternatives cost {@code 1 - score}, and the character it is commonly
+ * confused with (O/0, S/5, B/8, ...) costs {@link #SWAP_COST} more. Each MoRTH layout of
+ * 8 to 10 characters (state code, 1-2 district digits, 1-2 series letters, 4 digits; or the
+ * BH series) is laid over the whole read, or over what follows an "IND" mark read in front
+ * of the state code (1ND, IN0, ... through the same confusions). No other symbol is ever
+ * dropped, so a read with extra characters inside or after the number is rejected rather
+ * than cut down to a different plate. Each slot takes its cheapest allowed candidate and
+ * the cheapest layout wins. A read that already forms a valid plate costs
+ * nothing extra, so it is never changed.
+ * <p>
+ * Character classes, confusion pairs and state codes are static lookup tables, and the
+ * lattice lives in a per-thread scratch area, so a call allocates only the returned string.
+ */
+public final class PlateCorrector {
+
+    // Costs are in units of one fully confident character
+    static final float SWAP_COST = 0.6f;
+    // The international mark some plates carry left of the state code
+    private static final String MARK = "IND";
+    private static final int MAX_SYMBOLS = 16;
+    private static final int MAX_CANDIDATES = 8;
+
+    private static final int DIGIT = 1;
+    private static final int LETTER = 2;
+    private static final int SERIES = 4;
+
+    private static final byte[] CLASSES = new byte[128];
+    // Letter -> the digit it is mistaken for, and digit -> up to two letters; 0 where none
+    private static final char[] DIGIT_SWAP = new char[128];
+    private static final char[] LETTER_SWAP = new char[128];
+    private static final char[] SECOND_LETTER_SWAP = new char[128];
+    // Indexed (first - 'A') * 26 + (second - 'A')
+    private static final boolean[] STATES = new boolean[26 * 26];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] = DIGIT;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CLASSES[c] = LETTER;
+        }
+        for (char c : ProcessResult.SERIES_LETTERS.toCharArray()) {
+            CLASSES[c] |= SERIES;
+        }
+        for (String code : ProcessResult.STATE_CODES) {
+            STATES[(code.charAt(0) - 'A') * 26 + code.charAt(1) - 'A'] = true;
+        }
+        for (String pair : new String[] {"O0", "D0", "Q0", "I1", "L1", "Z2", "A4", "S5", "G6", "T7", "B8"}) {
+            char letter = pair.charAt(0);
+            char digit = pair.charAt(1);
+            DIGIT_SWAP[letter] = digit;
+            if (LETTER_SWAP[digit] == 0) {
+                LETTER_SWAP[digit] = letter;
+            } else if (SECOND_LETTER_SWAP[digit] == 0) {
+                SECOND_LETTER_SWAP[digit] = letter;
+            }
+        }
+    }
+
+    /** The lattice of one call: candidate characters and costs per symbol, and the layout being scored. */
+    private static final class Scratch {
+        final char[] candidates = new char[MAX_SYMBOLS * MAX_CANDIDATES];
+        final float[] costs = new float[MAX_SYMBOLS * MAX_CANDIDATES];
+        final int[] counts = new int[MAX_SYMBOLS];
+        final char[] trial = new char[10];
+        final char[] best = new char[10];
+        int symbols;
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private PlateCorrector() {
+    }
+
+    /**
+     * Corrects a read without per-symbol alternatives; every character counts as certain.
+     * @return The cheapest valid plate, or null when no layout fits the read.
+     */
+    public static String correct(CharSequence text) {
+        return correct(text, null, null);
+    }
+
+    /**
+     * @param text The raw read; used when {@code choices} is null.
+     * @param choices Per read symbol, the read character first and then the reader's alternatives.
+     * @param scores Scores (0 to 1) matching {@code choices}.
+     * @return The cheapest valid plate, or null when no layout fits the read.
+     */
+    public static String correct(CharSequence text, char[][] choices, float[][] scores) {
+        Scratch s = SCRATCH.get();
+        s.symbols = 0;
+        if (choices != null) {
+            for (int i = 0; i < choices.length && s.symbols < MAX_SYMBOLS; i++) {
+                if (choices[i].length > 0 && addSymbol(s, choices[i][0], scores[i][0])) {
+                    for (int k = 1; k < choices[i].length; k++) {
+                        addCandidate(s, s.symbols - 1, upper(choices[i][k]), Math.max(0f, 1f - scores[i][k]));
+                    }
+                }
+            }
+        } else if (text != null) {
+            for (int i = 0; i < text.length() && s.symbols < MAX_SYMBOLS; i++) {
+                addSymbol(s, text.charAt(i), 1f);
+            }
+        }
+        return search(s);
+    }
+
+    // Adds a symbol with its read character and that character's confusions; skips noise
+    private static boolean addSymbol(Scratch s, char read, float score) {
+        char c = upper(read);
+        if (c >= 128 || CLASSES[c] == 0) {
+            return false;
+        }
+        int symbol = s.symbols++;
+        s.counts[symbol] = 0;
+        float cost = Math.max(0f, 1f - score);
+        addCandidate(s, symbol, c, cost);
+        addCandidate(s, symbol, DIGIT_SWAP[c], cost + SWAP_COST);
+        addCandidate(s, symbol, LETTER_SWAP[c], cost + SWAP_COST);
+        addCandidate(s, symbol, SECOND_LETTER_SWAP[c], cost + SWAP_COST);
+        return true;
+    }
+
+    private static void addCandidate(Scratch s, int symbol, char c, float cost) {
+        if (c == 0 || c >= 128 || CLASSES[c] == 0) {
+            return;
+        }
+        int base = symbol * MAX_CANDIDATES;
+        int count = s.counts[symbol];
+        for (int k = 0; k < count; k++) {
+            if (s.candidates[base + k] == c) {
+                s.costs[base + k] = Math.min(s.costs[base + k], cost);
+                return;
+            }
+        }
+        if (count < MAX_CANDIDATES) {
+            s.candidates[base + count] = c;
+            s.costs[base + count] = cost;
+            s.counts[symbol] = count + 1;
+        }
+    }
+
+    private static char upper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - 32) : c;
+    }
+
+    // The whole read and the read after the mark, if there is one, in every layout of their length
+    private static String search(Scratch s) {
+        float bestCost = Float.MAX_VALUE;
+        int bestLength = 0;
+        for (int start = 0; start <= MARK.length() && start < s.symbols; start += MARK.length()) {
+            int length = s.symbols - start;
+            float markCost = start == 0 ? 0f : mark(s);
+            if (length < 8 || length > 10 || markCost >= bestCost) {
+                continue;
+            }
+            for (int district = 1; district <= 2; district++) {
+                int series = length - 6 - district;
+                if (series < 1 || series > 2) {
+                    continue;
+                }
+                float cost = markCost + standard(s, start, district, series, bestCost - markCost);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestLength = length;
+                    System.arraycopy(s.trial, 0, s.best, 0, length);
+                }
+            }
+            if (length >= 9) {
+                float cost = markCost + bharat(s, start, length - 8, bestCost - markCost);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestLength = length;
+                    System.arraycopy(s.trial, 0, s.best, 0, length);
+                }
+            }
+        }
+        return bestLength == 0 ? null : new String(s.best, 0, bestLength);
+    }
+
+    // Cost of reading the first symbols as the mark
+    private static float mark(Scratch s) {
+        float cost = 0f;
+        for (int i = 0; i < MARK.length() && cost < Float.MAX_VALUE; i++) {
+            cost += costOf(s, i, MARK.charAt(i));
+        }
+        return cost;
+    }
+
+    // State code, district digits, series letters, 4 digits; gives up once past the cost to beat
+    private static float standard(Scratch s, int start, int district, int series, float limit) {
+        float cost = state(s, start);
+        int slot = 2;
+        for (int i = 0; i < district && cost < limit; i++, slot++) {
+            cost += fill(s, start + slot, slot, DIGIT);
+        }
+        for (int i = 0; i < series && cost < limit; i++, slot++) {
+            cost += fill(s, start + slot, slot, SERIES);
+        }
+        for (int i = 0; i < 4 && cost < limit; i++, slot++) {
+            cost += fill(s, start + slot, slot, DIGIT);
+        }
+        return cost;
+    }
+
+    // 2 digits, "BH", 4 digits, series letters
+    private static float bharat(Scratch s, int start, int series, float limit) {
+        float cost = fill(s, start, 0, DIGIT) + fill(s, start + 1, 1, DIGIT);
+        cost += exact(s, start + 2, 2, 'B') + exact(s, start + 3, 3, 'H');
+        int slot = 4;
+        for (int i = 0; i < 4 && cost < limit; i++, slot++) {
+            cost += fill(s, start + slot, slot, DIGIT);
+        }
+        for (int i = 0; i < series && cost < limit; i++, slot++) {
+            cost += fill(s, start + slot, slot, SERIES);
+        }
+        return cost;
+    }
+
+    // Cheapest pair of letters at the first two symbols that is a valid state code
+    private static float state(Scratch s, int symbol) {
+        int first = symbol * MAX_CANDIDATES;
+        int second = (symbol + 1) * MAX_CANDIDATES;
+        float best = Float.MAX_VALUE;
+        for (int i = 0; i < s.counts[symbol]; i++) {
+            char a = s.candidates[first + i];
+            if ((CLASSES[a] & LETTER) == 0) {
+                continue;
+            }
+            for (int j = 0; j < s.counts[symbol + 1]; j++) {
+                char b = s.candidates[second + j];
+                float cost = s.costs[first + i] + s.costs[second + j];
+                if ((CLASSES[b] & LETTER) != 0 && cost < best && STATES[(a - 'A') * 26 + b - 'A']) {
+                    best = cost;
+                    s.trial[0] = a;
+                    s.trial[1] = b;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static float fill(Scratch s, int symbol, int slot, int allowed) {
+        int base = symbol * MAX_CANDIDATES;
+        float best = Float.MAX_VALUE;
+        for (int k = 0; k < s.counts[symbol]; k++) {
+            if ((CLASSES[s.candidates[base + k]] & allowed) != 0 && s.costs[base + k] < best) {
+                best = s.costs[base + k];
+                s.trial[slot] = s.candidates[base + k];
+            }
+        }
+        return best;
+    }
+
+    private static float exact(Scratch s, int symbol, int slot, char wanted) {
+        s.trial[slot] = wanted;
+        return costOf(s, symbol, wanted);
+    }
+
+    private static float costOf(Scratch s, int symbol, char wanted) {
+        int base = symbol * MAX_CANDIDATES;
+        for (int k = 0; k < s.counts[symbol]; k++) {
+            if (s.candidates[base + k] == wanted) {
+                return s.costs[base + k];
+            }
+        }
+        return Float.MAX_VALUE;
+    }
+}
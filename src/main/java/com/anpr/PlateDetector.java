@@ -0,0 +1,29 @@
+package com.anpr;
+
+import java.util.List;
+
+import org.opencv.core.Mat;
+
+/**
+ * Runs the plate model on whole images. Each image is squeezed to the model input size and
+ * fed as RGB scaled to [0, 1]; the output keeps the raw YOLOv8 layout
+ * (batch x [4 + classes] x candidates) that {@link ImageProcessor#decodeDetections} reads.
+ * Selected by {@code detector.engine}: {@link OpenCvDetector} or {@link OnnxRuntimeDetector}.
+ * <p>
+ * The returned Mat may be a view of a buffer the detector reuses, so it is only valid until
+ * the next call.
+ */
+public interface PlateDetector extends AutoCloseable {
+
+    Mat detect(Mat image);
+
+    /**
+     * Runs all images as one batch.
+     * @return The batched output, or null if the model does not accept this batch size
+     *         (exports with a fixed batch size of 1).
+     */
+    Mat detectBatch(List<Mat> images);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,43 @@
+package com.anpr;
+
+import org.opencv.core.Mat;
+
+/**
+ * Reads the characters on a cropped plate. Implementations do their own binarization,
+ * so they receive the grayscale crop as cut from the frame.
+ */
+public interface PlateOcr {
+
+    /** Raw text read from a plate and how sure the reader is of it. */
+    final class Result {
+        public static final Result EMPTY = new Result("", 0f);
+
+        public final String text;
+        /** 0 to 1; readers that cannot estimate it report 1. */
+        public final float confidence;
+        /**
+         * Per read symbol, the character read first and then the reader's alternatives; null
+         * when the reader only reports text. Used by {@link PlateCorrector}.
+         */
+        public final char[][] choices;
+        /** Scores (0 to 1) matching {@link #choices}. */
+        public final float[][] choiceScores;
+
+        public Result(String text, float confidence) {
+            this(text, confidence, null, null);
+        }
+
+        public Result(String text, float confidence, char[][] choices, float[][] choiceScores) {
+            this.text = text;
+            this.confidence = confidence;
+            this.choices = choices;
+            this.choiceScores = choiceScores;
+        }
+    }
+
+    /**
+     * @param grayPlate 8-bit single-channel plate crop.
+     * @return The uncorrected text; {@link Result#EMPTY} when nothing could be read.
+     */
+    Result recognize(Mat grayPlate);
+}
@@ -1,12 +1,40 @@
 package com.anpr;
 
+import java.util.regex.Pattern;
+
 /**
  * A data class to hold the results of processing a single detection.
  */
 public class ProcessResult {
+
+    // --- Regex Components based on MoRTH Standards ---
+
+    // 1. Valid State/UT Codes (Includes current and some legacy codes like OR/UA)
+    static final String[] STATE_CODES = {
+            "AN", "AP", "AR", "AS", "BR", "CG", "CH", "DD", "DL", "DN", "GA", "GJ", "HP", "HR", "JH", "JK", "KA", "KL", "LA", "LD",
+            "MH", "ML", "MN", "MP", "MZ", "NL", "OD", "OR", "PB", "PY", "RJ", "SK", "TN", "TR", "TS", "UA", "UK", "UP", "WB"};
+
+    // 2. District Code: 1 or 2 digits (e.g., 01, 12)
+    private static final String DISTRICT_CODE = "[0-9]{1,2}";
+
+    // 3. Series: 1 or 2 letters. Excludes I, O, and Q to avoid confusion with 1 and 0.
+    static final String SERIES_LETTERS = "ABCDEFGHJKLMNPRSTUVWXYZ";
+    private static final String SERIES = "[A-HJ-NP-PR-Z]{1,2}";
+
+    // 4. Unique Number: 4 digits (e.g., 1234)
+    private static final String UNIQUE_NUMBER = "[0-9]{4}";
+
+    // Pattern 1: Standard (e.g., MH12AB1234)
+    private static final Pattern STANDARD_PLATE = Pattern.compile(
+            "^(" + String.join("|", STATE_CODES) + ")" + DISTRICT_CODE + SERIES + UNIQUE_NUMBER + "$");
+
+    // Pattern 2: BH Series (e.g., 22BH1234XX)
+    private static final Pattern BH_SERIES = Pattern.compile("^[0-9]{2}BH" + UNIQUE_NUMBER + SERIES + "$");
+
     public final int x1, y1, x2, y2;
     public final String text;
-    private VehicleDetails vehicleDetails; // To hold fetched details
+    // Attached by the EnrichmentQueue once the lookup finishes; null until then or when not found
+    private volatile VehicleDetails vehicleDetails;
 
     public ProcessResult(int x1, int y1, int x2, int y2, String text) {
         this.x1 = x1;
@@ -21,38 +49,24 @@ public class ProcessResult {
      * If it is, it fetches the mock vehicle details.
      */
     public boolean isValid() {
+        return isValidPlate(text);
+    }
+
+    /**
+     * Checks a plate number against the standard and BH series formats.
+     */
+    static boolean isValidPlate(String text) {
         if (text == null || text.isEmpty()) {
             return false;
         }
-
-        // --- Regex Components based on MoRTH Standards ---
-        
-        // 1. Valid State/UT Codes (Includes current and some legacy codes like OR/UA)
-        String stateCodes = "(AN|AP|AR|AS|BR|CG|CH|DD|DL|DN|GA|GJ|HP|HR|JH|JK|KA|KL|LA|LD|MH|ML|MN|MP|MZ|NL|OD|OR|PB|PY|RJ|SK|TN|TR|TS|UA|UK|UP|WB)";
-        
-        // 2. District Code: 1 or 2 digits (e.g., 01, 12)
-        String districtCode = "[0-9]{1,2}";
-        
-        // 3. Series: 1 or 2 letters. Excludes I, O, and Q to avoid confusion with 1 and 0.
-        String series = "[A-HJ-NP-PR-Z]{1,2}";
-        
-        // 4. Unique Number: 4 digits (e.g., 1234)
-        String uniqueNumber = "[0-9]{4}";
-
-        // Combine into full patterns
-        // Pattern 1: Standard (e.g., MH12AB1234)
-        String standardPlateRegex = "^" + stateCodes + districtCode + series + uniqueNumber + "$";
-        
-        // Pattern 2: BH Series (e.g., 22BH1234XX)
-        String bhSeriesRegex = "^[0-9]{2}BH" + uniqueNumber + series + "$";
-
-        if (text.matches(standardPlateRegex) || text.matches(bhSeriesRegex)) {
-            return true;
-        }
-        return false;
+        return STANDARD_PLATE.matcher(text).matches() || BH_SERIES.matcher(text).matches();
     }
 
     public VehicleDetails getVehicleDetails() {
         return vehicleDetails;
     }
+
+    void setVehicleDetails(VehicleDetails vehicleDetails) {
+        this.vehicleDetails = vehicleDetails;
+    }
 }
@@ -0,0 +1,72 @@
+package com.anpr;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.Mat;
+
+/**
+ * A reference-counted video frame. The native {@link Mat} is released when the last
+ * holder calls {@link #release()}, so a frame can be handed to background sinks
+ * without copying it.
+ */
+public class SharedFrame {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final Mat mat;
+    private final String cameraId;
+    private final long captureTimeMillis;
+    private final long sequence = SEQUENCE.incrementAndGet();
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    /**
+     * Wraps a frame owned by the caller; the caller holds the first reference.
+     */
+    public SharedFrame(Mat mat, String cameraId, long captureTimeMillis) {
+        this.mat = mat;
+        this.cameraId = cameraId;
+        this.captureTimeMillis = captureTimeMillis;
+    }
+
+    public Mat mat() {
+        return mat;
+    }
+
+    public String cameraId() {
+        return cameraId;
+    }
+
+    public long captureTimeMillis() {
+        return captureTimeMillis;
+    }
+
+    /** Process-wide frame number; with the camera id it correlates the {@link FrameEvents} of this frame. */
+    public long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Adds a reference for another holder.
+     * @return this frame, for chaining into a hand-off call.
+     */
+    public SharedFrame retain() {
+        if (refCount.getAndIncrement() <= 0) {
+            refCount.decrementAndGet();
+            throw new IllegalStateException("Frame already released");
+        }
+        return this;
+    }
+
+    /**
+     * Drops one reference and frees the native memory when none remain.
+     */
+    public void release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining == 0) {
+            mat.release();
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Frame released more times than retained");
+        }
+    }
+}
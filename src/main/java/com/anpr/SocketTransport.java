@@ -0,0 +1,167 @@
+package com.anpr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+/**
+ * {@link ClusterTransport} over TCP: each message is a 4-byte length followed by its JSON.
+ * The coordinator listens on {@code cluster.host}:{@code cluster.port}; with the default
+ * loopback host several JVMs on one box form a cluster, and binding another interface spreads
+ * workers over machines. One reader thread per link.
+ */
+public class SocketTransport implements ClusterTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketTransport.class);
+    private static final Gson gson = new Gson();
+    private static final int MAX_MESSAGE_BYTES = 16 * 1024 * 1024;
+
+    private final String host;
+    private final int port;
+    private final List<SocketLink> links = new CopyOnWriteArrayList<>();
+    private ServerSocket server;
+    private volatile boolean open = true;
+
+    public SocketTransport(AnprConfig config) {
+        this(config.get("cluster.host", "127.0.0.1"), config.getInt("cluster.port", 8091));
+    }
+
+    public SocketTransport(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public void listen(Handler handler) throws IOException {
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress(host, port));
+        Thread acceptor = new Thread(() -> {
+            while (open) {
+                try {
+                    Socket socket = server.accept();
+                    new SocketLink(socket, handler).start();
+                } catch (IOException e) {
+                    if (open) {
+                        logger.error("Cluster accept failed", e);
+                    }
+                }
+            }
+        }, "cluster-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("Cluster coordinator listening on {}:{}", host, port());
+    }
+
+    @Override
+    public Link connect(Handler handler) throws IOException {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), 5000);
+        SocketLink link = new SocketLink(socket, handler);
+        link.start();
+        return link;
+    }
+
+    /** The bound port; differs from the configured one when that was 0. */
+    public int port() {
+        return server != null ? server.getLocalPort() : port;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                logger.debug("Error closing cluster server socket", e);
+            }
+        }
+        for (SocketLink link : links) {
+            link.close();
+        }
+    }
+
+    private final class SocketLink implements Link {
+        private final Socket socket;
+        private final Handler handler;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        SocketLink(Socket socket, Handler handler) throws IOException {
+            this.socket = socket;
+            this.handler = handler;
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void start() {
+            links.add(this);
+            Thread reader = new Thread(this::readLoop, "cluster-link-" + socket.getPort());
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void readLoop() {
+            try {
+                while (!closed.get()) {
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_MESSAGE_BYTES) {
+                        throw new IOException("Bad cluster message length " + length);
+                    }
+                    byte[] body = new byte[length];
+                    in.readFully(body);
+                    handler.onMessage(this, gson.fromJson(new String(body, StandardCharsets.UTF_8), ClusterMessage.class));
+                }
+            } catch (EOFException e) {
+                // Peer went away
+            } catch (IOException | RuntimeException e) {
+                if (!closed.get()) {
+                    logger.warn("Cluster link to {} failed: {}", socket.getRemoteSocketAddress(), e.toString());
+                }
+            }
+            close();
+        }
+
+        @Override
+        public void send(ClusterMessage message) throws IOException {
+            byte[] body = gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+            synchronized (out) {
+                out.writeInt(body.length);
+                out.write(body);
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            links.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Error closing cluster link", e);
+            }
+            handler.onClose(this);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.anpr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One append-only segment of the {@link DetectionStore}.
+ * <p>
+ * Records are appended as they arrive, which may be slightly out of time order. Sealing
+ * rewrites the data file in timestamp order, so time ranges in sealed segments are found by
+ * binary search; a sorted (plate, row) index is written next to it and both files are
+ * memory-mapped. Until then plate lookups use an in-memory index.
+ */
+final class StoreSegment {
+
+    static final int RECORD_SIZE = 32;
+    static final int PLATE_BYTES = 12;
+    private static final int INDEX_ENTRY_SIZE = PLATE_BYTES + 4;
+
+    // Record layout: timestamp (8), camera code (4), plate length (1), plate ASCII (12), padding
+    private static final int CAMERA_OFFSET = 8;
+    private static final int PLATE_LENGTH_OFFSET = 12;
+    private static final int PLATE_OFFSET = 13;
+
+    private static final int PENDING_RECORDS = 2048;
+
+    final long id;
+    final Path dataFile;
+    final Path indexFile;
+
+    private FileChannel channel; // Open while the segment accepts appends
+    private ByteBuffer pending;
+    private volatile int count;
+    private volatile long minTimestamp = Long.MAX_VALUE;
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+    private boolean inOrder = true; // Whether the appended records are in time order
+
+    private volatile MappedByteBuffer data;
+    private volatile int mappedCount;
+    private volatile MappedByteBuffer index; // Null until sealed
+    private TreeMap<String, List<Integer>> memoryIndex = new TreeMap<>();
+
+    private StoreSegment(Path dir, long id) {
+        this.id = id;
+        this.dataFile = dir.resolve(String.format("seg-%012d.dat", id));
+        this.indexFile = dir.resolve(String.format("seg-%012d.idx", id));
+    }
+
+    /**
+     * Creates a new, empty segment that accepts appends.
+     */
+    static StoreSegment create(Path dir, long id) throws IOException {
+        StoreSegment segment = new StoreSegment(dir, id);
+        segment.channel = FileChannel.open(segment.dataFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        segment.pending = ByteBuffer.allocateDirect(PENDING_RECORDS * RECORD_SIZE);
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment. Segments without an index (the process stopped before
+     * sealing them) are recovered read-only and must be sealed by the caller.
+     */
+    static StoreSegment open(Path dir, long id) throws IOException {
+        StoreSegment segment = new StoreSegment(dir, id);
+        long size = Files.size(segment.dataFile);
+        if (size % RECORD_SIZE != 0) {
+            // Drop a partially written trailing record
+            try (FileChannel fc = FileChannel.open(segment.dataFile, StandardOpenOption.WRITE)) {
+                fc.truncate(size - size % RECORD_SIZE);
+            }
+        }
+        segment.count = (int) (Files.size(segment.dataFile) / RECORD_SIZE);
+        segment.mapData();
+        if (segment.count > 0) {
+            segment.minTimestamp = segment.timestampAt(0);
+            segment.maxTimestamp = segment.timestampAt(segment.count - 1);
+        }
+
+        if (Files.exists(segment.indexFile) && Files.size(segment.indexFile) == (long) segment.count * INDEX_ENTRY_SIZE) {
+            segment.index = map(segment.indexFile);
+            segment.memoryIndex = null;
+        } else {
+            segment.inOrder = false;
+        }
+        return segment;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long minTimestamp() {
+        return minTimestamp;
+    }
+
+    long maxTimestamp() {
+        return maxTimestamp;
+    }
+
+    boolean isSealed() {
+        return index != null;
+    }
+
+    synchronized void append(long timestampMillis, int cameraCode, String plate) throws IOException {
+        int length = Math.min(plate.length(), PLATE_BYTES);
+        pending.putLong(timestampMillis);
+        pending.putInt(cameraCode);
+        pending.put((byte) length);
+        for (int i = 0; i < PLATE_BYTES; i++) {
+            pending.put(i < length ? (byte) plate.charAt(i) : 0);
+        }
+        pending.position(pending.position() + RECORD_SIZE - PLATE_OFFSET - PLATE_BYTES);
+
+        memoryIndex.computeIfAbsent(plate.substring(0, length), k -> new ArrayList<>()).add(count);
+        if (timestampMillis < maxTimestamp) {
+            inOrder = false;
+        }
+        minTimestamp = Math.min(minTimestamp, timestampMillis);
+        maxTimestamp = Math.max(maxTimestamp, timestampMillis);
+        count++;
+
+        if (!pending.hasRemaining()) {
+            flush();
+        }
+    }
+
+    synchronized void flush() throws IOException {
+        if (channel == null || pending.position() == 0) {
+            return;
+        }
+        pending.flip();
+        while (pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Stops appends, puts the records in time order, writes the sorted plate index and maps it.
+     */
+    synchronized void seal() throws IOException {
+        if (index != null) {
+            return;
+        }
+        if (channel != null) {
+            flush();
+            channel.force(false);
+            channel.close();
+            channel = null;
+            pending = null;
+        }
+        mapData();
+        sortByTime();
+
+        Integer[] rows = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = i;
+        }
+        byte[] a = new byte[PLATE_BYTES];
+        byte[] b = new byte[PLATE_BYTES];
+        Arrays.sort(rows, (r1, r2) -> {
+            data.get(r1 * RECORD_SIZE + PLATE_OFFSET, a);
+            data.get(r2 * RECORD_SIZE + PLATE_OFFSET, b);
+            int cmp = Arrays.compareUnsigned(a, b);
+            return cmp != 0 ? cmp : Integer.compare(r1, r2);
+        });
+
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(4096 * INDEX_ENTRY_SIZE);
+            for (Integer row : rows) {
+                data.get(row * RECORD_SIZE + PLATE_OFFSET, a);
+                buffer.put(a).putInt(row);
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) out.write(buffer);
+                    buffer.clear();
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) out.write(buffer);
+            out.force(false);
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index = map(indexFile);
+        memoryIndex = null;
+    }
+
+    // Rewrites the data file in timestamp order; a stable sort keeps arrival order for equal times
+    private void sortByTime() throws IOException {
+        // Recovered and merged segments are usually in order already
+        if (!inOrder) {
+            inOrder = true;
+            for (int row = 1; row < count && inOrder; row++) {
+                inOrder = timestampAt(row - 1) <= timestampAt(row);
+            }
+        }
+        if (!inOrder) {
+            Integer[] rows = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                rows[i] = i;
+            }
+            Arrays.sort(rows, Comparator.comparingLong(this::timestampAt));
+
+            Path tmp = dataFile.resolveSibling(dataFile.getFileName() + ".tmp");
+            byte[] record = new byte[RECORD_SIZE];
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(4096 * RECORD_SIZE);
+                for (Integer row : rows) {
+                    data.get(row * RECORD_SIZE, record);
+                    buffer.put(record);
+                    if (!buffer.hasRemaining()) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) out.write(buffer);
+                        buffer.clear();
+                    }
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) out.write(buffer);
+                out.force(false);
+            }
+            Files.move(tmp, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            mapData();
+            inOrder = true;
+        }
+        if (count > 0) {
+            minTimestamp = timestampAt(0);
+            maxTimestamp = timestampAt(count - 1);
+        }
+    }
+
+    void close() throws IOException {
+        synchronized (this) {
+            if (channel != null) {
+                flush();
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(indexFile);
+        Files.deleteIfExists(dataFile);
+    }
+
+    /**
+     * Copies the raw records of this segment to {@code out}; used by compaction.
+     */
+    void transferTo(FileChannel out) throws IOException {
+        try (FileChannel in = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            long position = 0;
+            long size = (long) count * RECORD_SIZE;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    // --- Queries ---
+
+    /**
+     * Adds records whose plate equals {@code plate} (or starts with it, for prefix queries)
+     * and whose timestamp lies in [fromMillis, toMillis].
+     */
+    void findPlate(String plate, boolean prefix, long fromMillis, long toMillis, List<String> cameras, List<DetectionRecord> out) {
+        if (count == 0 || maxTimestamp < fromMillis || minTimestamp > toMillis) {
+            return;
+        }
+        MappedByteBuffer sealedIndex = index;
+        if (sealedIndex == null) {
+            findPlateInMemory(plate, prefix, fromMillis, toMillis, cameras, out);
+            return;
+        }
+
+        byte[] key = new byte[PLATE_BYTES];
+        int keyLength = Math.min(plate.length(), PLATE_BYTES);
+        for (int i = 0; i < keyLength; i++) {
+            key[i] = (byte) plate.charAt(i);
+        }
+        int compareLength = prefix ? keyLength : PLATE_BYTES;
+
+        // Lower bound of the key in the sorted index
+        byte[] probe = new byte[PLATE_BYTES];
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            sealedIndex.get(mid * INDEX_ENTRY_SIZE, probe);
+            if (Arrays.compareUnsigned(probe, key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        for (int i = lo; i < count; i++) {
+            sealedIndex.get(i * INDEX_ENTRY_SIZE, probe);
+            if (Arrays.compareUnsigned(probe, 0, compareLength, key, 0, compareLength) != 0) {
+                break;
+            }
+            int row = sealedIndex.getInt(i * INDEX_ENTRY_SIZE + PLATE_BYTES);
+            long timestamp = timestampAt(row);
+            if (timestamp >= fromMillis && timestamp <= toMillis) {
+                out.add(recordAt(row, cameras));
+            }
+        }
+    }
+
+    private synchronized void findPlateInMemory(String plate, boolean prefix, long fromMillis, long toMillis, List<String> cameras, List<DetectionRecord> out) {
+        if (memoryIndex == null) {
+            // Sealed while we were waiting for the lock
+            findPlate(plate, prefix, fromMillis, toMillis, cameras, out);
+            return;
+        }
+        ensureMapped();
+        Map<String, List<Integer>> matches = prefix
+                ? memoryIndex.subMap(plate, true, plate + Character.MAX_VALUE, false)
+                : (memoryIndex.containsKey(plate) ? Map.of(plate, memoryIndex.get(plate)) : Map.of());
+        for (List<Integer> rows : matches.values()) {
+            for (int row : rows) {
+                long timestamp = timestampAt(row);
+                if (timestamp >= fromMillis && timestamp <= toMillis) {
+                    out.add(recordAt(row, cameras));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds records in [fromMillis, toMillis], optionally for one camera, up to {@code limit} results.
+     */
+    void scanTime(long fromMillis, long toMillis, int cameraCode, List<String> cameras, List<DetectionRecord> out, int limit) {
+        if (count == 0 || maxTimestamp < fromMillis || minTimestamp > toMillis) {
+            return;
+        }
+        if (index == null) {
+            synchronized (this) {
+                if (index == null) {
+                    ensureMapped();
+                    if (inOrder) {
+                        scanRows(fromMillis, toMillis, cameraCode, cameras, out, limit);
+                    } else {
+                        scanUnordered(fromMillis, toMillis, cameraCode, cameras, out, limit);
+                    }
+                    return;
+                }
+            }
+        }
+        scanRows(fromMillis, toMillis, cameraCode, cameras, out, limit);
+    }
+
+    private void scanRows(long fromMillis, long toMillis, int cameraCode, List<String> cameras, List<DetectionRecord> out, int limit) {
+        int available = mappedCount;
+        int lo = 0;
+        int hi = available;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestampAt(mid) < fromMillis) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int row = lo; row < available && out.size() < limit; row++) {
+            if (timestampAt(row) > toMillis) {
+                break;
+            }
+            if (cameraCode < 0 || data.getInt(row * RECORD_SIZE + CAMERA_OFFSET) == cameraCode) {
+                out.add(recordAt(row, cameras));
+            }
+        }
+    }
+
+    // Active segment holding late records: scan every row, then take the oldest matches
+    private void scanUnordered(long fromMillis, long toMillis, int cameraCode, List<String> cameras, List<DetectionRecord> out, int limit) {
+        List<DetectionRecord> matches = new ArrayList<>();
+        for (int row = 0; row < mappedCount; row++) {
+            long timestamp = timestampAt(row);
+            if (timestamp >= fromMillis && timestamp <= toMillis
+                    && (cameraCode < 0 || data.getInt(row * RECORD_SIZE + CAMERA_OFFSET) == cameraCode)) {
+                matches.add(recordAt(row, cameras));
+            }
+        }
+        matches.sort(Comparator.comparingLong(r -> r.timestampMillis));
+        for (int i = 0; i < matches.size() && out.size() < limit; i++) {
+            out.add(matches.get(i));
+        }
+    }
+
+    private long timestampAt(int row) {
+        return data.getLong(row * RECORD_SIZE);
+    }
+
+    private String plateAt(int row) {
+        int base = row * RECORD_SIZE;
+        byte[] plate = new byte[data.get(base + PLATE_LENGTH_OFFSET)];
+        data.get(base + PLATE_OFFSET, plate);
+        return new String(plate, StandardCharsets.US_ASCII);
+    }
+
+    private DetectionRecord recordAt(int row, List<String> cameras) {
+        int cameraCode = data.getInt(row * RECORD_SIZE + CAMERA_OFFSET);
+        String camera = cameraCode < cameras.size() ? cameras.get(cameraCode) : "camera#" + cameraCode;
+        return new DetectionRecord(timestampAt(row), camera, plateAt(row));
+    }
+
+    // Remaps a segment that is still growing so reads see every appended record
+    private void ensureMapped() {
+        if (mappedCount == count) {
+            return;
+        }
+        try {
+            flush();
+            mapData();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map segment " + dataFile, e);
+        }
+    }
+
+    private void mapData() throws IOException {
+        try (FileChannel fc = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            int rows = (int) (fc.size() / RECORD_SIZE);
+            data = fc.map(FileChannel.MapMode.READ_ONLY, 0, (long) rows * RECORD_SIZE);
+            mappedCount = rows;
+        }
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            return fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+        }
+    }
+}
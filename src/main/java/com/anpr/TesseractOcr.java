@@ -0,0 +1,151 @@
+package com.anpr;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.jna.Pointer;
+
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI;
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
+
+/**
+ * Reads plates with Tesseract's general LSTM engine, restricted to a single line of
+ * uppercase letters and digits. Given a {@link SymbolTesseract}, the result also carries
+ * Tesseract's alternatives for every symbol for {@link PlateCorrector}.
+ */
+public class TesseractOcr implements PlateOcr {
+
+    private static final Logger logger = LoggerFactory.getLogger(TesseractOcr.class);
+
+    private final Tesseract tesseract;
+
+    public TesseractOcr(Tesseract tesseract) {
+        this.tesseract = tesseract;
+
+        // --- Performance Optimization ---
+        // 1. Whitelist only uppercase alphanumeric characters to prevent symbol guessing
+        this.tesseract.setTessVariable("tessedit_char_whitelist", "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789");
+        // 2. Set Page Segmentation Mode to 7 (Treat the image as a single text line)
+        this.tesseract.setPageSegMode(ITessAPI.TessPageSegMode.PSM_SINGLE_LINE);
+        // 3. Keep the LSTM's runner-up characters per symbol
+        if (tesseract instanceof SymbolTesseract) {
+            this.tesseract.setTessVariable("lstm_choice_mode", "2");
+        }
+    }
+
+    @Override
+    public Result recognize(Mat grayPlate) {
+        // Pre-processing
+        Mat threshPlate = new Mat();
+        Imgproc.threshold(grayPlate, threshPlate, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+
+        Mat resizedPlate = new Mat();
+        Imgproc.resize(threshPlate, resizedPlate, new Size(), 2, 2, Imgproc.INTER_CUBIC);
+        threshPlate.release();
+
+        // Convert and OCR
+        BufferedImage bufferedImage = matToBufferedImage(resizedPlate);
+        resizedPlate.release();
+        try {
+            if (tesseract instanceof SymbolTesseract) {
+                return ((SymbolTesseract) tesseract).readSymbols(bufferedImage);
+            }
+            return new Result(tesseract.doOCR(bufferedImage), 1f);
+        } catch (TesseractException e) {
+            logger.debug("Tesseract could not read plate: {}", e.getMessage());
+            return Result.EMPTY;
+        }
+    }
+
+    /**
+     * Tesseract that also reports, for every recognized symbol, the alternatives the engine
+     * considered and their confidences.
+     */
+    public static class SymbolTesseract extends Tesseract {
+
+        private static final int MAX_CHOICES = 4;
+
+        /** Like {@link #doOCR(BufferedImage)}, walking the result symbol by symbol. */
+        public synchronized Result readSymbols(BufferedImage image) throws TesseractException {
+            init();
+            setVariables();
+            try {
+                setImage(image);
+                TessAPI api = getAPI();
+                api.TessBaseAPIRecognize(getHandle(), null);
+                ITessAPI.TessResultIterator iterator = api.TessBaseAPIGetIterator(getHandle());
+                if (iterator == null) {
+                    return Result.EMPTY;
+                }
+                StringBuilder text = new StringBuilder();
+                List<char[]> choices = new ArrayList<>();
+                List<float[]> scores = new ArrayList<>();
+                float confidence = 1f;
+                int level = ITessAPI.TessPageIteratorLevel.RIL_SYMBOL;
+                try {
+                    do {
+                        Pointer pointer = api.TessResultIteratorGetUTF8Text(iterator, level);
+                        if (pointer == null) {
+                            continue;
+                        }
+                        String symbol = pointer.getString(0);
+                        api.TessDeleteText(pointer);
+                        if (symbol.isEmpty()) {
+                            continue;
+                        }
+                        float score = api.TessResultIteratorConfidence(iterator, level) / 100f;
+                        confidence = Math.min(confidence, score);
+                        text.append(symbol);
+
+                        char[] symbolChoices = new char[MAX_CHOICES + 1];
+                        float[] symbolScores = new float[MAX_CHOICES + 1];
+                        symbolChoices[0] = symbol.charAt(0);
+                        symbolScores[0] = score;
+                        int count = 1;
+                        ITessAPI.TessChoiceIterator choice = api.TessResultIteratorGetChoiceIterator(iterator);
+                        if (choice != null) {
+                            do {
+                                String alternative = api.TessChoiceIteratorGetUTF8Text(choice);
+                                if (alternative != null && !alternative.isEmpty() && alternative.charAt(0) != symbolChoices[0]) {
+                                    symbolChoices[count] = alternative.charAt(0);
+                                    symbolScores[count] = api.TessChoiceIteratorConfidence(choice) / 100f;
+                                    count++;
+                                }
+                            } while (count <= MAX_CHOICES && api.TessChoiceIteratorNext(choice) == ITessAPI.TRUE);
+                            api.TessChoiceIteratorDelete(choice);
+                        }
+                        choices.add(Arrays.copyOf(symbolChoices, count));
+                        scores.add(Arrays.copyOf(symbolScores, count));
+                    } while (api.TessResultIteratorNext(iterator, level) == ITessAPI.TRUE);
+                } finally {
+                    api.TessResultIteratorDelete(iterator);
+                }
+                return new Result(text.toString(), text.length() == 0 ? 0f : confidence,
+                        choices.toArray(new char[0][]), scores.toArray(new float[0][]));
+            } catch (IOException e) {
+                throw new TesseractException(e);
+            } finally {
+                dispose();
+            }
+        }
+    }
+
+    private static BufferedImage matToBufferedImage(Mat mat) {
+        int type = mat.channels() > 1 ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_BYTE_GRAY;
+        BufferedImage image = new BufferedImage(mat.cols(), mat.rows(), type);
+        mat.get(0, 0, ((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+        return image;
+    }
+}
@@ -0,0 +1,420 @@
+package com.anpr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Traffic rollups kept up to date on the detection path, so reports need no scan of the
+ * raw sightings.
+ * <p>
+ * A sighting counts as a visit when its plate was not seen on the same camera within
+ * {@code analytics.visitGapSeconds}. Every visit is added to one minute, one hour and one
+ * day bucket: striped counters ({@link LongAdder}) per camera and per registration state,
+ * and a {@link HyperLogLog} sketch of the plates. Recording takes no lock.
+ * <p>
+ * Range queries merge the buckets in range. Returning vehicles are estimated by
+ * inclusion-exclusion against the sketches of the {@code analytics.repeatLookbackDays}
+ * before the range. Buckets are written to one compressed file per granularity under
+ * {@code analytics.folder} and reloaded on start.
+ */
+public class TrafficAnalytics implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficAnalytics.class);
+    private static final int FILE_VERSION = 1;
+
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES), HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+        final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+    }
+
+    /** Counters of one time bucket; all of them may be updated concurrently. */
+    static final class Bucket {
+        final long startMillis;
+        final long endMillis;
+        final LongAdder visits = new LongAdder();
+        final ConcurrentHashMap<String, LongAdder> cameras = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, LongAdder> states = new ConcurrentHashMap<>();
+        final HyperLogLog vehicles;
+
+        Bucket(long startMillis, long endMillis, HyperLogLog vehicles) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.vehicles = vehicles;
+        }
+    }
+
+    /** Merged counters of a time range. */
+    public static final class Rollup {
+        public final long startMillis;
+        public final long endMillis;
+        public final long visits;
+        public final Map<String, Long> visitsPerCamera;
+        public final Map<String, Long> visitsPerState;
+        public final long uniqueVehicles;
+        public final long returningVehicles;
+
+        Rollup(long startMillis, long endMillis, long visits, Map<String, Long> visitsPerCamera,
+                Map<String, Long> visitsPerState, long uniqueVehicles, long returningVehicles) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.visits = visits;
+            this.visitsPerCamera = visitsPerCamera;
+            this.visitsPerState = visitsPerState;
+            this.uniqueVehicles = uniqueVehicles;
+            this.returningVehicles = returningVehicles;
+        }
+
+        /** Share of this range's vehicles that were also seen during the lookback period. */
+        public double repeatVisitRate() {
+            return uniqueVehicles == 0 ? 0 : (double) returningVehicles / uniqueVehicles;
+        }
+
+        public double visitsPerVehicle() {
+            return uniqueVehicles == 0 ? 0 : (double) visits / uniqueVehicles;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("visits=%d vehicles~%d returning=%.1f%% lanes=%s states=%s",
+                    visits, uniqueVehicles, repeatVisitRate() * 100, visitsPerCamera, visitsPerState);
+        }
+    }
+
+    private final Path directory;
+    private final ZoneId zone;
+    private final long visitGapMillis;
+    private final Duration repeatLookback;
+    private final Duration[] retention;
+
+    private final List<ConcurrentSkipListMap<Long, Bucket>> buckets = new ArrayList<>();
+    // Bucket last written per granularity; most visits land in the same one
+    private final AtomicReferenceArray<Bucket> current = new AtomicReferenceArray<>(Granularity.values().length);
+    // Newest sighting time per camera and plate, for the visit gap
+    private final ConcurrentHashMap<String, Long> lastSeen = new ConcurrentHashMap<>();
+    private final AtomicLong latestMillis = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder changes = new LongAdder();
+    private long flushedChanges;
+
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "traffic-analytics-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public TrafficAnalytics() throws IOException {
+        this(Paths.get(ConfigLoader.current().get("analytics.folder", "analytics")), ConfigLoader.current());
+    }
+
+    public TrafficAnalytics(Path directory, AnprConfig config) throws IOException {
+        this.directory = directory;
+        String zoneId = config.get("analytics.timeZone", "");
+        this.zone = zoneId.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(zoneId);
+        this.visitGapMillis = config.getInt("analytics.visitGapSeconds", 300) * 1000L;
+        this.repeatLookback = Duration.ofDays(config.getInt("analytics.repeatLookbackDays", 30));
+        this.retention = new Duration[] {
+                Duration.ofHours(config.getInt("analytics.minuteRetentionHours", 24)),
+                Duration.ofDays(config.getInt("analytics.hourRetentionDays", 90)),
+                Duration.ofDays(config.getInt("analytics.dayRetentionDays", 730))};
+        for (int i = 0; i < Granularity.values().length; i++) {
+            buckets.add(new ConcurrentSkipListMap<>());
+        }
+        Files.createDirectories(directory);
+        for (Granularity granularity : Granularity.values()) {
+            load(granularity);
+        }
+        applyRetention();
+
+        int flushSeconds = config.getInt("analytics.flushSeconds", 60);
+        maintenance.scheduleWithFixedDelay(this::maintain, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Registration state of a plate: the leading state code, or {@code BH} for the Bharat series.
+     */
+    static String stateOf(String plate) {
+        if (plate.length() >= 4 && Character.isDigit(plate.charAt(0)) && plate.startsWith("BH", 2)) {
+            return "BH";
+        }
+        return plate.length() >= 2 ? plate.substring(0, 2) : "??";
+    }
+
+    /**
+     * Adds one validated sighting. Repeats of the plate on the same camera within the visit
+     * gap only refresh its last-seen time.
+     */
+    public void record(long timestampMillis, String cameraId, String plate) {
+        latestMillis.accumulateAndGet(timestampMillis, Math::max);
+        Long previous = lastSeen.put(cameraId + '\n' + plate, timestampMillis);
+        if (previous != null && timestampMillis - previous < visitGapMillis) {
+            return;
+        }
+        String state = stateOf(plate);
+        for (Granularity granularity : Granularity.values()) {
+            Bucket bucket = bucketFor(granularity, timestampMillis);
+            bucket.visits.increment();
+            increment(bucket.cameras, cameraId);
+            increment(bucket.states, state);
+            bucket.vehicles.add(plate);
+        }
+        changes.increment();
+    }
+
+    private static void increment(ConcurrentHashMap<String, LongAdder> counters, String key) {
+        LongAdder counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private Bucket bucketFor(Granularity granularity, long timestampMillis) {
+        Bucket bucket = current.get(granularity.ordinal());
+        if (bucket != null && timestampMillis >= bucket.startMillis && timestampMillis < bucket.endMillis) {
+            return bucket;
+        }
+        long start = Instant.ofEpochMilli(timestampMillis).atZone(zone).truncatedTo(granularity.unit).toInstant().toEpochMilli();
+        ConcurrentSkipListMap<Long, Bucket> map = buckets.get(granularity.ordinal());
+        bucket = map.get(start);
+        if (bucket == null) {
+            long end = Instant.ofEpochMilli(start).atZone(zone).plus(1, granularity.unit).toInstant().toEpochMilli();
+            Bucket created = new Bucket(start, end, new HyperLogLog());
+            bucket = map.putIfAbsent(start, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        current.set(granularity.ordinal(), bucket);
+        return bucket;
+    }
+
+    // --- Queries ---
+
+    /** All buckets starting in [fromMillis, toMillis) merged into one rollup. */
+    public Rollup rollup(Granularity granularity, long fromMillis, long toMillis) {
+        return merge(buckets.get(granularity.ordinal()).subMap(fromMillis, toMillis).values(), fromMillis, toMillis);
+    }
+
+    /** One rollup per non-empty bucket starting in [fromMillis, toMillis), oldest first. */
+    public List<Rollup> series(Granularity granularity, long fromMillis, long toMillis) {
+        List<Rollup> series = new ArrayList<>();
+        for (Bucket bucket : buckets.get(granularity.ordinal()).subMap(fromMillis, toMillis).values()) {
+            series.add(merge(List.of(bucket), bucket.startMillis, bucket.endMillis));
+        }
+        return series;
+    }
+
+    private Rollup merge(Iterable<Bucket> range, long fromMillis, long toMillis) {
+        long visits = 0;
+        Map<String, Long> perCamera = new TreeMap<>();
+        Map<String, Long> perState = new TreeMap<>();
+        HyperLogLog vehicles = new HyperLogLog();
+        for (Bucket bucket : range) {
+            visits += bucket.visits.sum();
+            bucket.cameras.forEach((camera, count) -> perCamera.merge(camera, count.sum(), Long::sum));
+            bucket.states.forEach((state, count) -> perState.merge(state, count.sum(), Long::sum));
+            vehicles.merge(bucket.vehicles);
+        }
+        long unique = vehicles.estimate();
+
+        // |range ∩ history| = |range| + |history| - |range ∪ history|
+        HyperLogLog history = history(fromMillis);
+        long before = history.estimate();
+        history.merge(vehicles);
+        long returning = Math.max(0, Math.min(unique, unique + before - history.estimate()));
+        return new Rollup(fromMillis, toMillis, visits, Collections.unmodifiableMap(perCamera),
+                Collections.unmodifiableMap(perState), unique, returning);
+    }
+
+    // Vehicles of the lookback period before a time: whole days, then hours, then minutes up to it
+    private HyperLogLog history(long untilMillis) {
+        HyperLogLog history = new HyperLogLog();
+        long from = untilMillis - repeatLookback.toMillis();
+        for (Granularity granularity : new Granularity[] {Granularity.DAY, Granularity.HOUR, Granularity.MINUTE}) {
+            long end = Instant.ofEpochMilli(untilMillis).atZone(zone).truncatedTo(granularity.unit).toInstant().toEpochMilli();
+            if (end <= from) {
+                continue;
+            }
+            for (Bucket bucket : buckets.get(granularity.ordinal()).subMap(from, end).values()) {
+                history.merge(bucket.vehicles);
+            }
+            from = end;
+        }
+        return history;
+    }
+
+    // --- Persistence ---
+
+    private void maintain() {
+        try {
+            applyRetention();
+            long latest = latestMillis.get();
+            lastSeen.values().removeIf(seen -> seen < latest - visitGapMillis);
+            flush();
+        } catch (Exception e) {
+            logger.error("Traffic analytics maintenance failed", e);
+        }
+    }
+
+    private void applyRetention() {
+        long now = System.currentTimeMillis();
+        for (Granularity granularity : Granularity.values()) {
+            buckets.get(granularity.ordinal()).headMap(now - retention[granularity.ordinal()].toMillis()).clear();
+        }
+    }
+
+    /** Writes every granularity if anything was recorded since the last flush. */
+    synchronized void flush() throws IOException {
+        long recorded = changes.sum();
+        if (recorded == flushedChanges) {
+            return;
+        }
+        for (Granularity granularity : Granularity.values()) {
+            write(granularity);
+        }
+        flushedChanges = recorded;
+    }
+
+    private Path file(Granularity granularity) {
+        return directory.resolve(granularity.name().toLowerCase() + ".bin");
+    }
+
+    // Written aside and moved over the old file, so a crash never leaves a torn file behind
+    private void write(Granularity granularity) throws IOException {
+        Path file = file(granularity);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        // Snapshot: new buckets may appear while writing
+        List<Bucket> values = new ArrayList<>(buckets.get(granularity.ordinal()).values());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temporary))))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(values.size());
+            for (Bucket bucket : values) {
+                out.writeLong(bucket.startMillis);
+                out.writeLong(bucket.endMillis);
+                out.writeLong(bucket.visits.sum());
+                writeCounters(out, bucket.cameras);
+                writeCounters(out, bucket.states);
+                bucket.vehicles.writeTo(out);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeCounters(DataOutputStream out, Map<String, LongAdder> counters) throws IOException {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((key, count) -> snapshot.put(key, count.sum()));
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, Long> entry : snapshot.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    private void load(Granularity granularity) throws IOException {
+        Path file = file(granularity);
+        if (!Files.exists(file)) {
+            return;
+        }
+        ConcurrentSkipListMap<Long, Bucket> map = buckets.get(granularity.ordinal());
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != FILE_VERSION) {
+                logger.warn("Ignoring {}: unknown traffic analytics file version.", file);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long start = in.readLong();
+                long end = in.readLong();
+                long visits = in.readLong();
+                Map<String, Long> cameras = readCounters(in);
+                Map<String, Long> states = readCounters(in);
+                Bucket bucket = new Bucket(start, end, HyperLogLog.readFrom(in));
+                bucket.visits.add(visits);
+                cameras.forEach((camera, n) -> bucket.cameras.computeIfAbsent(camera, k -> new LongAdder()).add(n));
+                states.forEach((state, n) -> bucket.states.computeIfAbsent(state, k -> new LongAdder()).add(n));
+                map.put(start, bucket);
+            }
+        }
+        logger.info("Loaded {} {} traffic buckets from {}.", map.size(), granularity.name().toLowerCase(), file);
+    }
+
+    private static Map<String, Long> readCounters(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, Long> counters = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            counters.put(in.readUTF(), in.readLong());
+        }
+        return counters;
+    }
+
+    @Override
+    public void close() throws IOException {
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Command-line reports, e.g. {@code hour 24} for the last 24 hours or {@code day 7}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: TrafficAnalytics minute|hour|day [count]");
+            return;
+        }
+        Granularity granularity = Granularity.valueOf(args[0].toUpperCase());
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+
+        try (TrafficAnalytics analytics = new TrafficAnalytics()) {
+            long to = System.currentTimeMillis();
+            long from = Instant.ofEpochMilli(to).atZone(analytics.zone).truncatedTo(granularity.unit)
+                    .minus(count - 1, granularity.unit).toInstant().toEpochMilli();
+            long start = System.nanoTime();
+            List<Rollup> series = analytics.series(granularity, from, to);
+            Rollup total = analytics.rollup(granularity, from, to);
+            long micros = (System.nanoTime() - start) / 1000;
+            for (Rollup rollup : series) {
+                System.out.println(Instant.ofEpochMilli(rollup.startMillis).atZone(analytics.zone).toLocalDateTime() + "  " + rollup);
+            }
+            System.out.println("Total  " + total);
+            System.out.printf("%d buckets in %.2f ms%n", series.size(), micros / 1000.0);
+        }
+    }
+}
@@ -10,80 +10,94 @@ import org.xml.sax.InputSource;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.InputStream;
+import java.io.IOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
 
 public class VehicleApiClient {
 
     private static final Logger logger = LoggerFactory.getLogger(VehicleApiClient.class);
     private static final Gson gson = new Gson();
-    private static String apiUsername;
-    private static String apiUrl;
-
-    static {
-        try (InputStream input = VehicleApiClient.class.getClassLoader().getResourceAsStream("config.properties")) {
-            Properties prop = new Properties();
-            if (input != null) {
-                prop.load(input);
-                apiUsername = prop.getProperty("api.username");
-                apiUrl = prop.getProperty("api.url");
-            }
-        } catch (Exception ex) {
-            logger.error("Error loading config", ex);
-        }
+
+    private final Supplier<AnprConfig> config;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    public VehicleApiClient() {
+        this(ConfigLoader::current);
+    }
+
+    /**
+     * @param config Source of the current configuration snapshot; API URL and username are
+     *               read per request, so they can be changed without a restart.
+     */
+    public VehicleApiClient(Supplier<AnprConfig> config) {
+        this.config = config;
     }
 
     /**
      * Real implementation: Calls the RegCheck API.
      * @param plateNumber The license plate number to look up.
-     * @return A VehicleDetails object or null if not found.
+     * @return A VehicleDetails object or null if the API does not know the plate.
+     * @throws UncheckedIOException If the API is not configured, cannot be reached or answers
+     *                              with an error, so callers can try again later instead of
+     *                              taking the failure for "not found".
+     * @throws CancellationException If interrupted while waiting for the answer.
      */
-    public static VehicleDetails fetchVehicleDetails(String plateNumber) {
+    public VehicleDetails fetchVehicleDetails(String plateNumber) {
         logger.info("Fetching details for {}...", plateNumber);
-        
+
+        AnprConfig snapshot = config.get();
+        String apiUsername = snapshot.apiUsername;
+        String apiUrl = snapshot.apiUrl;
         if (apiUsername == null || apiUrl == null) {
             logger.error("API configuration missing. Please check config.properties.");
-            return null;
+            throw new UncheckedIOException(new IOException("Vehicle API URL or username not configured"));
         }
 
-        try {
-            // Prepare Form Data
-            String formData = "RegistrationNumber=" + URLEncoder.encode(plateNumber, StandardCharsets.UTF_8)
-                    + "&username=" + URLEncoder.encode(apiUsername, StandardCharsets.UTF_8);
+        // Prepare Form Data
+        String formData = "RegistrationNumber=" + URLEncoder.encode(plateNumber, StandardCharsets.UTF_8)
+                + "&username=" + URLEncoder.encode(apiUsername, StandardCharsets.UTF_8);
 
-            logger.info("Sending API Request to: {}", apiUrl);
-            logger.info("Request Payload: {}", formData);
+        logger.info("Sending API Request to: {}", apiUrl);
+        logger.info("Request Payload: {}", formData);
 
-            HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response;
+        try {
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(apiUrl))
                     .header("Content-Type", "application/x-www-form-urlencoded")
                     .POST(HttpRequest.BodyPublishers.ofString(formData))
                     .build();
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            logger.error("Error fetching vehicle details for {}", plateNumber, e);
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted fetching details for " + plateNumber);
+        }
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-            logger.info("Received API Response Body: {}", response.body());
+        logger.info("Received API Response Body: {}", response.body());
 
-            if (response.statusCode() == 200) {
-                return parseApiResponse(response.body());
-            } else {
-                logger.error("API Error: Received status code {}", response.statusCode());
-            }
-        } catch (Exception e) {
-            logger.error("Error fetching vehicle details for {}", plateNumber, e);
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            logger.error("API Error: Received status code {}", response.statusCode());
+            throw new UncheckedIOException(new IOException("Vehicle API answered " + response.statusCode()));
         }
-        return null;
+        return parseApiResponse(response.body());
     }
 
-    private static VehicleDetails parseApiResponse(String xmlResponse) {
+    static VehicleDetails parseApiResponse(String xmlResponse) {
         try {
             // 1. Parse XML to get the inner JSON string from <vehicleJson> tag
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
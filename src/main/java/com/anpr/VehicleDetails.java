@@ -14,6 +14,10 @@ public class VehicleDetails {
         return vehicleModel;
     }
 
+    public String getRegistrationDate() {
+        return registrationDate;
+    }
+
     @Override
     public String toString() {
         return "Owner: " + ownerName + "\nVehicle: " + vehicleModel + "\nReg. Date: " + registrationDate;
@@ -0,0 +1,87 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+
+public class BatchDataEnricherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> lookups = new ArrayList<>();
+
+    private Function<String, VehicleDetails> lookup(int failAfter) {
+        return plate -> {
+            if (lookups.size() == failAfter) {
+                throw new IllegalStateException("simulated API outage");
+            }
+            lookups.add(plate);
+            return plate.startsWith("XX") ? null
+                    : new Gson().fromJson("{\"ownerName\":\"Owner " + plate + "\",\"vehicleModel\":\"Model\"}", VehicleDetails.class);
+        };
+    }
+
+    private static List<List<String>> rows(File file) throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        try (FileInputStream in = new FileInputStream(file); Workbook workbook = new XSSFWorkbook(in)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            for (Row row : sheet) {
+                List<String> cells = new ArrayList<>();
+                for (int i = 1; i < 5; i++) {
+                    cells.add(row.getCell(i) == null ? null : row.getCell(i).getStringCellValue());
+                }
+                rows.add(cells);
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void retriesFailedLookupsAndOnlyEnrichesNewRowsLater() throws Exception {
+        String log = new File(folder.getRoot(), "log.xlsx").getPath();
+        File output = new File(folder.getRoot(), "enriched.xlsx");
+        for (String plate : new String[] {"MH12AB1234", "KA01CD5678", "MH12AB1234", "XX00ZZ0000", "DL3CAF0001"}) {
+            ExcelLogger.logBasicDetection(log, plate);
+        }
+
+        // The API goes down after two lookups: those are kept, the failures are not "Not Found"
+        BatchDataEnricher.enrichData(log, output.getPath(), lookup(2), 0, null);
+        assertFalse(output.exists());
+        BatchDataEnricher.enrichData(log, output.getPath(), lookup(-1), 0, null);
+        assertEquals(List.of("MH12AB1234", "KA01CD5678", "XX00ZZ0000", "DL3CAF0001"), lookups);
+
+        List<List<String>> rows = rows(output);
+        assertEquals(5, rows.size());
+        assertEquals(List.of("Plate Number", "Owner Name", "Vehicle Model", "Registration Date"), rows.get(0));
+        assertEquals("Owner MH12AB1234", rows.get(1).get(1));
+        assertEquals("N/A", rows.get(1).get(3));
+        assertEquals("Not Found", rows.get(3).get(1));
+        assertTrue(new File(log).exists());
+
+        // Only rows logged after the completed run are looked up and appended
+        lookups.clear();
+        ExcelLogger.logBasicDetection(log, "TN09EF4321");
+        BatchDataEnricher.enrichData(log, output.getPath(), lookup(-1), 0, null);
+        assertEquals(List.of("TN09EF4321"), lookups);
+        rows = rows(output);
+        assertEquals(6, rows.size());
+        assertEquals("TN09EF4321", rows.get(5).get(0));
+    }
+}
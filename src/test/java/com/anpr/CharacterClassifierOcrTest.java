@@ -0,0 +1,59 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import nu.pattern.OpenCV;
+
+public class CharacterClassifierOcrTest {
+
+    private static final AnprConfig config = new AnprConfig(new Properties());
+    private static CharacterClassifierOcr ocr;
+
+    @BeforeClass
+    public static void buildClassifier() {
+        OpenCV.loadLocally();
+        ocr = new CharacterClassifierOcr(config);
+    }
+
+    @Test
+    public void readsRenderedPlates() {
+        PlateCorpusGenerator generator = new PlateCorpusGenerator(5, config);
+        for (String plate : new String[] {"MH12AB1234", "TN09BC2345", "DL3C4567", "22BH4567AA"}) {
+            Mat gray = grayPlate(generator.renderPlate(plate, plate.startsWith("BH", 2)));
+            PlateOcr.Result result = ocr.recognize(gray);
+            gray.release();
+            assertEquals(plate, DetectionProcessor.normalizePlate(result));
+            assertTrue(plate, result.confidence > 0);
+        }
+    }
+
+    @Test
+    public void findsNothingOnABlankCrop() {
+        Mat blank = new Mat(60, 250, CvType.CV_8UC1, new Scalar(200));
+        assertEquals("", ocr.recognize(blank).text);
+        blank.release();
+    }
+
+    // Half-size gray crop, about what the detector hands over for a nearby car
+    private static Mat grayPlate(BufferedImage plate) {
+        BufferedImage gray = new BufferedImage(plate.getWidth() / 2, plate.getHeight() / 2, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = gray.createGraphics();
+        g.drawImage(plate, 0, 0, gray.getWidth(), gray.getHeight(), null);
+        g.dispose();
+        Mat mat = new Mat(gray.getHeight(), gray.getWidth(), CvType.CV_8UC1);
+        mat.put(0, 0, ((DataBufferByte) gray.getRaster().getDataBuffer()).getData());
+        return mat;
+    }
+}
@@ -0,0 +1,213 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import nu.pattern.OpenCV;
+
+public class ClusterTest {
+
+    private static final int CAMERAS = 8;
+
+    private final List<ClusterMessage> sightings = new CopyOnWriteArrayList<>();
+    private final Set<String> readCameras = ConcurrentHashMap.newKeySet();
+    private final List<AutoCloseable> open = new ArrayList<>();
+    private AnprConfig config;
+    private SocketTransport coordinatorTransport;
+    private ClusterCoordinator coordinator;
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        OpenCV.loadLocally();
+    }
+
+    @After
+    public void closeAll() throws Exception {
+        for (int i = open.size() - 1; i >= 0; i--) {
+            open.get(i).close();
+        }
+    }
+
+    @Test
+    public void ringMovesOnlyTheNewNodesKeys() {
+        ConsistentHashRing ring = new ConsistentHashRing(64, List.of("a", "b", "c"));
+        List<String> before = new ArrayList<>();
+        int[] counts = new int[3];
+        for (int i = 0; i < 3000; i++) {
+            String owner = ring.nodeFor("MH" + i);
+            before.add(owner);
+            counts[owner.charAt(0) - 'a']++;
+        }
+        for (int count : counts) {
+            assertTrue("unbalanced: " + count, count > 600 && count < 1400);
+        }
+
+        ring.add("d");
+        int moved = 0;
+        for (int i = 0; i < 3000; i++) {
+            String owner = ring.nodeFor("MH" + i);
+            if (!owner.equals(before.get(i))) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+        assertTrue("moved " + moved, moved > 400 && moved < 1200);
+    }
+
+    @Test
+    public void camerasFollowWorkersAndEachPlateIsReportedOnce() throws Exception {
+        startCoordinator();
+        ClusterWorker first = startWorker("w1");
+        await(() -> sightings.size() >= 2);
+        assertEquals(CAMERAS, first.cameras().size());
+
+        // A second worker takes over part of the cameras and plates without re-reporting anything
+        ClusterWorker second = startWorker("w2");
+        await(() -> !second.cameras().isEmpty() && first.cameras().size() + second.cameras().size() == CAMERAS);
+        Set<String> overlap = new HashSet<>(first.cameras());
+        overlap.retainAll(second.cameras());
+        assertTrue(overlap.isEmpty());
+        Thread.sleep(300);
+
+        // When it leaves, its cameras and dedup state return to the first
+        second.close();
+        await(() -> first.cameras().size() == CAMERAS);
+        Thread.sleep(300);
+
+        // Each plate is a sighting once, but every lane's reads reach the result listeners
+        assertEquals(2, sightings.size());
+        assertEquals(CAMERAS, readCameras.size());
+        for (ClusterMessage sighting : sightings) {
+            assertEquals(sighting.plate.equals("KA01CD5678"), sighting.watchlisted);
+        }
+        assertEquals(List.of("w1"), coordinator.workers());
+    }
+
+    @Test
+    public void aStalledWorkerDoesNotHoldUpTheCoordinator() throws Exception {
+        CountDownLatch unstall = new CountDownLatch(1);
+        List<ClusterMessage> delivered = new CopyOnWriteArrayList<>();
+        ClusterTransport.Handler[] handler = new ClusterTransport.Handler[1];
+        ClusterTransport transport = new ClusterTransport() {
+            @Override
+            public void listen(Handler h) {
+                handler[0] = h;
+            }
+
+            @Override
+            public Link connect(Handler h) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        coordinator = new ClusterCoordinator(new AnprConfig(new Properties()), transport);
+        open.add(coordinator);
+        open.add(unstall::countDown);
+
+        // The first worker's connection accepts nothing; every write to it blocks
+        ClusterTransport.Link stalled = link(message -> {
+            try {
+                unstall.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ClusterTransport.Link healthy = link(delivered::add);
+        // Joined from another thread, so a coordinator that blocks fails the wait below instead of hanging
+        Thread joins = new Thread(() -> {
+            handler[0].onMessage(stalled, ClusterMessage.of(ClusterMessage.Type.HELLO, "slow"));
+            handler[0].onMessage(healthy, ClusterMessage.of(ClusterMessage.Type.HELLO, "fast"));
+        });
+        joins.setDaemon(true);
+        joins.start();
+
+        await(() -> !delivered.isEmpty());
+        assertEquals(ClusterMessage.Type.ASSIGN, delivered.get(0).type);
+        assertEquals(List.of("slow", "fast"), coordinator.workers());
+    }
+
+    private static ClusterTransport.Link link(Consumer<ClusterMessage> onSend) {
+        return new ClusterTransport.Link() {
+            @Override
+            public void send(ClusterMessage message) {
+                onSend.accept(message);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private void startCoordinator() throws Exception {
+        Properties properties = new Properties();
+        StringBuilder cameras = new StringBuilder();
+        for (int i = 1; i <= CAMERAS; i++) {
+            cameras.append("lane").append(i).append("=fake://").append(i).append(';');
+        }
+        properties.setProperty("cluster.cameras", cameras.toString());
+        properties.setProperty("cluster.frameIntervalMillis", "5");
+        properties.setProperty("cluster.watchlist", "KA01CD5678");
+        config = new AnprConfig(properties);
+
+        coordinatorTransport = new SocketTransport("127.0.0.1", 0);
+        coordinator = new ClusterCoordinator(config, coordinatorTransport);
+        coordinator.addListener(sightings::add);
+        coordinator.addResultListener(result -> readCameras.add(result.camera));
+        open.add(coordinator);
+    }
+
+    // Lanes 1-4 see one plate and lanes 5-8 another; the fake camera encodes its lane in the pixels
+    private ClusterWorker startWorker(String id) throws Exception {
+        InferenceScheduler scheduler = new InferenceScheduler(frame -> List.of(new ProcessResult(0, 0, 4, 4,
+                frame.get(0, 0)[0] <= 4 ? "MH12AB1234" : "KA01CD5678")), () -> config);
+        SocketTransport transport = new SocketTransport("127.0.0.1", coordinatorTransport.port());
+        ClusterWorker worker = new ClusterWorker(id, config, transport, scheduler, url -> {
+            int lane = Integer.parseInt(url.substring("fake://".length()));
+            return new ClusterWorker.CameraSource() {
+                @Override
+                public Mat read() {
+                    return new Mat(4, 4, CvType.CV_8UC1, new Scalar(lane));
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        });
+        open.add(scheduler);
+        open.add(transport);
+        open.add(worker);
+        return worker;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertFalse("timed out", System.currentTimeMillis() > deadline);
+            Thread.sleep(10);
+        }
+    }
+}
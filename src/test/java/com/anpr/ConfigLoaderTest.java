@@ -0,0 +1,60 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConfigLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Consumer<AnprConfig>> added = new CopyOnWriteArrayList<>();
+
+    @After
+    public void restore() {
+        added.forEach(ConfigLoader::removeListener);
+        ConfigLoader.reload();
+    }
+
+    private void listen(Consumer<AnprConfig> listener) {
+        added.add(listener);
+        ConfigLoader.addListener(listener);
+    }
+
+    @Test
+    public void reloadPublishesEditsAndRejectsInvalidFiles() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("config.properties");
+        List<AnprConfig> seen = new CopyOnWriteArrayList<>();
+        listen(config -> {
+            throw new IllegalStateException("listener bug");
+        });
+        listen(seen::add);
+
+        Files.writeString(file, "detection.strategy=tiled\ndetection.tileSize=800\n", StandardCharsets.UTF_8);
+        AnprConfig edited = ConfigLoader.reload(file);
+        assertEquals(800, edited.tileSize);
+        assertSame(edited, ConfigLoader.current());
+        // The failing listener does not keep the next one from seeing the new settings
+        assertEquals(List.of(edited), seen);
+
+        // An invalid value and an unreadable escape both leave the edited snapshot in effect
+        Files.writeString(file, "detection.strategy=everywhere\n", StandardCharsets.UTF_8);
+        assertSame(edited, ConfigLoader.reload(file));
+        Files.writeString(file, "detection.tileSize=\\u12\n", StandardCharsets.UTF_8);
+        assertSame(edited, ConfigLoader.reload(file));
+        assertSame(edited, ConfigLoader.current());
+        assertEquals(1, seen.size());
+    }
+}
@@ -0,0 +1,83 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import nu.pattern.OpenCV;
+
+public class CropQualityGateTest {
+
+    private static final Rect BOX = new Rect(400, 300, 240, 60);
+
+    private final AnprConfig config = new AnprConfig(new Properties());
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        OpenCV.loadLocally();
+    }
+
+    @Test
+    public void rejectsSmallBlurredFlatAndClippedCrops() {
+        CropQualityGate gate = new CropQualityGate();
+        Mat sharp = plate(235, 20);
+        assertNull(gate.check(CropQualityGate.score(sharp), config));
+
+        Mat small = new Mat();
+        Imgproc.resize(sharp, small, new Size(40, 10), 0, 0, Imgproc.INTER_AREA);
+        assertEquals(CropQualityGate.Reason.TOO_SMALL, gate.check(CropQualityGate.score(small), config));
+        assertEquals(CropQualityGate.Reason.BLURRED, gate.check(CropQualityGate.score(blurred(sharp, 6)), config));
+        assertEquals(CropQualityGate.Reason.LOW_CONTRAST, gate.check(CropQualityGate.score(plate(140, 120)), config));
+        assertEquals(CropQualityGate.Reason.CLIPPED, gate.check(CropQualityGate.score(plate(255, 0)), config));
+
+        // Four rejections at the mean time of the one read that ran
+        gate.recordOcr(40_000_000L);
+        assertEquals(5, gate.checkedCount());
+        assertEquals(4, gate.rejectedCount());
+        assertEquals(1, gate.rejectedCount(CropQualityGate.Reason.BLURRED));
+        assertEquals(160, gate.savedMillis());
+    }
+
+    @Test
+    public void onlyAMuchSharperCropOfACachedPlateIsReadAgain() {
+        OcrCache cache = new OcrCache();
+        Mat soft = blurred(plate(235, 20), 1.5);
+        double softSharpness = CropQualityGate.score(soft).sharpness;
+        long[] hash = OcrCache.hash(soft);
+        cache.put("cam1", BOX, hash, "MH12AB1284", softSharpness, 1_000_000L, config, 0);
+
+        // As soft as the read crop: reuse the read
+        assertEquals("MH12AB1284", cache.lookup("cam1", BOX, hash, softSharpness, config, 100));
+
+        // The vehicle stopped and the plate is in focus: read it again
+        Mat sharp = plate(235, 20);
+        double sharpness = CropQualityGate.score(sharp).sharpness;
+        assertTrue(sharpness > softSharpness * config.qualityRereadSharpnessRatio);
+        assertNull(cache.lookup("cam1", BOX, OcrCache.hash(sharp), sharpness, config, 200));
+    }
+
+    private static Mat plate(int background, int ink) {
+        Mat plate = new Mat(60, 240, CvType.CV_8UC1, new Scalar(background));
+        Imgproc.rectangle(plate, new Point(1, 1), new Point(238, 58), new Scalar(ink), 2);
+        Imgproc.putText(plate, "MH12AB1234", new Point(10, 44), Imgproc.FONT_HERSHEY_SIMPLEX, 1.05, new Scalar(ink), 3);
+        return plate;
+    }
+
+    private static Mat blurred(Mat plate, double sigma) {
+        Mat blurred = new Mat();
+        Imgproc.GaussianBlur(plate, blurred, new Size(0, 0), sigma);
+        return blurred;
+    }
+}
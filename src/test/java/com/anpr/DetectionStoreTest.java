@@ -0,0 +1,144 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DetectionStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    public void findsPlatesAcrossSealedAndActiveSegments() throws Exception {
+        try (DetectionStore store = newStore(100)) {
+            for (int i = 0; i < 1050; i++) {
+                store.append(T0 + i * 1000L, i % 2 == 0 ? "cam1" : "cam2", String.format("MH12AB%04d", i % 50));
+            }
+            store.append(T0 + 2_000_000L, "cam1", "22BH4567AA");
+
+            List<DetectionRecord> exact = store.findByPlate("MH12AB0007", T0, T0 + 10_000_000L, 1000);
+            assertEquals(21, exact.size());
+            assertEquals("cam2", exact.get(0).cameraId);
+            for (int i = 1; i < exact.size(); i++) {
+                assertTrue(exact.get(i - 1).timestampMillis <= exact.get(i).timestampMillis);
+            }
+
+            assertEquals(1050, store.findByPlatePrefix("MH12", T0, T0 + 10_000_000L, 10_000).size());
+            assertEquals(1, store.findByPlatePrefix("22BH", T0, T0 + 10_000_000L, 10_000).size());
+            assertEquals(0, store.findByPlate("MH12AB00", T0, T0 + 10_000_000L, 10_000).size());
+        }
+    }
+
+    @Test
+    public void filtersByTimeRangeAndCamera() throws Exception {
+        try (DetectionStore store = newStore(100)) {
+            for (int i = 0; i < 500; i++) {
+                store.append(T0 + i * 1000L, i % 2 == 0 ? "cam1" : "cam2", "KA05MN4821");
+            }
+            List<DetectionRecord> range = store.findByTimeRange(T0 + 100_000L, T0 + 199_000L, null, 10_000);
+            assertEquals(100, range.size());
+            assertEquals(T0 + 100_000L, range.get(0).timestampMillis);
+
+            List<DetectionRecord> cam1 = store.findByTimeRange(T0 + 100_000L, T0 + 199_000L, "cam1", 10_000);
+            assertEquals(50, cam1.size());
+            assertTrue(cam1.stream().allMatch(r -> r.cameraId.equals("cam1")));
+
+            assertEquals(0, store.findByTimeRange(T0, T0 + 10_000_000L, "unknown", 10).size());
+            assertEquals(10, store.findByTimeRange(T0, T0 + 10_000_000L, null, 10).size());
+        }
+    }
+
+    @Test
+    public void reopensAndCompactsSegments() throws Exception {
+        File dir = folder.newFolder("store");
+        for (int run = 0; run < 3; run++) {
+            try (DetectionStore store = new DetectionStore(dir.toPath(), 1000, Duration.ofDays(36500))) {
+                for (int i = 0; i < 30; i++) {
+                    store.append(T0 + run * 100_000L + i, "cam1", "DL3C" + (1000 + i));
+                }
+            }
+        }
+
+        try (DetectionStore store = new DetectionStore(dir.toPath(), 1000, Duration.ofDays(36500))) {
+            assertEquals(90, store.size());
+            assertEquals(3, segmentFiles(dir.toPath()));
+            store.maintain();
+            assertEquals(1, segmentFiles(dir.toPath()));
+            assertEquals(3, store.findByPlate("DL3C1005", T0, T0 + 1_000_000L, 10).size());
+            assertEquals(90, store.findByTimeRange(T0, T0 + 1_000_000L, "cam1", 1000).size());
+        }
+    }
+
+    @Test
+    public void dropsExpiredSegments() throws Exception {
+        File dir = folder.newFolder("expiring");
+        try (DetectionStore store = new DetectionStore(dir.toPath(), 1000, Duration.ofDays(1))) {
+            store.append(T0, "cam1", "TN01AB1234");
+        }
+        try (DetectionStore store = new DetectionStore(dir.toPath(), 1000, Duration.ofDays(1))) {
+            assertEquals(1, store.size());
+            store.maintain();
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void keepsTheRealTimeOfLateSightings() throws Exception {
+        File dir = folder.newFolder("late");
+        try (DetectionStore store = new DetectionStore(dir.toPath(), 1000, Duration.ofDays(36500))) {
+            store.append(T0 + 5000, "cam1", "MH12AB1234");
+            store.append(T0 + 1000, "cam2", "KA05MN4821"); // Capture finishing after a newer live frame
+            store.append(T0 + 9000, "cam1", "MH12AB1234");
+
+            List<DetectionRecord> active = store.findByTimeRange(T0, T0 + 10_000L, null, 10);
+            assertEquals(3, active.size());
+            assertEquals(T0 + 1000, active.get(0).timestampMillis);
+            assertEquals(T0 + 5000, active.get(1).timestampMillis);
+            assertEquals(T0 + 1000, store.findByPlate("KA05MN4821", T0, T0 + 10_000L, 10).get(0).timestampMillis);
+        }
+        try (DetectionStore store = new DetectionStore(dir.toPath(), 1000, Duration.ofDays(36500))) {
+            List<DetectionRecord> sealed = store.findByTimeRange(T0 + 500, T0 + 6000, null, 10);
+            assertEquals(2, sealed.size());
+            assertEquals("KA05MN4821", sealed.get(0).plate);
+
+            // Older than everything already sealed
+            store.append(T0, "cam1", "DL3CAB1234");
+            assertEquals(3, store.size());
+        }
+    }
+
+    @Test
+    public void sealsAQuietSegmentByAge() throws Exception {
+        File dir = folder.newFolder("quiet");
+        try (DetectionStore store = new DetectionStore(dir.toPath(), 1000, Duration.ofMillis(50), Duration.ofDays(36500), 10)) {
+            store.append(T0, "cam1", "TN01AB1234");
+            Thread.sleep(60);
+            store.maintain();
+            store.append(T0 + 1000, "cam1", "TN01AB1234");
+            assertEquals(2, store.findByPlate("TN01AB1234", T0, T0 + 1000, 10).size());
+        }
+        // The first segment was sealed on its own; the second on close
+        assertEquals(2, segmentFiles(dir.toPath()));
+    }
+
+    private DetectionStore newStore(int segmentRows) throws IOException {
+        return new DetectionStore(folder.newFolder().toPath(), segmentRows, Duration.ofDays(36500));
+    }
+
+    private static long segmentFiles(Path dir) {
+        File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(".idx"));
+        return files == null ? 0 : files.length;
+    }
+}
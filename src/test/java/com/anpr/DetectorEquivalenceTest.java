@@ -0,0 +1,70 @@
+package com.anpr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import nu.pattern.OpenCV;
+
+/** Both detector backends on the tiny fixture model the benchmarks use, FP32 and INT8. */
+public class DetectorEquivalenceTest {
+
+    private static final String FIXTURES = "benchmarks/src/main/resources/fixtures/";
+
+    private static Mat tile;
+
+    @BeforeClass
+    public static void loadTile() {
+        OpenCV.loadLocally();
+        Mat frame = Imgcodecs.imread(FIXTURES + "frame_01.png");
+        tile = frame.submat(0, Math.min(640, frame.rows()), 0, Math.min(640, frame.cols())).clone();
+        frame.release();
+    }
+
+    @AfterClass
+    public static void releaseTile() {
+        tile.release();
+    }
+
+    private static Mat detect(String engine, String model) {
+        Properties properties = new Properties();
+        properties.setProperty("model.path", FIXTURES + model);
+        properties.setProperty("detector.engine", engine);
+        try (PlateDetector detector = ImageProcessor.createDetector(new AnprConfig(properties))) {
+            // The ONNX Runtime output is a view of a buffer the detector reuses, so keep a copy
+            return detector.detect(tile).clone();
+        }
+    }
+
+    private static double maxDiff(Mat a, Mat b) {
+        assertArrayEquals(new int[] {a.size(0), a.size(1), a.size(2)}, new int[] {b.size(0), b.size(1), b.size(2)});
+        return Core.norm(a.reshape(1, 1), b.reshape(1, 1), Core.NORM_INF);
+    }
+
+    @Test
+    public void enginesAgreeAndInt8StaysCloseToFp32() {
+        Mat openCvFp32 = detect("opencv", "tiny_plate_detector.onnx");
+        Mat onnxFp32 = detect("onnxruntime", "tiny_plate_detector.onnx");
+        Mat openCvInt8 = detect("opencv", "tiny_plate_detector_int8.onnx");
+        Mat onnxInt8 = detect("onnxruntime", "tiny_plate_detector_int8.onnx");
+
+        // The same graph on either engine: equal up to float rounding (outputs are in pixels)
+        assertTrue("fp32 engines differ", maxDiff(openCvFp32, onnxFp32) < 1e-3);
+        assertTrue("int8 engines differ", maxDiff(openCvInt8, onnxInt8) < 1e-3);
+
+        // Quantization moves boxes by a few pixels and scores by a few thousandths
+        double largest = Core.norm(onnxFp32.reshape(1, 1), Core.NORM_INF);
+        assertTrue("int8 boxes drift", maxDiff(onnxFp32, onnxInt8) < 0.02 * largest);
+        Mat fp32Scores = onnxFp32.reshape(1, 5).row(4);
+        Mat int8Scores = onnxInt8.reshape(1, 5).row(4);
+        assertTrue("int8 scores drift", Core.norm(fp32Scores, int8Scores, Core.NORM_INF) < 0.02);
+    }
+}
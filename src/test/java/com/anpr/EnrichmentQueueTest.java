@@ -0,0 +1,144 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+
+public class EnrichmentQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> lookups = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private AnprConfig config() {
+        Properties properties = new Properties();
+        properties.setProperty("enrich.retryMillis", "20");
+        properties.setProperty("enrich.queueFile", folder.getRoot().toPath().resolve("queue.jsonl").toString());
+        properties.setProperty("enrich.workers", "1");
+        properties.setProperty("enrich.requestsPerSecond", "1000");
+        return new AnprConfig(properties);
+    }
+
+    private Function<String, VehicleDetails> lookup(boolean block) {
+        return plate -> {
+            lookups.add(plate);
+            if (block) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new Gson().fromJson("{\"ownerName\":\"Owner " + plate + "\"}", VehicleDetails.class);
+        };
+    }
+
+    private static ProcessResult result(String plate) {
+        return new ProcessResult(0, 0, 10, 10, plate);
+    }
+
+    @Test
+    public void coalescesDuplicatesAndAttachesDetails() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(3);
+        try (EnrichmentQueue queue = new EnrichmentQueue(config(), lookup(true))) {
+            queue.addListener(result -> delivered.countDown());
+            ProcessResult first = result("MH12AB1234");
+            ProcessResult repeat = result("MH12AB1234");
+            ProcessResult other = result("KA01CD5678");
+            queue.submit(first);
+            queue.submit(repeat);
+            queue.submit(other);
+            assertEquals(2, queue.depth());
+            assertNull(first.getVehicleDetails());
+
+            release.countDown();
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("MH12AB1234", "KA01CD5678"), lookups);
+            assertEquals("Owner MH12AB1234", repeat.getVehicleDetails().getOwnerName());
+            assertSame(first.getVehicleDetails(), repeat.getVehicleDetails());
+            assertEquals(0, queue.depth());
+            assertEquals(0, queue.lagMillis());
+
+            // Seen again later: answered from the stored result
+            ProcessResult later = result("KA01CD5678");
+            queue.submit(later);
+            assertEquals("Owner KA01CD5678", later.getVehicleDetails().getOwnerName());
+            assertEquals(2, queue.enrichedCount());
+            assertEquals(1, queue.reusedCount());
+        }
+    }
+
+    @Test
+    public void waitingPlatesAndResultsSurviveARestart() throws Exception {
+        try (EnrichmentQueue queue = new EnrichmentQueue(config(), lookup(true))) {
+            queue.submit(result("MH12AB1234"));
+            queue.submit(result("KA01CD5678"));
+            // The worker is stuck on the first plate; the second is still waiting at shutdown
+            while (lookups.isEmpty()) {
+                Thread.sleep(5);
+            }
+        }
+        lookups.clear();
+
+        try (EnrichmentQueue queue = new EnrichmentQueue(config(), lookup(false))) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (queue.depth() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(0, queue.depth());
+            assertEquals(List.of("MH12AB1234", "KA01CD5678"), lookups);
+        }
+        lookups.clear();
+
+        // Both are now answered from the journal
+        try (EnrichmentQueue queue = new EnrichmentQueue(config(), lookup(false))) {
+            ProcessResult result = result("KA01CD5678");
+            queue.submit(result);
+            assertEquals("Owner MH12AB1234", queue.fetch("MH12AB1234").getOwnerName());
+            assertEquals("Owner KA01CD5678", result.getVehicleDetails().getOwnerName());
+            assertTrue(lookups.isEmpty());
+        }
+    }
+
+    @Test
+    public void failedLookupsStayQueuedAndAreRetried() throws Exception {
+        AtomicInteger failures = new AtomicInteger(2);
+        Function<String, VehicleDetails> flaky = plate -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new UncheckedIOException(new IOException("API answered 503"));
+            }
+            return lookup(false).apply(plate);
+        };
+        CountDownLatch delivered = new CountDownLatch(1);
+        try (EnrichmentQueue queue = new EnrichmentQueue(config(), flaky)) {
+            queue.addListener(result -> delivered.countDown());
+            ProcessResult result = result("MH12AB1234");
+            queue.submit(result);
+
+            // Failures keep it waiting instead of answering "not found"
+            assertEquals(1, queue.depth());
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals("Owner MH12AB1234", result.getVehicleDetails().getOwnerName());
+            assertEquals(0, queue.depth());
+        }
+    }
+}
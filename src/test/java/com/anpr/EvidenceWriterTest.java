@@ -0,0 +1,121 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import nu.pattern.OpenCV;
+
+public class EvidenceWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        OpenCV.loadLocally();
+    }
+
+    private EvidenceWriter newWriter(float quotaMb) {
+        Properties properties = new Properties();
+        properties.setProperty("output.output_folder", folder.getRoot().toPath().resolve("output").toString());
+        properties.setProperty("output.input_folder", folder.getRoot().toPath().resolve("input").toString());
+        properties.setProperty("evidence.quotaMb", String.valueOf(quotaMb));
+        return new EvidenceWriter(new AnprConfig(properties));
+    }
+
+    // Noise does not compress, so each frame costs a predictable few hundred KB
+    private static SharedFrame noise(long timeMillis) {
+        Mat frame = new Mat(480, 640, CvType.CV_8UC3);
+        Core.randn(frame, 128, 60);
+        return new SharedFrame(frame, "gate1", timeMillis);
+    }
+
+    private List<Path> files(String root) throws Exception {
+        try (Stream<Path> files = Files.walk(folder.getRoot().toPath().resolve(root))) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void savesFramesAndCropsInTheDayAndCameraLayout() throws Exception {
+        Path framePath;
+        try (EvidenceWriter writer = newWriter(100)) {
+            framePath = writer.submit(noise(T0), "capture", List.of(
+                    new ProcessResult(100, 100, 260, 150, "MH12AB1234"),
+                    new ProcessResult(300, 300, 400, 340, "???")));
+        }
+        assertTrue(Files.exists(framePath));
+        assertEquals("gate1", framePath.getParent().getFileName().toString());
+        Path crop = framePath.resolveSibling(framePath.getFileName().toString().replace(".jpg", "_MH12AB1234_crop.jpg"));
+        Mat read = Imgcodecs.imread(crop.toString());
+        assertEquals(168, read.cols());
+        assertEquals(58, read.rows());
+        // The invalid read is drawn but not cropped
+        assertEquals(2, files("output").size());
+    }
+
+    @Test
+    public void evictsOnlyItsOwnFilesOldestFirst() throws Exception {
+        Path output = folder.getRoot().toPath().resolve("output");
+        Path input = folder.getRoot().toPath().resolve("input");
+        Path old = output.resolve("2020-01-01/gate1/live_080000000.jpg");
+        Path foreign = output.resolve("2020-01-01/gate1/notes.txt");
+        Path stray = output.resolve("live_080000000.jpg");
+        Path original = input.resolve("2020-01-01/gate1/live_080000000.jpg");
+        for (Path file : List.of(old, foreign, stray, original)) {
+            Files.createDirectories(file.getParent());
+            Files.write(file, new byte[300_000]);
+        }
+        // Older than anything written below
+        old.toFile().setLastModified(T0 - 86_400_000L);
+
+        List<Path> written = new ArrayList<>();
+        try (EvidenceWriter writer = newWriter(1)) {
+            for (int i = 0; i < 6; i++) {
+                written.add(writer.submit(noise(T0 + i * 1000L), "live", List.of()));
+            }
+        }
+
+        // The old evidence went first, then the oldest new frames; nothing else was touched
+        assertFalse(Files.exists(old));
+        assertFalse(Files.exists(written.get(0)));
+        assertTrue(Files.exists(written.get(5)));
+        assertTrue(Files.exists(foreign));
+        assertTrue(Files.exists(stray));
+        assertTrue(Files.exists(original));
+        long used = 0;
+        for (Path file : written) {
+            used += Files.exists(file) ? Files.size(file) : 0;
+        }
+        assertTrue(used <= 1024 * 1024);
+    }
+
+    @Test
+    public void dropsFramesAfterClose() {
+        EvidenceWriter writer = newWriter(100);
+        writer.close();
+        SharedFrame frame = noise(T0);
+        assertNull(writer.submit(frame, "live", List.of()));
+    }
+}
@@ -0,0 +1,69 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import nu.pattern.OpenCV;
+
+public class FallbackPlateOcrTest {
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        OpenCV.loadLocally();
+    }
+
+    private final Mat crop = new Mat(30, 120, CvType.CV_8UC1);
+    private final AtomicInteger fallbackCalls = new AtomicInteger();
+
+    private PlateOcr fallbackReading(String text) {
+        return gray -> {
+            fallbackCalls.incrementAndGet();
+            return new PlateOcr.Result(text, 1f);
+        };
+    }
+
+    private static PlateOcr primaryReading(String text, float confidence) {
+        return gray -> new PlateOcr.Result(text, confidence);
+    }
+
+    @Test
+    public void confidentValidReadsSkipTheFallback() {
+        FallbackPlateOcr ocr = new FallbackPlateOcr(primaryReading("MH12AB1234", 0.5f), fallbackReading("KA01CD5678"), 0.1f);
+        assertEquals("MH12AB1234", ocr.recognize(crop).text);
+        assertEquals(0, fallbackCalls.get());
+    }
+
+    @Test
+    public void unsureReadsTakeTheFallbackOnlyWhenItFormsAPlate() {
+        // Unsure but valid: an empty or garbled fallback read must not replace it
+        assertEquals("MH12AB1234", new FallbackPlateOcr(primaryReading("MH12AB1234", 0.05f), fallbackReading(""), 0.1f)
+                .recognize(crop).text);
+        assertEquals("MH12AB1234", new FallbackPlateOcr(primaryReading("MH12AB1234", 0.05f), fallbackReading("M4"), 0.1f)
+                .recognize(crop).text);
+        assertEquals("MH 12 AB 1284", new FallbackPlateOcr(primaryReading("MH12AB1234", 0.05f), fallbackReading("MH 12 AB 1284"), 0.1f)
+                .recognize(crop).text);
+
+        // Confident but not a plate
+        assertEquals("KA01CD5678", new FallbackPlateOcr(primaryReading("KA01CD", 0.9f), fallbackReading("KA01CD5678"), 0.1f)
+                .recognize(crop).text);
+        assertEquals(4, fallbackCalls.get());
+    }
+
+    @Test
+    public void missingFallbackLibraryIsTriedOnce() {
+        AtomicInteger attempts = new AtomicInteger();
+        FallbackPlateOcr ocr = new FallbackPlateOcr(primaryReading("KA01CD", 0.9f), gray -> {
+            attempts.incrementAndGet();
+            throw new UnsatisfiedLinkError("libtesseract not found");
+        }, 0.1f);
+        assertEquals("KA01CD", ocr.recognize(crop).text);
+        assertEquals("KA01CD", ocr.recognize(crop).text);
+        assertEquals(1, attempts.get());
+    }
+}
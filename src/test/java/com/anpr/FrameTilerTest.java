@@ -0,0 +1,58 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.opencv.core.Rect;
+
+public class FrameTilerTest {
+
+    @Test
+    public void tilesCoverTheAreaWithTheRequestedOverlap() {
+        Rect area = new Rect(0, 0, 3840, 2160);
+        List<Rect> tiles = FrameTiler.tile(area, 640, 0.2f);
+
+        // 8 columns x 4 rows; stride at most 512 px
+        assertEquals(32, tiles.size());
+        assertEquals(new Rect(0, 0, 640, 640), tiles.get(0));
+        assertEquals(new Rect(3200, 1520, 640, 640), tiles.get(tiles.size() - 1));
+        for (int i = 1; i < 8; i++) {
+            assertTrue(tiles.get(i).x - tiles.get(i - 1).x <= 512);
+        }
+    }
+
+    @Test
+    public void narrowAreaGetsOneTileOnThatAxis() {
+        List<Rect> tiles = FrameTiler.tile(new Rect(100, 900, 1920, 400), 640, 0.2f);
+        assertEquals(4, tiles.size());
+        for (Rect tile : tiles) {
+            assertEquals(900, tile.y);
+            assertEquals(400, tile.height);
+        }
+    }
+
+    @Test
+    public void regionsFollowTheStrategyAndClipRois() {
+        Properties properties = new Properties();
+        properties.setProperty("camera.id", "lane2");
+        properties.setProperty("detection.roi.lane2", "0,900,3840,1000; 3000,100,2000,200");
+
+        AnprConfig full = new AnprConfig(properties);
+        assertEquals(1, FrameTiler.regions(full, "lane2", 3840, 2160).size());
+
+        AnprConfig roi = full.with("detection.strategy", "roi");
+        List<Rect> rois = FrameTiler.regions(roi, "lane2", 3840, 2160);
+        assertEquals(2, rois.size());
+        assertEquals(new Rect(3000, 100, 840, 200), rois.get(1));
+        // Another camera's frame, e.g. pushed through the ingest endpoint, has no regions configured
+        assertEquals(List.of(new Rect(0, 0, 3840, 2160)), FrameTiler.regions(roi, "gate1", 3840, 2160));
+
+        AnprConfig tiled = full.with("detection.strategy", "tiled");
+        // 8 x 2 tiles over the lane band, 2 x 1 over the clipped second region
+        assertEquals(18, FrameTiler.regions(tiled, "lane2", 3840, 2160).size());
+    }
+}
@@ -0,0 +1,90 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import nu.pattern.OpenCV;
+
+public class FrameTraceAnalyzerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        OpenCV.loadLocally();
+    }
+
+    @Test
+    public void joinsTheStepsOfEachFrame() throws Exception {
+        String log = new File(folder.getRoot(), "log.xlsx").getPath();
+        AnprConfig config = new AnprConfig(new Properties());
+        SharedFrame frame = new SharedFrame(new Mat(4, 4, CvType.CV_8UC1), "gate1", System.currentTimeMillis() - 30);
+
+        try (Recording recording = new Recording()) {
+            for (Class<? extends Event> type : FrameEvents.eventTypes()) {
+                recording.enable(type);
+            }
+            recording.start();
+
+            // The processor stands in for ImageProcessor and DetectionProcessor
+            try (InferenceScheduler scheduler = new InferenceScheduler(mat -> {
+                FrameEvents.Inference inference = FrameEvents.Inference.start();
+                sleep(20);
+                inference.commit(1, 1);
+                FrameEvents.Ocr ocr = FrameEvents.Ocr.start();
+                sleep(10);
+                ocr.commit("MH12AB1234", "read");
+                return List.of(new ProcessResult(0, 0, 4, 4, "MH12AB1234"));
+            }, () -> config)) {
+                scheduler.submit(frame, InferenceScheduler.Priority.CAPTURE).join();
+            }
+            FrameEvents.enter(frame);
+            try {
+                ExcelLogger.logBasicDetection(log, "MH12AB1234");
+            } finally {
+                FrameEvents.exit();
+            }
+            // A write outside any frame is not attributed to one
+            ExcelLogger.logBasicDetection(log, "KA01CD5678");
+            frame.release();
+
+            Path dump = folder.getRoot().toPath().resolve("trace.jfr");
+            recording.dump(dump);
+
+            List<FrameTraceAnalyzer.Timeline> timelines = FrameTraceAnalyzer.timelines(dump);
+            assertEquals(1, timelines.size());
+            FrameTraceAnalyzer.Timeline timeline = timelines.get(0);
+            assertEquals("gate1", timeline.camera);
+            assertEquals(frame.sequence(), timeline.frame);
+            assertTrue(timeline.millis.get("inference") >= 19);
+            assertTrue(timeline.millis.get("ocr") >= 9);
+            assertTrue(timeline.millis.containsKey("queue"));
+            assertTrue(timeline.millis.containsKey("sink"));
+            assertEquals("[MH12AB1234]", timeline.plates.toString());
+            assertTrue(timeline.millis.get("total") >= 30);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import nu.pattern.OpenCV;
+
+public class ImageProcessorTest {
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        OpenCV.loadLocally();
+    }
+
+    /** Counts model passes and never finds a plate. */
+    private static final class CountingDetector implements PlateDetector {
+        int passes;
+
+        @Override
+        public Mat detect(Mat image) {
+            passes++;
+            return new Mat(new int[] {1, 5, 1}, CvType.CV_32F, Scalar.all(0));
+        }
+
+        @Override
+        public Mat detectBatch(List<Mat> images) {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void motionGateIsPerCameraAndSkippedForCaptures() {
+        Properties properties = new Properties();
+        properties.setProperty("detection.strategy", "tiled");
+        properties.setProperty("detection.fullScanInterval", "1000");
+        AnprConfig config = new AnprConfig(properties);
+        CountingDetector detector = new CountingDetector();
+        ImageProcessor processor = new ImageProcessor(() -> config, detector, gray -> PlateOcr.Result.EMPTY);
+
+        Mat frame = new Mat(1280, 1920, CvType.CV_8UC3, new Scalar(90, 90, 90));
+        int tiles = FrameTiler.regions(config, "gate1", frame.cols(), frame.rows()).size();
+        SharedFrame live = new SharedFrame(frame, "gate1", System.currentTimeMillis());
+
+        // The first live frame scans everything; an identical second one has no motion
+        processor.processFrame(live, InferenceScheduler.Priority.LIVE);
+        assertEquals(tiles, detector.passes);
+        processor.processFrame(live, InferenceScheduler.Priority.LIVE);
+        assertEquals(tiles, detector.passes);
+
+        // The operator captures the stationary vehicle right after
+        detector.passes = 0;
+        processor.processFrame(live, InferenceScheduler.Priority.CAPTURE);
+        assertEquals(tiles, detector.passes);
+
+        // Another camera's first frame is not diffed against gate1's
+        detector.passes = 0;
+        processor.processFrame(new SharedFrame(frame, "gate2", System.currentTimeMillis()), InferenceScheduler.Priority.INGEST);
+        assertEquals(tiles, detector.passes);
+
+        frame.release();
+    }
+}
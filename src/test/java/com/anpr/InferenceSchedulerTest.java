@@ -0,0 +1,124 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Mat;
+
+import nu.pattern.OpenCV;
+
+public class InferenceSchedulerTest {
+
+    private static final long FRAME_MILLIS = 40;
+
+    private final AnprConfig config = new AnprConfig(new Properties());
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        OpenCV.loadLocally();
+    }
+
+    @Test
+    public void capturesOvertakeQueuedLiveFramesUnderLoad() throws Exception {
+        CountDownLatch firstFrameStarted = new CountDownLatch(1);
+        try (InferenceScheduler scheduler = new InferenceScheduler(mat -> {
+            firstFrameStarted.countDown();
+            sleep(FRAME_MILLIS);
+            return Collections.emptyList();
+        }, () -> config)) {
+            // Four cameras keep the worker saturated with live frames
+            List<CompletableFuture<List<ProcessResult>>> live = new ArrayList<>();
+            for (int round = 0; round < 10; round++) {
+                for (int camera = 0; camera < 4; camera++) {
+                    live.add(submit(scheduler, "cam" + camera, InferenceScheduler.Priority.LIVE));
+                }
+                if (round == 0) {
+                    firstFrameStarted.await();
+                }
+            }
+
+            long start = System.nanoTime();
+            submit(scheduler, "cam0", InferenceScheduler.Priority.CAPTURE).join();
+            long captureMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // At most the frame in flight runs before the capture
+            assertTrue("capture took " + captureMillis + " ms", captureMillis < 3 * FRAME_MILLIS);
+            assertEquals(1, scheduler.latency(InferenceScheduler.Priority.CAPTURE).count());
+
+            // Each camera kept only its newest live frame; the rest were dropped, not queued
+            int cancelled = 0;
+            for (CompletableFuture<List<ProcessResult>> future : live) {
+                try {
+                    future.join();
+                } catch (CancellationException e) {
+                    cancelled++;
+                }
+            }
+            assertTrue(cancelled >= 30);
+            assertEquals(cancelled, scheduler.droppedFrames());
+        }
+    }
+
+    @Test
+    public void staleLiveFramesAreDropped() {
+        try (InferenceScheduler scheduler = new InferenceScheduler(mat -> Collections.emptyList(), () -> config)) {
+            SharedFrame old = new SharedFrame(new Mat(), "cam1", System.currentTimeMillis() - config.maxLiveAgeMillis - 1000);
+            CompletableFuture<List<ProcessResult>> result = scheduler.submit(old, InferenceScheduler.Priority.LIVE);
+            old.release();
+            try {
+                result.join();
+            } catch (CancellationException expected) {
+                assertEquals(1, scheduler.droppedFrames());
+                return;
+            }
+            throw new AssertionError("stale frame was processed");
+        }
+    }
+
+    @Test
+    public void closeLetsTheFrameInFlightFinish() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        InferenceScheduler scheduler = new InferenceScheduler(mat -> {
+            started.countDown();
+            sleep(FRAME_MILLIS);
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("interrupted mid-frame");
+            }
+            return Collections.emptyList();
+        }, () -> config);
+        CompletableFuture<List<ProcessResult>> inFlight = submit(scheduler, "cam1", InferenceScheduler.Priority.CAPTURE);
+        started.await();
+        CompletableFuture<List<ProcessResult>> queued = submit(scheduler, "cam1", InferenceScheduler.Priority.CAPTURE);
+
+        scheduler.close();
+        assertTrue(inFlight.isDone());
+        assertEquals(Collections.emptyList(), inFlight.join());
+        assertTrue(queued.isCancelled());
+    }
+
+    private static CompletableFuture<List<ProcessResult>> submit(InferenceScheduler scheduler, String camera,
+            InferenceScheduler.Priority priority) {
+        SharedFrame frame = new SharedFrame(new Mat(), camera, System.currentTimeMillis());
+        CompletableFuture<List<ProcessResult>> result = scheduler.submit(frame, priority);
+        frame.release();
+        return result;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
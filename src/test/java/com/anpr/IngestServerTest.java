@@ -0,0 +1,169 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Scalar;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import nu.pattern.OpenCV;
+
+public class IngestServerTest {
+
+    private static byte[] jpeg;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private volatile boolean blocking;
+    private InferenceScheduler scheduler;
+    private IngestServer server;
+
+    @BeforeClass
+    public static void encodeFrame() {
+        OpenCV.loadLocally();
+        MatOfByte encoded = new MatOfByte();
+        Imgcodecs.imencode(".jpg", new Mat(120, 160, CvType.CV_8UC3, new Scalar(40, 80, 120)), encoded);
+        jpeg = encoded.toArray();
+    }
+
+    private void start(int maxConcurrent) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("ingest.port", "0");
+        properties.setProperty("ingest.maxBytes", "65536");
+        properties.setProperty("ingest.maxConcurrent", String.valueOf(maxConcurrent));
+        AnprConfig config = new AnprConfig(properties);
+        // Reports one plate spanning the whole frame
+        scheduler = new InferenceScheduler(frame -> {
+            if (blocking) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return List.of(new ProcessResult(0, 0, frame.cols(), frame.rows(), "MH12AB1234"));
+        }, () -> config);
+        server = new IngestServer(scheduler, config);
+    }
+
+    @After
+    public void stop() {
+        release.countDown();
+        server.close();
+        scheduler.close();
+    }
+
+    @Test
+    public void returnsDetectionsForOneJpeg() throws Exception {
+        start(4);
+        HttpResponse<String> response = post("?camera=gate1&timestamp=1700000000000", "image/jpeg", jpeg);
+
+        assertEquals(200, response.statusCode());
+        JsonObject result = new Gson().fromJson(response.body(), JsonObject.class);
+        assertEquals("gate1", result.get("camera").getAsString());
+        assertEquals(1700000000000L, result.get("timestamp").getAsLong());
+        JsonObject detection = result.getAsJsonArray("detections").get(0).getAsJsonObject();
+        assertEquals("MH12AB1234", detection.get("plate").getAsString());
+        assertTrue(detection.get("valid").getAsBoolean());
+        assertEquals(160, detection.get("x2").getAsInt());
+    }
+
+    @Test
+    public void returnsOneResultPerPartOfABatch() throws Exception {
+        start(4);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (String camera : new String[] {"lane1", "lane2"}) {
+            body.write(("--frame\r\nContent-Type: image/jpeg\r\nX-Camera-Id: " + camera + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            body.write(jpeg);
+            body.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+        body.write("--frame--\r\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        HttpResponse<String> response = post("", "multipart/mixed; boundary=frame", body.toByteArray());
+
+        assertEquals(200, response.statusCode());
+        JsonArray results = new Gson().fromJson(response.body(), JsonArray.class);
+        assertEquals(2, results.size());
+        assertEquals("lane2", results.get(1).getAsJsonObject().get("camera").getAsString());
+        assertEquals(1, results.get(1).getAsJsonObject().getAsJsonArray("detections").size());
+    }
+
+    @Test
+    public void rejectsOversizedUndecodableAndExcessRequests() throws Exception {
+        start(1);
+        assertEquals(413, post("", "image/jpeg", new byte[70_000]).statusCode());
+        // Without a Content-Length the limit is enforced while reading, below the initial buffer size
+        HttpRequest chunked = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/frames"))
+                .header("Content-Type", "image/jpeg")
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(new byte[70_000])))
+                .build();
+        assertEquals(413, client.send(chunked, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(422, post("", "image/jpeg", new byte[] {1, 2, 3}).statusCode());
+
+        // Hold the only slot, then the next request is turned away
+        blocking = true;
+        CompletableFuture<HttpResponse<String>> first = client.sendAsync(request("", "image/jpeg", jpeg), HttpResponse.BodyHandlers.ofString());
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        HttpResponse<String> second = post("", "image/jpeg", jpeg);
+        assertEquals(429, second.statusCode());
+        assertEquals("1", second.headers().firstValue("Retry-After").orElse(""));
+
+        release.countDown();
+        assertEquals(200, first.get().statusCode());
+    }
+
+    @Test
+    public void rejectsAMalformedContentLength() throws Exception {
+        start(1);
+        // HttpClient refuses to send such a header, so write the request by hand
+        try (Socket socket = new Socket("127.0.0.1", server.port())) {
+            OutputStream out = socket.getOutputStream();
+            out.write("POST /frames HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Type: image/jpeg\r\nContent-Length: 12ab\r\n\r\n"
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            socket.setSoTimeout(5000);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            assertEquals("HTTP/1.1 400 Bad Request", in.readLine());
+        }
+    }
+
+    private HttpResponse<String> post(String query, String contentType, byte[] body) throws Exception {
+        return client.send(request(query, contentType, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String query, String contentType, byte[] body) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/frames" + query))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+}
@@ -0,0 +1,79 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class LoadGovernorTest {
+
+    private static AnprConfig config(String strategy) {
+        Properties properties = new Properties();
+        properties.setProperty("detection.strategy", strategy);
+        properties.setProperty("governor.latencySloMillis", "500");
+        return new AnprConfig(properties);
+    }
+
+    private static void frames(LoadGovernor governor, int count, long latencyMillis) {
+        for (int i = 0; i < count; i++) {
+            governor.record(latencyMillis);
+        }
+    }
+
+    @Test
+    public void coarsensTilesUntilOverCapacityAndRecovers() {
+        AnprConfig tiled = config("tiled");
+        LoadGovernor governor = new LoadGovernor(() -> tiled, () -> 0.5);
+
+        frames(governor, 20, 900);
+        assertEquals(2, governor.detailLevel());
+        assertEquals(1280, governor.config().tileSize);
+        assertSame(governor.config(), governor.config());
+
+        frames(governor, 40, 900);
+        assertEquals(4, governor.detailLevel());
+        assertTrue(governor.overCapacity());
+
+        frames(governor, 100, 100);
+        assertEquals(0, governor.detailLevel());
+        assertFalse(governor.overCapacity());
+        assertSame(tiled, governor.config());
+    }
+
+    @Test
+    public void fullFrameStrategyOnlyReportsOverCapacity() {
+        LoadGovernor governor = new LoadGovernor(() -> config("full"), () -> 0.5);
+        frames(governor, 20, 900);
+        assertEquals(0, governor.detailLevel());
+        assertTrue(governor.overCapacity());
+    }
+
+    @Test
+    public void paceFollowsCpuUse() {
+        double[] cpu = {0.95};
+        LoadGovernor governor = new LoadGovernor(() -> config("full"), () -> cpu[0]);
+        frames(governor, 30, 100);
+        assertEquals(400, governor.intervalMillis());
+
+        cpu[0] = 0.2;
+        frames(governor, 100, 100);
+        assertEquals(10, governor.intervalMillis());
+    }
+
+    @Test
+    public void paceNeverDropsToZero() {
+        Properties properties = new Properties();
+        properties.setProperty("governor.minIntervalMillis", "0");
+        AnprConfig config = new AnprConfig(properties);
+        LoadGovernor governor = new LoadGovernor(() -> config, () -> 0.0);
+        for (int i = 0; i < 50; i++) {
+            frames(governor, 10, 50);
+            assertTrue(governor.intervalMillis() > 0);
+        }
+        assertEquals(10, governor.intervalMillis());
+    }
+}
@@ -0,0 +1,171 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Scalar;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import nu.pattern.OpenCV;
+
+public class MjpegClientTest {
+
+    private static final String BOUNDARY = "Ba4oTvQMY8ew04N8dcnM";
+
+    // Each accepted connection is handed to the test, which writes the stream itself
+    private final BlockingQueue<Socket> connections = new LinkedBlockingQueue<>();
+    private ServerSocket server;
+    private MjpegClient client;
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        OpenCV.loadLocally();
+    }
+
+    @Before
+    public void startStub() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    connections.add(server.accept());
+                }
+            } catch (IOException e) {
+                // Server closed
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @After
+    public void stop() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        server.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void decodesPartsWithAndWithoutALengthAtFullAndReducedScale() throws Exception {
+        client = new MjpegClient("http://127.0.0.1:" + server.getLocalPort() + "/video", config());
+        Socket socket = accept();
+        OutputStream out = socket.getOutputStream();
+        out.write(("HTTP/1.1 200 OK\r\nContent-Type: multipart/x-mixed-replace; boundary=\"" + BOUNDARY + "\"\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+        writePart(out, jpeg(60), true);
+        assertEquals(1, client.awaitFrame(0, 2000));
+        Mat full = client.decode(Imgcodecs.IMREAD_COLOR);
+        assertEquals(320, full.cols());
+        assertEquals(240, full.rows());
+        assertEquals(60, Core.mean(full).val[0], 3);
+        SharedFrame stamped = client.decodeFrame(Imgcodecs.IMREAD_GRAYSCALE, "gate1");
+        assertEquals(client.latestMillis(), stamped.captureTimeMillis());
+        assertEquals("gate1", stamped.cameraId());
+        assertEquals(60, Core.mean(stamped.mat()).val[0], 3);
+        stamped.release();
+
+        // No Content-Length: the part ends at the next delimiter
+        writePart(out, jpeg(180), false);
+        out.write(("\r\n--" + BOUNDARY + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+        assertEquals(2, client.awaitFrame(1, 2000));
+        Mat preview = client.decode(MjpegClient.reducedColor(2));
+        assertEquals(160, preview.cols());
+        Mat motion = client.decode(Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8);
+        assertEquals(40, motion.cols());
+        assertEquals(1, motion.channels());
+        assertEquals(180, Core.mean(motion).val[0], 3);
+        assertEquals(0, client.reconnects());
+    }
+
+    @Test
+    public void reconnectsQuicklyWhenTheStreamDropsOrStalls() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("camera.readTimeoutMillis", "300");
+        client = new MjpegClient("http://127.0.0.1:" + server.getLocalPort() + "/video", config(properties));
+
+        // Dropped after one frame
+        Socket first = accept();
+        writeHead(first.getOutputStream());
+        writePart(first.getOutputStream(), jpeg(60), true);
+        assertEquals(1, client.awaitFrame(0, 2000));
+        first.close();
+
+        // Stalls after the head: the read timeout gives up on it
+        long dropped = System.currentTimeMillis();
+        Socket second = accept();
+        assertTrue("reconnect took " + (System.currentTimeMillis() - dropped) + " ms", System.currentTimeMillis() - dropped < 1000);
+        writeHead(second.getOutputStream());
+
+        Socket third = accept();
+        writeHead(third.getOutputStream());
+        writePart(third.getOutputStream(), jpeg(120), true);
+        assertEquals(2, client.awaitFrame(1, 2000));
+        assertEquals(120, Core.mean(client.decode(Imgcodecs.IMREAD_GRAYSCALE)).val[0], 3);
+        assertEquals(2, client.reconnects());
+        assertTrue(client.isConnected());
+    }
+
+    private Socket accept() throws InterruptedException {
+        Socket socket = connections.poll(3, TimeUnit.SECONDS);
+        assertNotNull("client did not connect", socket);
+        return socket;
+    }
+
+    private static void writeHead(OutputStream out) throws IOException {
+        out.write(("HTTP/1.0 200 OK\r\nContent-Type: multipart/x-mixed-replace;boundary=" + BOUNDARY + "\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static void writePart(OutputStream out, byte[] jpeg, boolean withLength) throws IOException {
+        String headers = "--" + BOUNDARY + "\r\nContent-Type: image/jpeg\r\n"
+                + (withLength ? "Content-Length: " + jpeg.length + "\r\n" : "") + "\r\n";
+        out.write(headers.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(jpeg);
+        if (withLength) {
+            out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+        out.flush();
+    }
+
+    private static byte[] jpeg(int gray) {
+        MatOfByte encoded = new MatOfByte();
+        Imgcodecs.imencode(".jpg", new Mat(240, 320, CvType.CV_8UC3, new Scalar(gray, gray, gray)), encoded);
+        return encoded.toArray();
+    }
+
+    private static AnprConfig config() {
+        return config(new Properties());
+    }
+
+    private static AnprConfig config(Properties properties) {
+        properties.setProperty("camera.reconnectMinMillis", "20");
+        return new AnprConfig(properties);
+    }
+}
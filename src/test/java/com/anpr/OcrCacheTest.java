@@ -0,0 +1,117 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import nu.pattern.OpenCV;
+
+public class OcrCacheTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+    private static final Rect BOX = new Rect(400, 300, 240, 60);
+    // Same focus on every frame, so no put or lookup asks for a sharper re-read
+    private static final double SHARPNESS = 100;
+
+    private final AnprConfig config = new AnprConfig(new Properties());
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        OpenCV.loadLocally();
+    }
+
+    @Test
+    public void reusesReadOfTheSamePlateAtTheSameSpot() {
+        OcrCache cache = new OcrCache();
+        long[] hash = OcrCache.hash(plate("MH12AB1234", 0));
+        assertNull(cache.lookup("cam1", BOX, hash, SHARPNESS, config, T0));
+        cache.put("cam1", BOX, hash, "MH12AB1234", SHARPNESS, 50_000_000L, config, T0);
+
+        // Next frame: sensor noise and a box that moved by a few pixels
+        long[] nextFrame = OcrCache.hash(plate("MH12AB1234", 6));
+        assertTrue(OcrCache.distance(hash, nextFrame) <= config.ocrCacheMaxDistance);
+        assertEquals("MH12AB1234", cache.lookup("cam1", new Rect(403, 301, 238, 60), nextFrame, SHARPNESS, config, T0 + 100));
+        assertEquals(0.5, cache.hitRate(), 1e-9);
+        assertEquals(50, cache.savedMillis());
+    }
+
+    @Test
+    public void missesOtherPlatesSpotsAndCameras() {
+        OcrCache cache = new OcrCache();
+        long[] hash = OcrCache.hash(plate("MH12AB1234", 0));
+        cache.put("cam1", BOX, hash, "MH12AB1234", SHARPNESS, 1_000_000L, config, T0);
+
+        assertNull(cache.lookup("cam1", BOX, OcrCache.hash(plate("KA05MN7781", 0)), SHARPNESS, config, T0));
+        assertNull(cache.lookup("cam1", new Rect(900, 300, 240, 60), hash, SHARPNESS, config, T0));
+        assertNull(cache.lookup("cam2", BOX, hash, SHARPNESS, config, T0));
+    }
+
+    @Test
+    public void entriesLastWhileThePlateStaysInViewUpToTheTtl() {
+        OcrCache cache = new OcrCache();
+        long[] hash = OcrCache.hash(plate("MH12AB1234", 0));
+        cache.put("cam1", BOX, hash, "MH12AB1234", SHARPNESS, 1_000_000L, config, T0);
+
+        // Seen every half second: still cached until the TTL runs out
+        long now = T0;
+        while (now + 500 <= T0 + config.ocrCacheTtlMillis) {
+            now += 500;
+            assertEquals("MH12AB1234", cache.lookup("cam1", BOX, hash, SHARPNESS, config, now));
+        }
+        assertNull(cache.lookup("cam1", BOX, hash, SHARPNESS, config, now + 500));
+
+        // A gap (vehicle left, the next one arrived) drops the entry even within the TTL; a
+        // plate one glyph apart hashes almost the same, so this is what keeps it from a stale read
+        cache.put("cam1", BOX, hash, "MH12AB1234", SHARPNESS, 1_000_000L, config, T0);
+        assertNull(cache.lookup("cam1", BOX, OcrCache.hash(plate("MH12AB1284", 0)), SHARPNESS, config,
+                T0 + config.ocrCacheMaxGapMillis + 1));
+    }
+
+    @Test
+    public void processorKeysReadsByTheFramesCamera() {
+        AtomicInteger reads = new AtomicInteger();
+        DetectionProcessor processor = new DetectionProcessor(gray -> {
+            reads.incrementAndGet();
+            return new PlateOcr.Result("MH12AB1234", 1f);
+        }, null);
+        Mat frame = new Mat(720, 1280, CvType.CV_8UC3, new Scalar(90, 90, 90));
+        Mat crop = plate("MH12AB1234", 0);
+        Imgproc.cvtColor(crop, frame.submat(BOX), Imgproc.COLOR_GRAY2BGR);
+
+        assertEquals("MH12AB1234", processor.process(BOX, frame, "gate1", config).text);
+        assertEquals("MH12AB1234", processor.process(BOX, frame, "gate1", config).text);
+        assertEquals(1, reads.get());
+        // The same crop at the same spot of another camera, e.g. pushed through the ingest endpoint
+        assertEquals("MH12AB1234", processor.process(BOX, frame, "gate2", config).text);
+        assertEquals(2, reads.get());
+        crop.release();
+        frame.release();
+    }
+
+    // Gray plate crop with optional noise
+    private static Mat plate(String text, double noiseSigma) {
+        Mat plate = new Mat(60, 240, CvType.CV_8UC1, new Scalar(235));
+        Imgproc.rectangle(plate, new Point(1, 1), new Point(238, 58), new Scalar(20), 2);
+        Imgproc.putText(plate, text, new Point(10, 44), Imgproc.FONT_HERSHEY_SIMPLEX, 1.05, new Scalar(20), 3);
+        if (noiseSigma > 0) {
+            Mat noise = new Mat(plate.size(), CvType.CV_8SC1);
+            Core.randn(noise, 0, noiseSigma);
+            Core.add(plate, noise, plate, new Mat(), CvType.CV_8UC1);
+            noise.release();
+        }
+        return plate;
+    }
+}
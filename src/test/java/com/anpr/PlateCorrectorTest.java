@@ -0,0 +1,58 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class PlateCorrectorTest {
+
+    @Test
+    public void keepsValidReadsAndSwapsOnlyWhereTheLayoutNeedsIt() {
+        assertEquals("MH12AB1234", PlateCorrector.correct("MH12AB1234"));
+        assertEquals("MH12AB1234", PlateCorrector.correct("mh 12 ab 1234"));
+        assertEquals("22BH4567AA", PlateCorrector.correct("22BH4567AA"));
+
+        // B stays a letter in the series and becomes 8 among the digits, likewise S and 5
+        assertEquals("MH12AB1284", PlateCorrector.correct("MH12A8I2B4"));
+        assertEquals("KA05MS5678", PlateCorrector.correct("KAO5M5S678"));
+        assertEquals("22BH4567AA", PlateCorrector.correct("228H4S67AA"));
+
+        assertEquals("TN01AB1284", PlateCorrector.correct("TN0lAB12B4"));
+        assertEquals("09BH2345AB", PlateCorrector.correct("O9BHZ345AB"));
+
+        // The "IND" mark read in front of the plate is dropped, also when misread
+        assertEquals("MH12AB1234", PlateCorrector.correct("IND MH 12 AB 1234"));
+        assertEquals("KA05MS5678", PlateCorrector.correct("1NDKA05MS5678"));
+
+        assertNull(PlateCorrector.correct("M4I2A8I23A."));
+        assertNull(PlateCorrector.correct(""));
+    }
+
+    @Test
+    public void rejectsReadsThatOnlyFitAfterDroppingOtherSymbols() {
+        // No layout fits the whole read
+        assertNull(PlateCorrector.correct("DL3CAB1234"));
+        assertNull(PlateCorrector.correct("HR26DQ5551"));
+        // Extra characters after the number, or a marker that is not "IND"
+        assertNull(PlateCorrector.correct("MH12AB12345"));
+        assertNull(PlateCorrector.correct("KA01AB1234X"));
+        assertNull(PlateCorrector.correct("XYZMH12AB1234"));
+
+        // What is kept of them stays invalid, and long garbage is cut short
+        assertEquals("MH12AB12345", DetectionProcessor.normalizePlate("mh 12 ab 12345"));
+        assertEquals("KA01AB1234X", DetectionProcessor.normalizePlate("KA01AB1234X-Y7Q9Z3W8"));
+    }
+
+    @Test
+    public void prefersTheReadersAlternativesOverBlindSwaps() {
+        // The district's second digit read as S, with 9 as Tesseract's runner-up
+        char[][] choices = {{'M'}, {'H'}, {'1'}, {'S', '9'}, {'A'}, {'B'}, {'1'}, {'2'}, {'3'}, {'4'}};
+        float[][] scores = {{0.99f}, {0.99f}, {0.99f}, {0.5f, 0.45f}, {0.99f}, {0.99f}, {0.99f}, {0.99f}, {0.99f}, {0.99f}};
+        assertEquals("MH19AB1234", PlateCorrector.correct("MH1SAB1234", choices, scores));
+        assertEquals("MH15AB1234", PlateCorrector.correct("MH1SAB1234"));
+
+        PlateOcr.Result result = new PlateOcr.Result("MH1SAB1234", 0.5f, choices, scores);
+        assertEquals("MH19AB1234", DetectionProcessor.normalizePlate(result));
+    }
+}
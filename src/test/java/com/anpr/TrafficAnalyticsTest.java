@@ -0,0 +1,87 @@
+package com.anpr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TrafficAnalyticsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Midnight UTC, 2023-11-14
+    private static final long DAY1 = 1_699_920_000_000L;
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    public void countsVisitsPerLaneAndStateAndEstimatesReturningVehicles() throws Exception {
+        Path directory = folder.newFolder("analytics").toPath();
+        try (TrafficAnalytics analytics = new TrafficAnalytics(directory, config())) {
+            // Day 1: plates 0-1999; every plate is read twice a few frames apart
+            for (int i = 0; i < 2000; i++) {
+                long t = DAY1 + i * 40_000L;
+                analytics.record(t, "lane" + (i % 2 + 1), plate(i));
+                analytics.record(t + 200, "lane" + (i % 2 + 1), plate(i));
+            }
+            // Day 2: plates 1000-2999, so half of them are back
+            for (int i = 1000; i < 3000; i++) {
+                analytics.record(DAY1 + DAY + (i - 1000) * 40_000L, "lane1", plate(i));
+            }
+
+            TrafficAnalytics.Rollup day1 = analytics.rollup(TrafficAnalytics.Granularity.DAY, DAY1, DAY1 + DAY);
+            assertEquals(2000, day1.visits);
+            assertEquals(Long.valueOf(1000), day1.visitsPerCamera.get("lane1"));
+            assertEquals(Long.valueOf(200), day1.visitsPerState.get("BH"));
+            assertEquals(Long.valueOf(500), day1.visitsPerState.get("KA"));
+            assertEquals(Long.valueOf(1300), day1.visitsPerState.get("MH"));
+            assertEquals(2000, day1.uniqueVehicles, 100);
+            assertEquals(0, day1.returningVehicles);
+
+            TrafficAnalytics.Rollup day2 = analytics.rollup(TrafficAnalytics.Granularity.DAY, DAY1 + DAY, DAY1 + 2 * DAY);
+            assertEquals(0.5, day2.repeatVisitRate(), 0.07);
+
+            // The finer granularities add up to the same totals
+            long hourly = analytics.series(TrafficAnalytics.Granularity.HOUR, DAY1, DAY1 + DAY).stream()
+                    .mapToLong(r -> r.visits).sum();
+            assertEquals(2000, hourly);
+            assertEquals(2000, analytics.rollup(TrafficAnalytics.Granularity.MINUTE, DAY1, DAY1 + DAY).visits);
+        }
+
+        // Reopened from the compressed files
+        try (TrafficAnalytics analytics = new TrafficAnalytics(directory, config())) {
+            TrafficAnalytics.Rollup day1 = analytics.rollup(TrafficAnalytics.Granularity.DAY, DAY1, DAY1 + DAY);
+            assertEquals(2000, day1.visits);
+            assertEquals(Long.valueOf(1000), day1.visitsPerCamera.get("lane2"));
+            assertEquals(2000, day1.uniqueVehicles, 100);
+            assertEquals(0.5, analytics.rollup(TrafficAnalytics.Granularity.DAY, DAY1 + DAY, DAY1 + 2 * DAY).repeatVisitRate(), 0.07);
+        }
+    }
+
+    @Test
+    public void parsesStateCodes() {
+        assertEquals("MH", TrafficAnalytics.stateOf("MH12AB1234"));
+        assertEquals("BH", TrafficAnalytics.stateOf("22BH4567AA"));
+    }
+
+    private static String plate(int i) {
+        if (i % 10 == 0) {
+            return String.format("22BH%04dAA", i);
+        }
+        return String.format("%s01AB%04d", i % 4 == 1 ? "KA" : "MH", i);
+    }
+
+    private static AnprConfig config() {
+        Properties properties = new Properties();
+        properties.setProperty("analytics.timeZone", "UTC");
+        // The fixed test dates must survive retention
+        properties.setProperty("analytics.minuteRetentionHours", "1000000");
+        properties.setProperty("analytics.hourRetentionDays", "100000");
+        properties.setProperty("analytics.dayRetentionDays", "100000");
+        return new AnprConfig(properties);
+    }
+}